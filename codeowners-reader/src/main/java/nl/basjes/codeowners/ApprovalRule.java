@@ -18,29 +18,55 @@
 package nl.basjes.codeowners;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.regex.Pattern;
 
 public class ApprovalRule {
     private final String fileExpression;
     private final List<String> approvers;
-    private final Pattern filePattern;
-    private boolean verbose = false;
+    private final String fileRegex;
+    // Created when first needed because normally the RuleIndex of the Section does all matching.
+    private volatile Pattern filePattern;
+    // Does the same matching as the filePattern without backtracking; NO_MATCHER if the regex cannot be handled by it.
+    // Created when first needed because normally the RuleIndex of the Section does all matching.
+    private volatile GlobAutomaton fileMatcher;
+    // Only the default for the calls that do not specify verbose (see the deprecated setVerbose).
+    private volatile boolean verbose = false;
+
+    private static final GlobAutomaton NO_MATCHER = new GlobAutomaton.Builder().build();
+
+    // The regexes used to convert the file expression are compiled only once.
+    private static final Pattern NO_LEADING_SLASH       = Pattern.compile("^([^/*.])");
+    private static final Pattern NO_TRAILING_WILDCARD   = Pattern.compile("([^/*])$");
+    private static final Pattern LEADING_STAR           = Pattern.compile("^\\*");
+    private static final Pattern LEADING_SLASH          = Pattern.compile("^/");
+    private static final Pattern TRAILING_SLASH_STAR    = Pattern.compile("/\\*([^/]*)$");
+    private static final Pattern STAR                   = Pattern.compile("([^.\\]])\\*");
+    private static final Pattern MULTIPLE_SLASHES       = Pattern.compile("/+");
 
     public ApprovalRule(String fileExpression, List<String> approvers) {
         this.fileExpression = fileExpression;
-        this.approvers = approvers;
+        this.approvers = Collections.unmodifiableList(new ArrayList<>(approvers));
 
+        // Identical expressions (in other sections or other CODEOWNERS files) share the same regex.
+        this.fileRegex = CompiledRuleCache.get(fileExpression.trim(), ApprovalRule::toRegex);
+        this.filePattern = null; // Only needed when matching a single rule.
+        this.fileMatcher = null; // Only needed when matching a single rule.
+    }
+
+    static String toRegex(String fileExpression) {
         String fileRegex = fileExpression
             .trim() // Clear leading and trailing spaces
 
-            .replace("\\ ", " ") // The escaped spaces must become spaces again.
+            .replace("\\ ", " "); // The escaped spaces must become spaces again.
 
-            // If a path does not start with a /, the path is treated as if it starts with a globstar. README.md is treated the same way as /**/README.md
-            .replaceAll("^([^/*.])", "/**/$1")
-            // "/foo" --> End can be a filename (so we pin to the end) or a directory name (so we expect another / )
-            .replaceAll("([^/*])$", "$1(/|\\$)")
+        // If a path does not start with a /, the path is treated as if it starts with a globstar. README.md is treated the same way as /**/README.md
+        fileRegex = NO_LEADING_SLASH.matcher(fileRegex).replaceAll("/**/$1");
+        // "/foo" --> End can be a filename (so we pin to the end) or a directory name (so we expect another / )
+        fileRegex = NO_TRAILING_WILDCARD.matcher(fileRegex).replaceAll("$1(/|\\$)");
 
+        fileRegex = fileRegex
             .replace(".", "\\.") // Avoid bad wildcards
             .replace("\\.*", "\\..*")//  matching  /.* onto /.foo/bar.xml
             .replace("?", ".")   // Single character match
@@ -53,22 +79,38 @@ public class ApprovalRule {
             .replace("/*/", "/[^/]+/")
             .replace("/*/", "/[^/]+/")
 
-            .replace("**", ".*") // Convert to the Regex wildcards
+            .replace("**", ".*"); // Convert to the Regex wildcards
 
-            .replaceAll("^\\*", ".*") // Match anything at the start
+        fileRegex = LEADING_STAR.matcher(fileRegex).replaceAll(".*"); // Match anything at the start
 
-            .replaceAll("^/", "^/") // If starts with / then pin to the start.
+        fileRegex = LEADING_SLASH.matcher(fileRegex).replaceAll("^/"); // If starts with / then pin to the start.
 
-            .replaceAll("/\\*([^/]*)$", "/[^/]*$1\\$") // A trailing '/*something' means NO further subdirs should be matched
+        fileRegex = TRAILING_SLASH_STAR.matcher(fileRegex).replaceAll("/[^/]*$1\\$"); // A trailing '/*something' means NO further subdirs should be matched
 
-            .replace("/*", "/.*") // "/foo/*\.js"  --> "/foo/.*\.js"
+        fileRegex = fileRegex.replace("/*", "/.*"); // "/foo/*\.js"  --> "/foo/.*\.js"
 
-            .replaceAll("([^.\\]])\\*", "$1.*") // Match anything at the start
+        fileRegex = STAR.matcher(fileRegex).replaceAll("$1.*"); // Match anything at the start
 
-            .replaceAll("/+", "/") // Remove duplication
-            ;
+        return MULTIPLE_SLASHES.matcher(fileRegex).replaceAll("/"); // Remove duplication
+    }
 
-        filePattern = Pattern.compile(fileRegex);
+    /**
+     * A rule that was read from a snapshot; the regex is not compiled until it is needed.
+     * @param fileExpression The file expression as it was in the CODEOWNERS file
+     * @param approvers The approvers
+     * @param fileRegex The regex that was constructed from the fileExpression
+     */
+    ApprovalRule(String fileExpression, List<String> approvers, String fileRegex) {
+        this.fileExpression = fileExpression;
+        this.approvers = Collections.unmodifiableList(new ArrayList<>(approvers));
+        this.fileRegex = fileRegex;
+        this.filePattern = null;
+        this.fileMatcher = null;
+    }
+
+    private static GlobAutomaton compileMatcher(String fileRegex) {
+        GlobAutomaton.Builder builder = new GlobAutomaton.Builder();
+        return builder.add(0, fileRegex) ? builder.build() : NO_MATCHER;
     }
 
     /**
@@ -82,12 +124,24 @@ public class ApprovalRule {
      * @return The Pattern which was constructed from the provided fileExpression
      */
     public Pattern getFilePattern() {
-        return filePattern;
+        Pattern pattern = filePattern;
+        if (pattern == null) {
+            pattern = Pattern.compile(fileRegex);
+            filePattern = pattern;
+        }
+        return pattern;
+    }
+
+    /**
+     * @return The regex which was constructed from the provided fileExpression
+     */
+    String getFileRegex() {
+        return fileRegex;
     }
 
     /**
      * @return All approvers (in the same order as they are in the file) that will be returned IF
-     * the file pattern matches.
+     * the file pattern matches. This list cannot be modified.
      */
     public List<String> getApprovers() {
         return approvers;
@@ -98,27 +152,66 @@ public class ApprovalRule {
      * configured fileExpression. If not it returns null.
      */
     public List<String> getApprovers(String filename) {
-        if (!filePattern.matcher(filename).find()) {
+        return getApprovers(filename, verbose);
+    }
+
+    /**
+     * @param verbose True enables logging, False disables logging
+     * @deprecated Use the methods that have a verbose parameter.
+     * This only sets the default for the calls without that parameter.
+     */
+    @Deprecated
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * @param filename The filename to check
+     * @param verbose True to log how this rule was matched.
+     * @return The approvers if the provided file matches the configured fileExpression. If not it returns null.
+     */
+    List<String> getApprovers(String filename, boolean verbose) {
+        if (!matches(filename)) {
             if (verbose) {
-                CodeOwners.LOG.info("NO MATCH  |{}| ~ |{}| --> {}", fileExpression, filePattern, filename);
+                CodeOwners.LOG.info("NO MATCH  |{}| ~ |{}| --> {}", fileExpression, fileRegex, filename);
             }
             return null;
         }
         if (verbose) {
-            CodeOwners.LOG.info("MATCH     |{}| ~ |{}| --> {}    approvers:{}", fileExpression, filePattern, filename, approvers);
+            CodeOwners.LOG.info("MATCH     |{}| ~ |{}| --> {}    approvers:{}", fileExpression, fileRegex, filename, approvers);
         }
         return new ArrayList<>(approvers);
     }
 
-    public void setVerbose(boolean verbose) {
-        this.verbose = verbose;
+    /**
+     * @param filename The filename to check
+     * @return True if the filename matches the configured fileExpression.
+     */
+    boolean matches(String filename) {
+        GlobAutomaton matcher = fileMatcher;
+        if (matcher == null) {
+            matcher = compileMatcher(fileRegex);
+            fileMatcher = matcher;
+        }
+        if (matcher == NO_MATCHER) {
+            return getFilePattern().matcher(filename).find();
+        }
+        return matcher.matches(filename);
     }
 
     @Override
     public String toString() {
+        return toString(verbose);
+    }
+
+    /**
+     * @param verbose True to also include the regex that is used for this rule.
+     * @return The rule in the CODEOWNERS format.
+     */
+    String toString(boolean verbose) {
         StringBuilder result = new StringBuilder();
         if (verbose) {
-            result.append("# Regex used for the next rule:   ").append(filePattern).append('\n');
+            result.append("# Regex used for the next rule:   ").append(fileRegex).append('\n');
         }
         return result.append(fileExpression).append(" ").append(String.join(" ", approvers)).toString();
     }
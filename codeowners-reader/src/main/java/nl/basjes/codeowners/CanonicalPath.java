@@ -0,0 +1,131 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+/**
+ * A filename in the form used to match the CODEOWNERS rules.
+ * <p>
+ * The filename is normalized only once: all '\' become '/' and it always starts with a '/'.
+ * The positions of all '/' are retained so the directories on the path can be found without any
+ * further string work.
+ */
+public final class CanonicalPath {
+
+    private final String path;
+    // The positions of all '/' in the path
+    private final int[] separators;
+
+    private CanonicalPath(String path, int[] separators) {
+        this.path = path;
+        this.separators = separators;
+    }
+
+    /**
+     * @param filename The filename (may use '\' as separator, need not start with a '/').
+     * @return The canonical form of the filename. If it already is canonical then the same String is retained.
+     */
+    public static CanonicalPath of(String filename) {
+        int length = filename.length();
+        boolean addLeadingSeparator = length == 0 || (filename.charAt(0) != '/' && filename.charAt(0) != '\\');
+        boolean isCanonical = !addLeadingSeparator;
+        int numberOfSeparators = addLeadingSeparator ? 1 : 0;
+        for (int i = 0; i < length; i++) {
+            char c = filename.charAt(i);
+            if (c == '\\') {
+                isCanonical = false;
+                numberOfSeparators++;
+            } else if (c == '/') {
+                numberOfSeparators++;
+            }
+        }
+
+        String path;
+        if (isCanonical) {
+            path = filename;
+        } else {
+            StringBuilder builder = new StringBuilder(length + 1);
+            if (addLeadingSeparator) {
+                builder.append('/');
+            }
+            for (int i = 0; i < length; i++) {
+                char c = filename.charAt(i);
+                builder.append(c == '\\' ? '/' : c);
+            }
+            path = builder.toString();
+        }
+
+        int[] separators = new int[numberOfSeparators];
+        int separator = 0;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                separators[separator++] = i;
+            }
+        }
+        return new CanonicalPath(path, separators);
+    }
+
+    /**
+     * @return The canonical filename.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return The number of '/' in the canonical filename.
+     */
+    public int getNumberOfSeparators() {
+        return separators.length;
+    }
+
+    /**
+     * @param index Which '/' (0 is the first one)
+     * @return The position of this '/' in the canonical filename.
+     */
+    public int getSeparator(int index) {
+        return separators[index];
+    }
+
+    /**
+     * @return True if this is a directory name (i.e. it ends with a '/').
+     */
+    public boolean isDirectory() {
+        return path.charAt(path.length() - 1) == '/';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CanonicalPath)) {
+            return false;
+        }
+        return path.equals(((CanonicalPath) o).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
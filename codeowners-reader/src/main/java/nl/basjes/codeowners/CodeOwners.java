@@ -22,66 +22,155 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class CodeOwners {
 
-    private static final String CODEOWNERS_PATH_SEPARATOR = "/";
-
     static final Logger LOG = LoggerFactory.getLogger(CodeOwners.class);
 
-    private boolean verbose = false;
+    // The number of filenames that are handled as a single task in the batch methods.
+    private static final int BATCH_CHUNK_SIZE = 256;
 
     // Map name of Section to Sections
     private final Map<String, Section> sections;
 
+    // Only the default for the queries that do not specify verbose (see the deprecated setVerbose).
+    private volatile boolean verbose = false;
+
+    // Beyond this many directories the results of isDirectoryFullyCovered are no longer cached.
+    private static final int MAX_CACHED_DIRECTORIES = 100_000;
+    private final Map<String, Coverage> directoryCoverage = new ConcurrentHashMap<>();
+
+    private enum Coverage {
+        NONE,              // Some new files directly in the directory may have no mandatory approvers.
+        FILES,             // All new files directly in the directory have mandatory approvers.
+        FILES_AND_SUBDIRS  // All new files in the directory and all of its subdirectories have mandatory approvers.
+    }
+
     /**
      * Construct the CodeOwners from a file
      * @param file The file from which the rules must be read. Will NPE if file is null.
      * @throws IOException In case of problems.
      */
     public CodeOwners(File file) throws IOException {
-        this(readFileToString(file));
+        this(file.toPath());
+    }
+
+    /**
+     * Construct the CodeOwners from a file which is read as a stream (the file is never loaded as a whole).
+     * @param file The file from which the rules must be read. Will NPE if file is null.
+     * @throws IOException In case of problems.
+     */
+    public CodeOwners(Path file) throws IOException {
+        this(file, false);
+    }
+
+    /**
+     * Construct the CodeOwners from a file which is read as a stream (the file is never loaded as a whole).
+     * @param file The file from which the rules must be read. Will NPE if file is null.
+     * @param memoryMapped True to read the file via a memory mapping (useful for very large generated files).
+     * @throws IOException In case of problems.
+     */
+    public CodeOwners(Path file, boolean memoryMapped) throws IOException {
+        this(new CodeOwnersLoader(file, memoryMapped));
     }
 
-    private static String readFileToString(File file) throws IOException {
-        return new String(Files.readAllBytes(file.toPath()), UTF_8);
+    /**
+     * Construct the CodeOwners from a reader which is read as a stream (only a single line is kept in memory).
+     * A reader cannot be read a second time so content with syntax errors (which needs the error recovery of the
+     * full parser) cannot be loaded this way; use the String, File or Path constructors for such content.
+     * @param reader The reader from which the rules must be read. This is NOT closed. Will NPE if reader is null.
+     * @throws IOException In case of problems or if the content has syntax errors.
+     */
+    public CodeOwners(Reader reader) throws IOException {
+        this(reader, null);
     }
 
-    private boolean hasStructuralProblems = false;
+    /**
+     * Construct the CodeOwners from an UTF-8 encoded stream which is read as a stream (only a single line is kept in memory).
+     * A stream cannot be read a second time so content with syntax errors (which needs the error recovery of the
+     * full parser) cannot be loaded this way; use the String, File or Path constructors for such content.
+     * @param inputStream The stream from which the rules must be read. This is NOT closed. Will NPE if inputStream is null.
+     * @throws IOException In case of problems or if the content has syntax errors.
+     */
+    public CodeOwners(InputStream inputStream) throws IOException {
+        this(new InputStreamReader(inputStream, UTF_8));
+    }
 
     /**
-     * Construct the CodeOwners with the provided rules string
+     * @param reader The reader from which the rules must be read. This is NOT closed.
+     * @param source The file the reader reads which is read again if the content has syntax errors; may be null.
+     */
+    CodeOwners(Reader reader, Path source) throws IOException {
+        this(new CodeOwnersLoader(reader, source));
+    }
+
+    private final boolean hasStructuralProblems;
+
+    /**
+     * Construct the CodeOwners with the provided rules string.
+     * The result cannot be changed so a single instance can be used by many threads at the same time.
      * @param codeownersContent The rules must be read. Will NPE if the content is null.
      */
-    @SuppressWarnings("this-escape") // Because of generated code
     public CodeOwners(String codeownersContent) {
-        CodeOwnersLoader codeOwnersLoader = new CodeOwnersLoader(codeownersContent);
-        sections = codeOwnersLoader.getSections();
+        this(new CodeOwnersLoader(codeownersContent));
+    }
+
+    private CodeOwners(CodeOwnersLoader codeOwnersLoader) {
+        sections = Collections.unmodifiableMap(new LinkedHashMap<>(codeOwnersLoader.getSections()));
         hasStructuralProblems = codeOwnersLoader.hasStructuralProblems();
     }
 
+    // Used when restoring a snapshot.
+    CodeOwners(Map<String, Section> sections, boolean hasStructuralProblems) {
+        this.sections = Collections.unmodifiableMap(new LinkedHashMap<>(sections));
+        this.hasStructuralProblems = hasStructuralProblems;
+    }
+
     /**
-     * @return true if any kind of (even minor) problem is found.
+     * @return All sections in the order in which they were defined.
      */
-    public boolean hasStructuralProblems() {
-        return hasStructuralProblems;
+    Map<String, Section> getSections() {
+        return sections;
     }
 
     /**
      * @param verbose True enables logging, False disables logging
+     * @deprecated Use the methods that have a verbose parameter.
+     * This only sets the default for the calls without that parameter.
      */
+    @Deprecated
     public void setVerbose(boolean verbose) {
         this.verbose = verbose;
-        sections.values().forEach(section->section.setVerbose(verbose));
+        sections.values().forEach(section -> section.setVerbose(verbose));
+    }
+
+    /**
+     * @return true if any kind of (even minor) problem is found.
+     */
+    public boolean hasStructuralProblems() {
+        return hasStructuralProblems;
     }
 
     /**
@@ -93,13 +182,92 @@ public class CodeOwners {
         return new HashSet<>(sections.values());
     }
 
+    /**
+     * Determine (only from the rules) if ANY file that could be created directly in this directory will have
+     * mandatory approvers. This is on the safe side: in rare cases (i.e. a rule that can only be
+     * matched with a regex) false is returned even though all files would have approvers.
+     * <p>
+     * The results are cached per directory and if all files under a directory are covered the
+     * subdirectories reuse that, so checking all directories of a project in any order is cheap.
+     * @param directory The directory which MUST be relative to the project base directory.
+     * @return True if every new file in this directory would have mandatory approvers.
+     */
+    public boolean isDirectoryFullyCovered(String directory) {
+        return getCoverage(toDirectoryPath(CanonicalPath.of(directory).getPath())) != Coverage.NONE;
+    }
+
+    // The path without any duplicate '/' and always ending with a '/'.
+    private static String toDirectoryPath(String path) {
+        StringBuilder result = new StringBuilder(path.length() + 1);
+        char previous = 0;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c != '/' || previous != '/') {
+                result.append(c);
+            }
+            previous = c;
+        }
+        if (previous != '/') {
+            result.append('/');
+        }
+        return result.toString();
+    }
+
+    private Coverage getCoverage(String directory) {
+        Coverage coverage = directoryCoverage.get(directory);
+        if (coverage != null) {
+            return coverage;
+        }
+        int parentEnd = directory.lastIndexOf('/', directory.length() - 2);
+        if (parentEnd >= 0 && getCoverage(directory.substring(0, parentEnd + 1)) == Coverage.FILES_AND_SUBDIRS) {
+            coverage = Coverage.FILES_AND_SUBDIRS;
+        } else {
+            coverage = Coverage.NONE;
+            for (Section section : sections.values()) {
+                if (section.isOptional()) {
+                    continue;
+                }
+                if (section.approvesAllFilesUnder(directory)) {
+                    coverage = Coverage.FILES_AND_SUBDIRS;
+                    break;
+                }
+                if (section.approvesAllFilesIn(directory)) {
+                    coverage = Coverage.FILES;
+                }
+            }
+        }
+        if (directoryCoverage.size() < MAX_CACHED_DIRECTORIES) {
+            directoryCoverage.put(directory, coverage);
+        }
+        return coverage;
+    }
+
     /**
      * Get all mandatory approvers for a specific filename.
      * @param filename The filename for which the mandatory approvers are requested. This filename MUST be relative to the project base directory.
      * @return The list of mandatory approver usernames for this filename in the order (as good as possible) as they appear in the code owner rules.
      */
     public List<String> getMandatoryApprovers(String filename) {
-        return getAllApprovers(filename, true);
+        return getMandatoryApprovers(filename, verbose);
+    }
+
+    /**
+     * Get all mandatory approvers for a specific filename.
+     * @param filename The filename for which the mandatory approvers are requested. This filename MUST be relative to the project base directory.
+     * @param verbose True to log how the approvers were determined.
+     * @return The list of mandatory approver usernames for this filename in the order (as good as possible) as they appear in the code owner rules.
+     */
+    public List<String> getMandatoryApprovers(String filename, boolean verbose) {
+        return getApprovers(CanonicalPath.of(filename), true, verbose);
+    }
+
+    /**
+     * Get all mandatory approvers for a specific filename.
+     * @param filename The filename for which the mandatory approvers are requested. This filename MUST be relative to the project base directory.
+     * @return The list of mandatory approver usernames for this filename in the order (as good as possible) as they appear in the code owner rules.
+     */
+    public List<String> getMandatoryApprovers(CanonicalPath filename) {
+        return getApprovers(filename, true, verbose);
     }
 
     /**
@@ -108,28 +276,40 @@ public class CodeOwners {
      * @return The list of approver usernames for this filename in the order (as good as possible) as they appear in the code owner rules.
      */
     public List<String> getAllApprovers(String filename) {
-        return getAllApprovers(filename, false);
+        return getAllApprovers(filename, verbose);
     }
 
-    private List<String> getAllApprovers(String filename, boolean onlyMandatory) {
-        if (verbose) {
-            LOG.info("# vvvvvvvvvvvvvvvvvvvvvvvvvvv");
-            LOG.info("Checking: {}", filename);
-        }
+    /**
+     * Get all approvers for a specific filename.
+     * @param filename The filename for which the approvers are requested. This filename MUST be relative to the project base directory.
+     * @param verbose True to log how the approvers were determined.
+     * @return The list of approver usernames for this filename in the order (as good as possible) as they appear in the code owner rules.
+     */
+    public List<String> getAllApprovers(String filename, boolean verbose) {
+        return getApprovers(CanonicalPath.of(filename), false, verbose);
+    }
 
-        String matchFileName = filename.replace("\\", CODEOWNERS_PATH_SEPARATOR);
-        if (!matchFileName.startsWith(CODEOWNERS_PATH_SEPARATOR)) {
-            matchFileName = CODEOWNERS_PATH_SEPARATOR + matchFileName;
-        }
+    /**
+     * Get all approvers for a specific filename.
+     * @param filename The filename for which the approvers are requested. This filename MUST be relative to the project base directory.
+     * @return The list of approver usernames for this filename in the order (as good as possible) as they appear in the code owner rules.
+     */
+    public List<String> getAllApprovers(CanonicalPath filename) {
+        return getApprovers(filename, false, verbose);
+    }
+
+    private List<String> getApprovers(CanonicalPath filename, boolean onlyMandatory, boolean verbose) {
+        String matchFileName = filename.getPath();
 
         if (verbose) {
+            LOG.info("# vvvvvvvvvvvvvvvvvvvvvvvvvvv");
             LOG.info("Matching: {}", matchFileName);
         }
 
         List<String> approvers = new ArrayList<>();
         for (Section section: sections.values()) {
             if (!onlyMandatory || !section.isOptional()) {
-                approvers.addAll(section.getApprovers(matchFileName));
+                approvers.addAll(section.getApprovers(matchFileName, verbose));
             }
         }
         List<String> endResultApprovers = approvers.stream().distinct().collect(Collectors.toList());
@@ -146,10 +326,126 @@ public class CodeOwners {
         return endResultApprovers;
     }
 
-    private Section currentSection;
+    // ------------------------------------------
+
+    /**
+     * Get all mandatory approvers for many filenames at once.
+     * The work is spread over the threads of the common ForkJoinPool.
+     * @param filenames The filenames for which the mandatory approvers are requested. These filenames MUST be relative to the project base directory.
+     * @return For each distinct filename (in the order in which it first occurs) the list of mandatory approver usernames.
+     * A filename that is provided more than once is only determined once and appears once in the result.
+     */
+    public Map<String, List<String>> getMandatoryApprovers(Collection<String> filenames) {
+        return getMandatoryApprovers(filenames, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Get all mandatory approvers for many filenames at once.
+     * @param filenames The filenames for which the mandatory approvers are requested. These filenames MUST be relative to the project base directory.
+     * @param executor The executor that does the actual work.
+     * @return For each distinct filename (in the order in which it first occurs) the list of mandatory approver usernames.
+     * A filename that is provided more than once is only determined once and appears once in the result.
+     */
+    public Map<String, List<String>> getMandatoryApprovers(Collection<String> filenames, Executor executor) {
+        return getApprovers(filenames, true, executor);
+    }
+
+    /**
+     * Get all approvers for many filenames at once.
+     * The work is spread over the threads of the common ForkJoinPool.
+     * @param filenames The filenames for which the approvers are requested. These filenames MUST be relative to the project base directory.
+     * @return For each distinct filename (in the order in which it first occurs) the list of approver usernames.
+     * A filename that is provided more than once is only determined once and appears once in the result.
+     */
+    public Map<String, List<String>> getAllApprovers(Collection<String> filenames) {
+        return getAllApprovers(filenames, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Get all approvers for many filenames at once.
+     * @param filenames The filenames for which the approvers are requested. These filenames MUST be relative to the project base directory.
+     * @param executor The executor that does the actual work.
+     * @return For each distinct filename (in the order in which it first occurs) the list of approver usernames.
+     * A filename that is provided more than once is only determined once and appears once in the result.
+     */
+    public Map<String, List<String>> getAllApprovers(Collection<String> filenames, Executor executor) {
+        return getApprovers(filenames, false, executor);
+    }
+
+    /**
+     * Determine the mandatory approvers for many filenames and hand each result to the action as soon as it is available.
+     * @param filenames The filenames for which the mandatory approvers are requested. These filenames MUST be relative to the project base directory.
+     * @param executor The executor that does the actual work.
+     * @param action Is called with each filename and its mandatory approvers. This is called from the threads of the executor (in no particular order) so it MUST be thread safe.
+     */
+    public void forEachMandatoryApprovers(Collection<String> filenames, Executor executor, BiConsumer<String, List<String>> action) {
+        forEachApprovers(new ArrayList<>(filenames), true, executor, (index, filename, approvers) -> action.accept(filename, approvers));
+    }
+
+    /**
+     * Determine the approvers for many filenames and hand each result to the action as soon as it is available.
+     * @param filenames The filenames for which the approvers are requested. These filenames MUST be relative to the project base directory.
+     * @param executor The executor that does the actual work.
+     * @param action Is called with each filename and its approvers. This is called from the threads of the executor (in no particular order) so it MUST be thread safe.
+     */
+    public void forEachAllApprovers(Collection<String> filenames, Executor executor, BiConsumer<String, List<String>> action) {
+        forEachApprovers(new ArrayList<>(filenames), false, executor, (index, filename, approvers) -> action.accept(filename, approvers));
+    }
+
+    private Map<String, List<String>> getApprovers(Collection<String> filenames, boolean onlyMandatory, Executor executor) {
+        // The result has each filename only once so duplicates need not be determined again.
+        List<String> filenameList = new ArrayList<>(new LinkedHashSet<>(filenames));
+        List<List<String>> results = new ArrayList<>(filenameList.size());
+        for (int i = 0; i < filenameList.size(); i++) {
+            results.add(null);
+        }
+        // Each index is written by exactly one task; completing the tasks makes them visible here.
+        forEachApprovers(filenameList, onlyMandatory, executor, (index, filename, approvers) -> results.set(index, approvers));
+
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (int i = 0; i < filenameList.size(); i++) {
+            result.put(filenameList.get(i), results.get(i));
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface ApproversAction {
+        void accept(int index, String filename, List<String> approvers);
+    }
+
+    private void forEachApprovers(List<String> filenames, boolean onlyMandatory, Executor executor, ApproversAction action) {
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int chunkStart = 0; chunkStart < filenames.size(); chunkStart += BATCH_CHUNK_SIZE) {
+            int start = chunkStart;
+            int end = Math.min(filenames.size(), chunkStart + BATCH_CHUNK_SIZE);
+            tasks.add(CompletableFuture.runAsync(() -> {
+                for (int index = start; index < end; index++) {
+                    String filename = filenames.get(index);
+                    action.accept(index, filename, getApprovers(CanonicalPath.of(filename), onlyMandatory, false));
+                }
+            }, executor));
+        }
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
 
     @Override
     public String toString() {
+        return toString(verbose);
+    }
+
+    /**
+     * @param verbose True to also include the regex that is used for each rule.
+     * @return The rules in the CODEOWNERS format.
+     */
+    public String toString(boolean verbose) {
         StringBuilder result = new StringBuilder();
         result.append("# CODEOWNERS file:\n");
         if (sections.isEmpty()) {
@@ -161,13 +457,13 @@ public class CodeOwners {
             if (firstSection.isDefaultSection()) {
                 // If ONLY the default section then no section header
                 for (ApprovalRule approvalRule : firstSection.getApprovalRules()) {
-                    result.append(approvalRule).append('\n');
+                    result.append(approvalRule.toString(verbose)).append('\n');
                 }
                 return result.toString();
             }
         }
         for (Section section : sections.values()) {
-            result.append(section).append('\n');
+            result.append(section.toString(verbose)).append('\n');
         }
         return result.toString();
     }
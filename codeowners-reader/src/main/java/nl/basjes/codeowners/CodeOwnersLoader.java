@@ -23,28 +23,39 @@ import nl.basjes.codeowners.parser.CodeOwnersParser.ApprovalRuleContext;
 import nl.basjes.codeowners.parser.CodeOwnersParser.CodeownersContext;
 import nl.basjes.codeowners.parser.CodeOwnersParser.SectionContext;
 import nl.basjes.codeowners.parser.CodeOwnersParserBaseVisitor;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CodePointCharStream;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 class CodeOwnersLoader extends CodeOwnersParserBaseVisitor<Void> {
 
     private static final Logger LOG = LoggerFactory.getLogger(CodeOwnersLoader.class);
 
+    // Map name of Section to Sections (while reading)
+    private final Map<String, Section.Builder> sectionBuilders = new LinkedHashMap<>();
+
     // Map name of Section to Sections
     private final Map<String, Section> sections = new LinkedHashMap<>();
 
     public Map<String, Section> getSections() {
-        return sections;
+        return Collections.unmodifiableMap(sections);
     }
 
     static final String IMPLICIT_SECTION_NAME = "Implicit Default Section";
@@ -53,32 +64,107 @@ class CodeOwnersLoader extends CodeOwnersParserBaseVisitor<Void> {
      * Construct the CodeOwners with the provided rules string
      * @param codeownersContent The rules must be read. Will NPE if the content is null.
      */
-    @SuppressWarnings("this-escape") // Because of generated code
     public CodeOwnersLoader(String codeownersContent) {
-        currentSection = new Section(IMPLICIT_SECTION_NAME);
+        this(codeownersContent, true);
+    }
+
+    /**
+     * Construct the CodeOwners with the provided rules string
+     * @param codeownersContent The rules must be read. Will NPE if the content is null.
+     * @param useScanner If true the (much faster) CodeOwnersScanner is tried first, if false (or if the scanner
+     *                   cannot handle the content) the ANTLR parser is used.
+     */
+    @SuppressWarnings("this-escape") // Because of generated code
+    CodeOwnersLoader(String codeownersContent, boolean useScanner) {
+        currentSection = new Section.Builder(IMPLICIT_SECTION_NAME);
+        List<CodeOwnersScanner.Entry> entries = useScanner ? CodeOwnersScanner.scan(codeownersContent) : null;
+        if (entries == null) {
+            parseWithAntlr(CharStreams.fromString(codeownersContent));
+        } else {
+            entries.forEach(this::addEntry);
+        }
+        finishLoading();
+    }
+
+    /**
+     * Construct the CodeOwners while reading the rules from the reader.
+     * Only the line that is being parsed is kept in memory.
+     * @param reader The reader from which the rules must be read. This is NOT closed.
+     * @param source The file the reader reads. Content with syntax errors needs the ANTLR parser (which needs the entire content)
+     *               so then this file is read again. If null such content cannot be loaded.
+     * @throws IOException In case of problems or if the content has syntax errors and there is no source.
+     */
+    @SuppressWarnings("this-escape") // Because of generated code
+    CodeOwnersLoader(Reader reader, Path source) throws IOException {
+        currentSection = new Section.Builder(IMPLICIT_SECTION_NAME);
+        load(reader, source);
+    }
+
+    /**
+     * Construct the CodeOwners while reading the rules from the file.
+     * Only the line that is being parsed is kept in memory.
+     * @param file The file from which the rules must be read.
+     * @param memoryMapped True to read the file via a memory mapping instead of via a stream.
+     * @throws IOException In case of problems.
+     */
+    @SuppressWarnings("this-escape") // Because of generated code
+    CodeOwnersLoader(Path file, boolean memoryMapped) throws IOException {
+        currentSection = new Section.Builder(IMPLICIT_SECTION_NAME);
+        try (Reader reader = memoryMapped ? new MappedFileReader(file) : new InputStreamReader(Files.newInputStream(file), UTF_8)) {
+            load(reader, file);
+        }
+    }
+
+    private void load(Reader reader, Path source) throws IOException {
+        if (!CodeOwnersScanner.scan(reader, this::addEntry)) {
+            if (source == null) {
+                throw new IOException("The CODEOWNERS content has syntax errors. " +
+                    "Only when it is loaded from a String, File or Path can it be parsed with error recovery.");
+            }
+            // The file is simply read again.
+            parseWithAntlr(CharStreams.fromPath(source, UTF_8));
+        }
+        finishLoading();
+    }
+
+    private void addEntry(CodeOwnersScanner.Entry entry) {
+        if (entry.isSection) {
+            startSection(entry.sectionName, entry.optional, entry.approvers, entry.userIds);
+        } else {
+            addApprovalRule(entry.fileExpression, entry.userIds);
+        }
+    }
+
+    private void parseWithAntlr(CharStream input) {
+        // Anything the scanner produced before it gave up is discarded.
+        sectionBuilders.clear();
+        currentSection = new Section.Builder(IMPLICIT_SECTION_NAME);
 
-        CodePointCharStream input = CharStreams.fromString(codeownersContent);
         CodeOwnersLexer lexer = new CodeOwnersLexer(input);
         CommonTokenStream tokens = new CommonTokenStream(lexer);
         CodeOwnersParser parser = new CodeOwnersParser(tokens);
         CodeownersContext codeowners = parser.codeowners();
         visit(codeowners);
+    }
 
+    private void finishLoading() {
         // Make sure we retain the last section also
         storeCurrentSection();
+
+        // All rules are known so the final sections (including the matching) can be prepared.
+        sectionBuilders.forEach((name, sectionBuilder) -> sections.put(name, sectionBuilder.build()));
         checkForAnyStructuralProblems();
     }
 
     private void storeCurrentSection() {
         // Only if the previous Section had ANY rules do we keep it.
-        if (!currentSection.getApprovalRules().isEmpty()) {
-            List<String> existingSectionsWithSameName = sections.values().stream().map(Section::getName).filter(name -> name.equalsIgnoreCase(currentSection.getName())).collect(Collectors.toList());
+        if (currentSection.hasApprovalRules()) {
+            List<String> existingSectionsWithSameName = sectionBuilders.values().stream().map(Section.Builder::getName).filter(name -> name.equalsIgnoreCase(currentSection.getName())).collect(Collectors.toList());
             if (existingSectionsWithSameName.isEmpty()) {
-                sections.put(currentSection.getName(), currentSection);
+                sectionBuilders.put(currentSection.getName(), currentSection);
             } else {
-                Section existingSection = sections.get(existingSectionsWithSameName.get(0));
-                currentSection.getDefaultApprovers().forEach(existingSection::addDefaultApprover);
-                currentSection.getApprovalRules().forEach(existingSection::addApprovalRule);
+                Section.Builder existingSection = sectionBuilders.get(existingSectionsWithSameName.get(0));
+                existingSection.merge(currentSection);
                 if (currentSection.isOptional() != existingSection.isOptional()) {
                     // You cannot MIX these two, it is bad.
                     LOG.error("Merging two sections with a different Optional flag is BAD. Section [{}] has optional={} and Section [{}] has optional={}.",
@@ -126,7 +212,7 @@ class CodeOwnersLoader extends CodeOwnersParserBaseVisitor<Void> {
         }
     }
 
-    private Section currentSection;
+    private Section.Builder currentSection;
 
     /**
      * Internal parser method, do not use
@@ -135,19 +221,27 @@ class CodeOwnersLoader extends CodeOwnersParserBaseVisitor<Void> {
      */
     @Override
     public Void visitSection(SectionContext ctx) {
-        Section section = new Section(ctx.section.getText().trim());
-        section.optional = ctx.OPTIONAL() != null;
-        if (ctx.approvers != null) {
-            section.setMinimalNumberOfApprovers(Integer.parseInt(ctx.approvers.getText().trim()));
+        startSection(
+            ctx.section.getText(),
+            ctx.OPTIONAL() != null,
+            ctx.approvers == null ? null : ctx.approvers.getText(),
+            ctx.USERID().stream().map(TerminalNode::getText).collect(Collectors.toList()));
+        return null;
+    }
+
+    private void startSection(String sectionName, boolean optional, String approvers, List<String> defaultApprovers) {
+        Section.Builder section = new Section.Builder(sectionName.trim())
+            .setOptional(optional);
+        if (approvers != null) {
+            section.setMinimalNumberOfApprovers(Integer.parseInt(approvers.trim()));
         }
-        for (TerminalNode user : ctx.USERID()) {
-            section.addDefaultApprover(user.getText());
+        for (String user : defaultApprovers) {
+            section.addDefaultApprover(user);
         }
 
         // Only if the previous Section had ANY rules do we keep it.
         storeCurrentSection();
         currentSection = section;
-        return null;
     }
 
     /**
@@ -157,14 +251,18 @@ class CodeOwnersLoader extends CodeOwnersParserBaseVisitor<Void> {
      */
     @Override
     public Void visitApprovalRule(ApprovalRuleContext ctx) {
-        String filePattern = ctx.fileExpression.getText();
-        List<String> approvers = ctx.USERID().stream()
-                .map(ParseTree::getText)
+        addApprovalRule(
+            ctx.fileExpression.getText(),
+            ctx.USERID().stream().map(ParseTree::getText).collect(Collectors.toList()));
+        return null;
+    }
+
+    private void addApprovalRule(String filePattern, List<String> users) {
+        List<String> approvers = users.stream()
                 .map(String::trim)
                 .distinct()
                 .collect(Collectors.toList());
         currentSection.addApprovalRule(new ApprovalRule(filePattern, approvers));
-        return null;
     }
 
 }
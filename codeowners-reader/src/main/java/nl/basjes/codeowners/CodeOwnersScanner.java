@@ -0,0 +1,436 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A hand-written single pass scanner for CODEOWNERS files that does exactly what the ANTLR
+ * grammar (CodeOwnersLexer.g4 and CodeOwnersParser.g4) does for all well-formed input.
+ * <p>
+ * It does not build any token list or parse tree; it reads the content a line at a time and hands over
+ * the sections and rules in the order they appear.
+ * For anything where the ANTLR lexer or parser would report an error (and do some kind of error recovery)
+ * the scanner gives up so the caller can fall back to the ANTLR parser.
+ */
+final class CodeOwnersScanner {
+
+    /**
+     * A section header or an approval rule, exactly as the grammar recognized it.
+     */
+    static final class Entry {
+        // For a section
+        final boolean isSection;
+        final boolean optional;
+        final String sectionName;
+        final String approvers; // null if not specified
+
+        // For an approval rule
+        final String fileExpression;
+
+        // The default approvers of a section or the approvers of a rule
+        final List<String> userIds;
+
+        private Entry(boolean isSection, boolean optional, String sectionName, String approvers, String fileExpression, List<String> userIds) {
+            this.isSection = isSection;
+            this.optional = optional;
+            this.sectionName = sectionName;
+            this.approvers = approvers;
+            this.fileExpression = fileExpression;
+            this.userIds = userIds;
+        }
+    }
+
+    // The token types the parser gets to see (all others are skipped or hidden)
+    private static final int EOF            = 0;
+    private static final int OPTIONAL       = 1;
+    private static final int SECTIONVALUE   = 2;
+    private static final int USERID         = 3;
+    private static final int FILEEXPRESSION = 4;
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] chunk = new char[CHUNK_SIZE];
+    private int chunkPos = 0;
+    private int chunkLength = 0;
+
+    // The line(s) being scanned. Only a section header can make this more than one line.
+    private final StringBuilder buffer = new StringBuilder();
+    private int length = 0;
+    private int pos = 0;
+
+    private int tokenType;
+    private int tokenStart;
+    private int tokenEnd;
+
+    private CodeOwnersScanner(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @param content The content of a CODEOWNERS file
+     * @return All sections and rules in the order of the file, or null if the content needs the ANTLR parser.
+     */
+    static List<Entry> scan(String content) {
+        List<Entry> entries = new ArrayList<>();
+        try {
+            return scan(new StringReader(content), entries::add) ? entries : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Cannot happen with a StringReader
+        }
+    }
+
+    /**
+     * @param reader The content of a CODEOWNERS file. This is NOT closed.
+     * @param handler Receives all sections and rules in the order of the file.
+     * @return True if the entire content was handled, false if the content needs the ANTLR parser
+     *         (the handler may have received some entries already).
+     * @throws IOException In case of problems reading the content.
+     */
+    static boolean scan(Reader reader, Consumer<Entry> handler) throws IOException {
+        try {
+            new CodeOwnersScanner(reader).parse(handler);
+            return true;
+        } catch (NotSupported e) {
+            return false;
+        }
+    }
+
+    // ------------------------------------------
+    // The parser part: CodeOwnersParser.g4
+
+    private void parse(Consumer<Entry> handler) throws IOException {
+        nextToken();
+        while (tokenType != EOF) {
+            switch (tokenType) {
+                case OPTIONAL:
+                case SECTIONVALUE:
+                    boolean optional = tokenType == OPTIONAL;
+                    if (optional) {
+                        nextToken();
+                        if (tokenType != SECTIONVALUE) {
+                            throw NotSupported.INSTANCE;
+                        }
+                    }
+                    String sectionName = tokenText();
+                    nextToken();
+                    String approvers = null;
+                    if (tokenType == SECTIONVALUE) {
+                        approvers = tokenText();
+                        checkNumber(approvers);
+                        nextToken();
+                    }
+                    handler.accept(new Entry(true, optional, sectionName, approvers, null, userIds()));
+                    break;
+
+                case FILEEXPRESSION:
+                    String fileExpression = tokenText();
+                    nextToken();
+                    handler.accept(new Entry(false, false, null, null, fileExpression, userIds()));
+                    break;
+
+                default:
+                    // A USERID without a section or rule is a syntax error.
+                    throw NotSupported.INSTANCE;
+            }
+        }
+    }
+
+    private List<String> userIds() throws IOException {
+        List<String> userIds = new ArrayList<>();
+        while (tokenType == USERID) {
+            userIds.add(tokenText());
+            nextToken();
+        }
+        return userIds;
+    }
+
+    private static void checkNumber(String approvers) {
+        try {
+            Integer.parseInt(approvers.trim());
+        } catch (NumberFormatException e) {
+            throw NotSupported.INSTANCE; // Let the normal loader fail in the normal way
+        }
+    }
+
+    private String tokenText() {
+        return buffer.substring(tokenStart, tokenEnd);
+    }
+
+    // ------------------------------------------
+    // The lexer part: CodeOwnersLexer.g4
+
+    private void nextToken() throws IOException {
+        while (true) {
+            if (pos == length) {
+                // The previous line has been fully handled.
+                buffer.setLength(0);
+                length = 0;
+                pos = 0;
+                if (!readLine()) {
+                    setToken(EOF, pos, pos);
+                    return;
+                }
+            }
+            char c = buffer.charAt(pos);
+
+            // SPACES and NEWLINE are skipped
+            if (isSpace(c) || c == '\n' || c == '\r') {
+                pos++;
+                continue;
+            }
+
+            switch (c) {
+                case '^':
+                    setToken(OPTIONAL, pos, pos + 1);
+                    return;
+
+                case '[':
+                    // BLOCKOPEN is on the hidden channel and switches to the SECTION_MODE
+                    pos++;
+                    while (pos < length && isSpace(buffer.charAt(pos))) {
+                        pos++;
+                    }
+                    // A section value can (in theory) span multiple lines
+                    int blockClose = buffer.indexOf("]", pos);
+                    while (blockClose < 0) {
+                        int searchFrom = length;
+                        if (!readLine()) {
+                            throw NotSupported.INSTANCE;
+                        }
+                        blockClose = buffer.indexOf("]", searchFrom);
+                    }
+                    // SECTIONVALUE is the longest match (everything up to the ']') unless that is only spaces (BLOCKCLOSE)
+                    int valueStart = pos;
+                    boolean onlySpaces = true;
+                    for (int i = valueStart; i < blockClose; i++) {
+                        if (!isSpace(buffer.charAt(i))) {
+                            onlySpaces = false;
+                            break;
+                        }
+                    }
+                    pos = blockClose + 1;
+                    if (onlySpaces) {
+                        continue; // Only hidden tokens
+                    }
+                    tokenType = SECTIONVALUE;
+                    tokenStart = valueStart;
+                    tokenEnd = blockClose;
+                    return;
+
+                case '#':
+                    // COMMENT is skipped but MUST end with an EOL (only the last line of the file can be without one)
+                    int endOfLine = pos;
+                    while (endOfLine < length && buffer.charAt(endOfLine) != '\n' && buffer.charAt(endOfLine) != '\r') {
+                        endOfLine++;
+                    }
+                    if (endOfLine == length) {
+                        throw NotSupported.INSTANCE;
+                    }
+                    pos = endOfLine;
+                    continue;
+
+                default:
+                    int userIdEnd = matchUserId(pos);
+                    int fileExpressionEnd = matchFileExpression(pos);
+                    if (userIdEnd == pos && fileExpressionEnd == pos) {
+                        throw NotSupported.INSTANCE; // Token recognition error
+                    }
+                    // The longest match wins; they can never have the same length.
+                    if (userIdEnd > fileExpressionEnd) {
+                        setToken(USERID, pos, userIdEnd);
+                    } else {
+                        setToken(FILEEXPRESSION, pos, fileExpressionEnd);
+                    }
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Appends the next line (including the line terminator) to the buffer.
+     * @return false if there is nothing left to read.
+     */
+    private boolean readLine() throws IOException {
+        boolean readAnything = false;
+        while (true) {
+            if (chunkPos == chunkLength && !readChunk()) {
+                return readAnything;
+            }
+            char c = chunk[chunkPos++];
+            buffer.append(c);
+            length++;
+            readAnything = true;
+            if (c == '\n') {
+                return true;
+            }
+            if (c == '\r') {
+                // A '\r\n' is a single line terminator.
+                if ((chunkPos < chunkLength || readChunk()) && chunk[chunkPos] == '\n') {
+                    chunkPos++;
+                    buffer.append('\n');
+                    length++;
+                }
+                return true;
+            }
+        }
+    }
+
+    private boolean readChunk() throws IOException {
+        int read;
+        do {
+            read = reader.read(chunk, 0, CHUNK_SIZE);
+        } while (read == 0);
+        if (read < 0) {
+            chunkPos = 0;
+            chunkLength = 0;
+            return false;
+        }
+        chunkPos = 0;
+        chunkLength = read;
+        return true;
+    }
+
+    private void setToken(int type, int start, int end) {
+        tokenType = type;
+        tokenStart = start;
+        tokenEnd = end;
+        pos = end;
+    }
+
+    // fragment SPACE : (' '| '\u2002' | '\u0220' |'\t'|'+')
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\u2002' || c == '\u0220' || c == '\t' || c == '+';
+    }
+
+    private static boolean isAlphaNumeric(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    // [a-zA-Z0-9_-]
+    private static boolean isNameChar(char c) {
+        return isAlphaNumeric(c) || c == '_' || c == '-';
+    }
+
+    // [a-zA-Z0-9._-]
+    private static boolean isDomainChar(char c) {
+        return isNameChar(c) || c == '.';
+    }
+
+    // [a-zA-Z0-9/._-]
+    private static boolean isUserChar(char c) {
+        return isDomainChar(c) || c == '/';
+    }
+
+    // [a-zA-Z0-9/*_.-]
+    private static boolean isFileExpressionChar(char c) {
+        return isUserChar(c) || c == '*';
+    }
+
+    private int skipWhile(int from, CharTest test) {
+        int i = from;
+        while (i < length && test.matches(buffer.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    @FunctionalInterface
+    private interface CharTest {
+        boolean matches(char c);
+    }
+
+    /**
+     * USERID
+     *     : '@'  [a-zA-Z0-9/._-]+ EOL?               // A username or groupname
+     *     | '@@' [a-zA-Z0-9_-]+ EOL?                 // A role name
+     *     | [a-zA-Z0-9_-]+ '@' [a-zA-Z0-9._-]+ EOL?  // An email address
+     *     ;
+     * @return The end of the longest match (== start if no match)
+     */
+    private int matchUserId(int start) {
+        int end = start;
+        if (buffer.charAt(start) == '@') {
+            int user = skipWhile(start + 1, CodeOwnersScanner::isUserChar);
+            if (user > start + 1) {
+                end = user;
+            }
+            if (start + 1 < length && buffer.charAt(start + 1) == '@') {
+                int role = skipWhile(start + 2, CodeOwnersScanner::isNameChar);
+                if (role > start + 2) {
+                    end = Math.max(end, role);
+                }
+            }
+        } else {
+            int name = skipWhile(start, CodeOwnersScanner::isNameChar);
+            if (name > start && name < length && buffer.charAt(name) == '@') {
+                int domain = skipWhile(name + 1, CodeOwnersScanner::isDomainChar);
+                if (domain > name + 1) {
+                    end = domain;
+                }
+            }
+        }
+        if (end == start) {
+            return start;
+        }
+        // EOL? : '\r'? '\n' | '\r'
+        if (end < length && buffer.charAt(end) == '\r') {
+            end++;
+            if (end < length && buffer.charAt(end) == '\n') {
+                end++;
+            }
+        } else if (end < length && buffer.charAt(end) == '\n') {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * FILEEXPRESSION : ('\\ '|'\\#'|[a-zA-Z0-9/*_.-])+ ;
+     * @return The end of the longest match (== start if no match)
+     */
+    private int matchFileExpression(int start) {
+        int i = start;
+        while (i < length) {
+            char c = buffer.charAt(i);
+            if (c == '\\' && i + 1 < length && (buffer.charAt(i + 1) == ' ' || buffer.charAt(i + 1) == '#')) {
+                i += 2;
+            } else if (isFileExpressionChar(c)) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static final class NotSupported extends RuntimeException {
+        private static final NotSupported INSTANCE = new NotSupported();
+
+        private NotSupported() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static nl.basjes.codeowners.CodeOwners.LOG;
+
+/**
+ * A precompiled binary form of a loaded CODEOWNERS file.
+ * <p>
+ * The snapshot contains all merged sections and rules and the compiled automata used for matching.
+ * Restoring it is a single read of the file without any parsing.
+ * The snapshot also contains the SHA-256 of the CODEOWNERS file it was made from and the version of this library
+ * (the regexes and automata may differ between versions) so a stale snapshot is detected and automatically replaced.
+ */
+public final class CodeOwnersSnapshot {
+
+    private static final int MAGIC = 0x434F5753; // "COWS"
+
+    // Must be increased on any change in the layout.
+    private static final int FORMAT_VERSION = 2;
+
+    // Any other build may compile the rules differently so its snapshots are stale.
+    static final String LIBRARY_VERSION = determineLibraryVersion();
+
+    // Protection against reading a damaged snapshot.
+    private static final int MAX_LENGTH = 1 << 24;
+
+    private CodeOwnersSnapshot() {
+    }
+
+    /**
+     * @return The version of this library; for a SNAPSHOT version including the time of the build.
+     * If this is unknown (i.e. the resource was not filtered) a value that is unique for this JVM.
+     */
+    private static String determineLibraryVersion() {
+        Properties properties = new Properties();
+        try (InputStream inputStream = CodeOwnersSnapshot.class.getResourceAsStream("codeowners-reader.properties")) {
+            if (inputStream != null) {
+                properties.load(inputStream);
+            }
+        } catch (IOException e) {
+            LOG.warn("Unable to determine the version of the codeowners-reader: {}", e.getMessage());
+        }
+        String version = properties.getProperty("version", "");
+        String buildTimestamp = properties.getProperty("buildTimestamp", "");
+        if (version.isEmpty() || version.contains("${") || buildTimestamp.contains("${")) {
+            return "Unknown " + UUID.randomUUID();
+        }
+        return version.endsWith("-SNAPSHOT") ? version + " " + buildTimestamp : version;
+    }
+
+    /**
+     * Load the CODEOWNERS file via the snapshot.
+     * If the snapshot is missing, damaged or made from a different CODEOWNERS file then the CODEOWNERS file
+     * is parsed and a new snapshot is written. Failing to write the snapshot is logged and otherwise ignored.
+     * @param codeOwnersFile The CODEOWNERS file
+     * @param snapshotFile The snapshot of this CODEOWNERS file
+     * @return The CodeOwners
+     * @throws IOException If the CODEOWNERS file cannot be read.
+     */
+    public static CodeOwners load(Path codeOwnersFile, Path snapshotFile) throws IOException {
+        byte[] content = Files.readAllBytes(codeOwnersFile);
+        byte[] contentHash = sha256(content);
+
+        try {
+            CodeOwners codeOwners = fromBytes(Files.readAllBytes(snapshotFile), contentHash);
+            if (codeOwners != null) {
+                return codeOwners;
+            }
+            LOG.info("The CODEOWNERS snapshot {} is outdated.", snapshotFile);
+        } catch (NoSuchFileException e) {
+            LOG.info("The CODEOWNERS snapshot {} does not exist.", snapshotFile);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable to read the CODEOWNERS snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+
+        CodeOwners codeOwners = new CodeOwners(new String(content, UTF_8));
+        try {
+            writeAtomically(snapshotFile, toBytes(codeOwners, contentHash));
+        } catch (IOException e) {
+            LOG.warn("Unable to write the CODEOWNERS snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+        return codeOwners;
+    }
+
+    /**
+     * Parse the CODEOWNERS file and write the snapshot.
+     * @param codeOwnersFile The CODEOWNERS file
+     * @param snapshotFile The snapshot of this CODEOWNERS file
+     * @return The CodeOwners
+     * @throws IOException In case of problems.
+     */
+    public static CodeOwners write(Path codeOwnersFile, Path snapshotFile) throws IOException {
+        byte[] content = Files.readAllBytes(codeOwnersFile);
+        CodeOwners codeOwners = new CodeOwners(new String(content, UTF_8));
+        writeAtomically(snapshotFile, toBytes(codeOwners, sha256(content)));
+        return codeOwners;
+    }
+
+    private static void writeAtomically(Path snapshotFile, byte[] snapshot) throws IOException {
+        Path directory = snapshotFile.toAbsolutePath().getParent();
+        Path tempFile = Files.createTempFile(directory, snapshotFile.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tempFile, snapshot);
+            try {
+                Files.move(tempFile, snapshotFile, ATOMIC_MOVE, REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, snapshotFile, REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Every Java implementation must support SHA-256", e);
+        }
+    }
+
+    // ------------------------------------------
+
+    static byte[] toBytes(CodeOwners codeOwners, byte[] contentHash) throws IOException {
+        return toBytes(codeOwners, contentHash, LIBRARY_VERSION);
+    }
+
+    static byte[] toBytes(CodeOwners codeOwners, byte[] contentHash, String libraryVersion) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, libraryVersion);
+            out.writeInt(contentHash.length);
+            out.write(contentHash);
+            out.writeBoolean(codeOwners.hasStructuralProblems());
+
+            Map<String, Section> sections = codeOwners.getSections();
+            out.writeInt(sections.size());
+            for (Map.Entry<String, Section> entry : sections.entrySet()) {
+                Section section = entry.getValue();
+                writeString(out, entry.getKey());
+                writeString(out, section.getName());
+                out.writeBoolean(section.isOptional());
+                out.writeInt(section.getMinimalNumberOfApprovers());
+                writeStrings(out, section.getDefaultApprovers());
+
+                List<ApprovalRule> approvalRules = section.getApprovalRules();
+                out.writeInt(approvalRules.size());
+                for (ApprovalRule approvalRule : approvalRules) {
+                    writeString(out, approvalRule.getFileExpression());
+                    writeString(out, approvalRule.getFileRegex());
+                    writeStrings(out, approvalRule.getApprovers());
+                }
+
+                RuleIndex ruleIndex = section.getRuleIndex();
+                GlobAutomaton automaton = ruleIndex.getAutomaton();
+                out.writeBoolean(automaton != null);
+                if (automaton != null) {
+                    automaton.writeTo(out);
+                }
+                int[] regexRules = ruleIndex.getRegexRules();
+                out.writeInt(regexRules.length);
+                for (int regexRule : regexRules) {
+                    out.writeInt(regexRule);
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param snapshot The snapshot
+     * @param expectedContentHash The hash of the current CODEOWNERS file
+     * @return The CodeOwners, or null if the snapshot was made from a different CODEOWNERS file, with a different format
+     *         or by a different version of this library.
+     * @throws IOException If the snapshot is damaged.
+     */
+    static CodeOwners fromBytes(byte[] snapshot, byte[] expectedContentHash) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a CODEOWNERS snapshot");
+        }
+        if (in.readInt() != FORMAT_VERSION) {
+            return null;
+        }
+        if (!readString(in).equals(LIBRARY_VERSION)) {
+            return null;
+        }
+        byte[] contentHash = new byte[readLength(in)];
+        in.readFully(contentHash);
+        if (!Arrays.equals(contentHash, expectedContentHash)) {
+            return null;
+        }
+        boolean hasStructuralProblems = in.readBoolean();
+
+        int numberOfSections = readLength(in);
+        Map<String, Section> sections = new LinkedHashMap<>();
+        for (int sectionNr = 0; sectionNr < numberOfSections; sectionNr++) {
+            String key = readString(in);
+            String name = readString(in);
+            boolean optional = in.readBoolean();
+            int minimalNumberOfApprovers = in.readInt();
+            List<String> defaultApprovers = readStrings(in);
+
+            int numberOfRules = readLength(in);
+            List<ApprovalRule> approvalRules = new ArrayList<>(numberOfRules);
+            for (int ruleNr = 0; ruleNr < numberOfRules; ruleNr++) {
+                String fileExpression = readString(in);
+                String fileRegex = readString(in);
+                approvalRules.add(new ApprovalRule(fileExpression, readStrings(in), fileRegex));
+            }
+
+            GlobAutomaton automaton = in.readBoolean() ? GlobAutomaton.readFrom(in) : null;
+            int[] regexRules = new int[readLength(in)];
+            for (int i = 0; i < regexRules.length; i++) {
+                regexRules[i] = in.readInt();
+            }
+
+            RuleIndex ruleIndex = new RuleIndex(approvalRules, automaton, regexRules);
+            sections.put(key, new Section(name, optional, minimalNumberOfApprovers, defaultApprovers, approvalRules, ruleIndex));
+        }
+        if (in.read() != -1) {
+            throw new IOException("Unexpected data at the end of the snapshot");
+        }
+        return new CodeOwners(sections, hasStructuralProblems);
+    }
+
+    // ------------------------------------------
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readLength(in)];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int size = readLength(in);
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IOException("Invalid length " + length + " in the snapshot");
+        }
+        return length;
+    }
+}
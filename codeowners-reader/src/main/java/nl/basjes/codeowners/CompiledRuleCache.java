@@ -0,0 +1,114 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A process wide cache of the converted CODEOWNERS rules.
+ * <p>
+ * The same file expressions (like "*.md" or "docs/") often occur in many sections and many CODEOWNERS files.
+ * All rules with the same file expression share a single regex.
+ * Only the regex is cached because the Pattern is rarely needed (normally the RuleIndex does all matching);
+ * each ApprovalRule compiles it when it is first needed.
+ * The cache is bounded; when full the least recently used entry is evicted.
+ */
+public final class CompiledRuleCache {
+
+    /**
+     * The maximum number of converted rules that are retained.
+     */
+    public static final int MAXIMUM_SIZE = 10_000;
+
+    private static final Map<String, String> CACHE = new LinkedHashMap<String, String>(1024, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAXIMUM_SIZE;
+        }
+    };
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private CompiledRuleCache() {
+    }
+
+    /**
+     * @param fileExpression The (trimmed) expression as it was found in the CODEOWNERS file.
+     * @param converter Converts the rule into a regex if it is not in the cache. Exceptions are passed on and nothing is cached.
+     * @return The (possibly shared) regex of the rule.
+     */
+    static String get(String fileExpression, Function<String, String> converter) {
+        String key = fileExpression;
+        String fileRegex;
+        synchronized (CACHE) {
+            fileRegex = CACHE.get(key);
+        }
+        if (fileRegex != null) {
+            HITS.incrementAndGet();
+            return fileRegex;
+        }
+        MISSES.incrementAndGet();
+
+        // Converted outside the lock; if two threads do this at the same time the first one wins.
+        fileRegex = converter.apply(fileExpression);
+        synchronized (CACHE) {
+            String existing = CACHE.putIfAbsent(key, fileRegex);
+            return existing == null ? fileRegex : existing;
+        }
+    }
+
+    /**
+     * @return The number of times a rule was found in the cache.
+     */
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    /**
+     * @return The number of times a rule had to be converted.
+     */
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    /**
+     * @return The number of converted rules currently in the cache.
+     */
+    public static int size() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    /**
+     * Remove all converted rules and reset the hit and miss counters.
+     */
+    public static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+            HITS.set(0);
+            MISSES.set(0);
+        }
+    }
+}
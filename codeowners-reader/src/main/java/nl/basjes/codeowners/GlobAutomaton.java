@@ -0,0 +1,842 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A linear time, non-backtracking matcher for the file expressions of the approval rules.
+ * <p>
+ * An {@link ApprovalRule} translates the glob style file expression into a (very limited) regular expression.
+ * That regular expression is compiled here into an NFA which is lazily turned into a DFA while matching.
+ * So every character of a filename is looked at exactly once and there is no backtracking at all.
+ * <p>
+ * The outcome is the same as {@code Pattern.compile(regex).matcher(filename).find()}.
+ * Only the constructs the glob translation produces are supported
+ * (literals, escaped literals, {@code .}, {@code [^/]}, groups, alternation, {@code * + ?}, {@code ^} and {@code $}).
+ * For anything else {@link Builder#add(int, String)} returns false and the caller must use the regex.
+ * <p>
+ * Note that {@code $} is treated as "end of the filename"; filenames never end with a line terminator.
+ */
+final class GlobAutomaton {
+
+    // The kinds of states in the NFA
+    private static final int CHAR  = 0; // Consumes one character that passes the test in 'arg'
+    private static final int SPLIT = 1; // Epsilon transitions to both out1 and out2
+    private static final int EMPTY = 2; // Epsilon transition to out1
+    private static final int BOL   = 3; // Epsilon transition to out1 that is only allowed at the start of the input
+    private static final int EOL   = 4; // Epsilon transition to out1 that is only allowed at the end of the input
+    private static final int MATCH = 5; // The expression with id 'arg' has matched. Once reached this is never left.
+
+    // The character tests of a CHAR state (an arg >= 0 means exactly that character)
+    private static final int ANY_CHAR  = -1; // The regex '.'  : anything except a line terminator
+    private static final int NOT_SLASH = -2; // The regex [^/] : anything except a '/'
+
+    // The line terminators that are NOT matched by the regex '.'
+    private static final char[] LINE_TERMINATORS = {'\n', '\r', '\u0085', '\u2028', '\u2029'};
+
+    // Beyond this many DFA states the new states are no longer cached (to keep the memory use bounded).
+    private static final int MAX_CACHED_STATES = 10_000;
+
+    // Beyond this many DFA states the search for expressions that match all names in a directory is given up.
+    private static final int MAX_EXPLORED_STATES = 1_000;
+
+    // Protection against reading a damaged serialized automaton.
+    private static final int MAX_SERIALIZED_LENGTH = 1 << 24;
+
+    private final int[] kind;
+    private final int[] arg;
+    private final int[] out1;
+    private final int[] out2;
+    private final int   words;
+
+    // The NFA states where an expression can start matching.
+    // Because of the 'find' semantics a floating start is retried at every position of the input.
+    private final int[] floatingStarts;
+    private final int[] anchoredStarts;
+    private final int   highestId;
+
+    // All characters are mapped onto a small set of character classes.
+    // Class 0 is the class of all characters that are not mentioned in any of the expressions.
+    private final int[]  asciiClasses;
+    private final char[] nonAsciiChars; // Sorted
+    private final int[]  nonAsciiClasses;
+    private final int    numberOfClasses;
+    // For each character class the set of CHAR states that accept it.
+    private final long[][] classAccepts;
+
+    private final Map<State, State> cachedStates = new ConcurrentHashMap<>();
+    private final State start;
+
+    private GlobAutomaton(Builder builder) {
+        int size = builder.size;
+        kind = Arrays.copyOf(builder.kind, size);
+        arg  = Arrays.copyOf(builder.arg,  size);
+        out1 = Arrays.copyOf(builder.out1, size);
+        out2 = Arrays.copyOf(builder.out2, size);
+        words = Math.max(1, (size + 63) / 64);
+        floatingStarts = Arrays.copyOf(builder.floatingStarts, builder.floatingCount);
+        anchoredStarts = Arrays.copyOf(builder.anchoredStarts, builder.anchoredCount);
+        highestId = builder.highestId;
+
+        // Determine the character classes
+        TreeSet<Character> relevantChars = new TreeSet<>();
+        relevantChars.add('/');
+        for (char lineTerminator : LINE_TERMINATORS) {
+            relevantChars.add(lineTerminator);
+        }
+        for (int state = 0; state < size; state++) {
+            if (kind[state] == CHAR && arg[state] >= 0) {
+                relevantChars.add((char) arg[state]);
+            }
+        }
+
+        numberOfClasses = relevantChars.size() + 1;
+        char[] classChars = new char[numberOfClasses]; // classChars[0] is unused
+        asciiClasses = new int[128];
+        int nonAsciiCount = (int) relevantChars.stream().filter(c -> c >= 128).count();
+        nonAsciiChars = new char[nonAsciiCount];
+        nonAsciiClasses = new int[nonAsciiCount];
+        int charClass = 1;
+        int nonAsciiIndex = 0;
+        for (char relevantChar : relevantChars) {
+            classChars[charClass] = relevantChar;
+            if (relevantChar < 128) {
+                asciiClasses[relevantChar] = charClass;
+            } else {
+                nonAsciiChars[nonAsciiIndex] = relevantChar;
+                nonAsciiClasses[nonAsciiIndex] = charClass;
+                nonAsciiIndex++;
+            }
+            charClass++;
+        }
+
+        classAccepts = new long[numberOfClasses][words];
+        for (int state = 0; state < size; state++) {
+            if (kind[state] != CHAR) {
+                continue;
+            }
+            for (int cls = 0; cls < numberOfClasses; cls++) {
+                if (accepts(arg[state], cls, classChars[cls])) {
+                    classAccepts[cls][state >>> 6] |= 1L << state;
+                }
+            }
+        }
+
+        long[] startStates = new long[words];
+        for (int state : anchoredStarts) {
+            set(startStates, state);
+        }
+        for (int state : floatingStarts) {
+            set(startStates, state);
+        }
+        closure(startStates, true, false);
+        start = intern(new State(startStates));
+    }
+
+    private static boolean accepts(int test, int cls, char classChar) {
+        if (cls == 0) {
+            // A character that is not mentioned anywhere.
+            return test < 0;
+        }
+        switch (test) {
+            case ANY_CHAR:
+                return !isLineTerminator(classChar);
+            case NOT_SLASH:
+                return classChar != '/';
+            default:
+                return test == classChar;
+        }
+    }
+
+    private static boolean isLineTerminator(char c) {
+        for (char lineTerminator : LINE_TERMINATORS) {
+            if (c == lineTerminator) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int classOf(char c) {
+        if (c < 128) {
+            return asciiClasses[c];
+        }
+        int index = Arrays.binarySearch(nonAsciiChars, c);
+        return index < 0 ? 0 : nonAsciiClasses[index];
+    }
+
+    /**
+     * @return The highest id of all expressions in this automaton.
+     */
+    int getHighestId() {
+        return highestId;
+    }
+
+    /**
+     * @return The ids of all expressions in this automaton.
+     */
+    BitSet getIds() {
+        BitSet ids = new BitSet();
+        for (int state = 0; state < kind.length; state++) {
+            if (kind[state] == MATCH) {
+                ids.set(arg[state]);
+            }
+        }
+        return ids;
+    }
+
+    // ------------------------------------------
+
+    /**
+     * Write the NFA so it can be restored with {@link #readFrom(DataInput)} without parsing the expressions again.
+     * @param out Where to write to
+     * @throws IOException In case of problems.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        writeInts(out, kind);
+        writeInts(out, arg);
+        writeInts(out, out1);
+        writeInts(out, out2);
+        writeInts(out, floatingStarts);
+        writeInts(out, anchoredStarts);
+        out.writeInt(highestId);
+    }
+
+    /**
+     * @param in Where to read the NFA from (as written by {@link #writeTo(DataOutput)}).
+     * @return The automaton
+     * @throws IOException In case of problems.
+     */
+    static GlobAutomaton readFrom(DataInput in) throws IOException {
+        Builder builder = new Builder();
+        builder.kind = readInts(in);
+        builder.arg  = readInts(in);
+        builder.out1 = readInts(in);
+        builder.out2 = readInts(in);
+        builder.size = builder.kind.length;
+        builder.floatingStarts = readInts(in);
+        builder.floatingCount  = builder.floatingStarts.length;
+        builder.anchoredStarts = readInts(in);
+        builder.anchoredCount  = builder.anchoredStarts.length;
+        builder.highestId = in.readInt();
+        int size = builder.size;
+        if (builder.arg.length != size || builder.out1.length != size || builder.out2.length != size) {
+            throw new IOException("Invalid automaton: inconsistent number of states");
+        }
+        int highestMatchId = -1;
+        for (int state = 0; state < size; state++) {
+            if (builder.kind[state] < CHAR || builder.kind[state] > MATCH ||
+                builder.out1[state] < -1 || builder.out1[state] >= size ||
+                builder.out2[state] < -1 || builder.out2[state] >= size ||
+                (builder.kind[state] == MATCH && builder.arg[state] < 0)) {
+                throw new IOException("Invalid automaton: bad state " + state);
+            }
+            if (builder.kind[state] == MATCH) {
+                highestMatchId = Math.max(highestMatchId, builder.arg[state]);
+            }
+        }
+        if (builder.highestId != highestMatchId) {
+            throw new IOException("Invalid automaton: bad highest id " + builder.highestId);
+        }
+        for (int state : Fragment.concat(builder.floatingStarts, builder.anchoredStarts)) {
+            if (state < 0 || state >= size) {
+                throw new IOException("Invalid automaton: bad start state " + state);
+            }
+        }
+        return builder.build();
+    }
+
+    private static void writeInts(DataOutput out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_SERIALIZED_LENGTH) {
+            throw new IOException("Invalid automaton: bad length " + length);
+        }
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    /**
+     * @param input The string to search in.
+     * @return True if any of the expressions was found in the input.
+     */
+    boolean matches(CharSequence input) {
+        return lastMatch(input) >= 0;
+    }
+
+    /**
+     * @param input The string to search in.
+     * @return The highest id of all expressions that were found in the input, -1 if none was found.
+     */
+    int lastMatch(CharSequence input) {
+        State state = start;
+        int length = input.length();
+        for (int i = 0; i < length && !state.decided; i++) {
+            char c = input.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(input.charAt(i + 1))) {
+                // Like the regex engine a surrogate pair is a single (unmentioned) character.
+                i++;
+                state = next(state, 0);
+            } else {
+                state = next(state, classOf(c));
+            }
+        }
+        return state.matchedAtEnd;
+    }
+
+    /**
+     * @param prefix The start of the input.
+     * @return The highest id of all expressions that were found in the prefix (and thus in ANY input that starts
+     * with this prefix), -1 if none was found.
+     */
+    int lastPrefixMatch(CharSequence prefix) {
+        State state = start;
+        int length = prefix.length();
+        for (int i = 0; i < length && !state.decided; i++) {
+            char c = prefix.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(prefix.charAt(i + 1))) {
+                i++;
+                state = next(state, 0);
+            } else {
+                state = next(state, classOf(c));
+            }
+        }
+        return state.matched;
+    }
+
+    /**
+     * Determine which expressions match every file directly in a directory without knowing the name of the file.
+     * All DFA states that can be reached with any name (without a '/' or a line terminator) are checked.
+     * @param directory The directory (ending with a '/').
+     * @return The highest id of all expressions that match the directory followed by ANY name,
+     * -1 if there is none or if it is too complex to determine.
+     */
+    int lastMatchForAllNames(CharSequence directory) {
+        State state = start;
+        int length = directory.length();
+        for (int i = 0; i < length; i++) {
+            char c = directory.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(directory.charAt(i + 1))) {
+                i++;
+                state = next(state, 0);
+            } else {
+                state = next(state, classOf(c));
+            }
+        }
+
+        boolean[] nameClasses = new boolean[numberOfClasses];
+        Arrays.fill(nameClasses, true);
+        nameClasses[classOf('/')] = false;
+        for (char lineTerminator : LINE_TERMINATORS) {
+            nameClasses[classOf(lineTerminator)] = false;
+        }
+
+        // A name has at least one character.
+        Set<State> seen = new HashSet<>();
+        Deque<State> todo = new ArrayDeque<>();
+        for (int charClass = 0; charClass < numberOfClasses; charClass++) {
+            if (nameClasses[charClass]) {
+                todo.push(next(state, charClass));
+            }
+        }
+        BitSet matchingAll = null;
+        while (!todo.isEmpty()) {
+            State current = todo.pop();
+            if (!seen.add(current)) {
+                continue;
+            }
+            if (seen.size() > MAX_EXPLORED_STATES) {
+                return -1;
+            }
+            BitSet matching = idsMatchedAtEnd(current.nfaStates);
+            if (matchingAll == null) {
+                matchingAll = matching;
+            } else {
+                matchingAll.and(matching);
+            }
+            if (matchingAll.isEmpty()) {
+                return -1;
+            }
+            for (int charClass = 0; charClass < numberOfClasses; charClass++) {
+                if (nameClasses[charClass]) {
+                    todo.push(next(current, charClass));
+                }
+            }
+        }
+        return matchingAll == null ? -1 : matchingAll.length() - 1;
+    }
+
+    private BitSet idsMatchedAtEnd(long[] nfaStates) {
+        long[] atEnd = nfaStates.clone();
+        closure(atEnd, false, true);
+        BitSet ids = new BitSet();
+        for (int word = 0; word < words; word++) {
+            long bits = atEnd[word];
+            while (bits != 0) {
+                int state = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (kind[state] == MATCH) {
+                    ids.set(arg[state]);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private State next(State from, int charClass) {
+        State to = from.next[charClass];
+        if (to != null) {
+            return to;
+        }
+        to = intern(new State(step(from.nfaStates, charClass)));
+        if (to.cached) {
+            // This may race with another thread; either outcome is valid.
+            from.next[charClass] = to;
+        }
+        return to;
+    }
+
+    private State intern(State state) {
+        State existing = cachedStates.get(state);
+        if (existing != null) {
+            return existing;
+        }
+        if (cachedStates.size() >= MAX_CACHED_STATES) {
+            return state;
+        }
+        existing = cachedStates.putIfAbsent(state, state);
+        if (existing != null) {
+            return existing;
+        }
+        state.cached = true;
+        return state;
+    }
+
+    private long[] step(long[] current, int charClass) {
+        long[] result = new long[words];
+        long[] accepting = classAccepts[charClass];
+        for (int word = 0; word < words; word++) {
+            long bits = current[word];
+            while (bits != 0) {
+                int state = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (kind[state] == MATCH) {
+                    set(result, state);
+                } else if ((accepting[word] & (1L << state)) != 0) {
+                    set(result, out1[state]);
+                }
+            }
+        }
+        for (int state : floatingStarts) {
+            set(result, state);
+        }
+        closure(result, false, false);
+        return result;
+    }
+
+    private void closure(long[] states, boolean atStart, boolean atEnd) {
+        int[] todo = new int[kind.length + 1];
+        int todoSize = 0;
+        for (int word = 0; word < words; word++) {
+            long bits = states[word];
+            while (bits != 0) {
+                todo[todoSize++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        while (todoSize > 0) {
+            int state = todo[--todoSize];
+            switch (kind[state]) {
+                case SPLIT:
+                    todoSize = follow(states, out1[state], todo, todoSize);
+                    todoSize = follow(states, out2[state], todo, todoSize);
+                    break;
+                case EMPTY:
+                    todoSize = follow(states, out1[state], todo, todoSize);
+                    break;
+                case BOL:
+                    if (atStart) {
+                        todoSize = follow(states, out1[state], todo, todoSize);
+                    }
+                    break;
+                case EOL:
+                    if (atEnd) {
+                        todoSize = follow(states, out1[state], todo, todoSize);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static int follow(long[] states, int target, int[] todo, int todoSize) {
+        if (isSet(states, target)) {
+            return todoSize;
+        }
+        set(states, target);
+        todo[todoSize] = target;
+        return todoSize + 1;
+    }
+
+    private static void set(long[] states, int state) {
+        states[state >>> 6] |= 1L << state;
+    }
+
+    private static boolean isSet(long[] states, int state) {
+        return (states[state >>> 6] & (1L << state)) != 0;
+    }
+
+    private int highestMatch(long[] states) {
+        int result = -1;
+        for (int word = 0; word < words; word++) {
+            long bits = states[word];
+            while (bits != 0) {
+                int state = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (kind[state] == MATCH) {
+                    result = Math.max(result, arg[state]);
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean onlyMatchStates(long[] states) {
+        for (int word = 0; word < words; word++) {
+            long bits = states[word];
+            while (bits != 0) {
+                int state = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (kind[state] != MATCH) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A state of the DFA: the set of NFA states that are active.
+     */
+    private final class State {
+        private final long[]  nfaStates;
+        private final int     hash;
+        // The highest id that has matched regardless of what follows
+        private final int     matched;
+        // The highest id that has matched if the input ends here
+        private final int     matchedAtEnd;
+        // Nothing that follows can change the outcome anymore
+        private final boolean decided;
+        private final State[] next;
+        private boolean       cached = false;
+
+        State(long[] nfaStates) {
+            this.nfaStates = nfaStates;
+            this.hash = Arrays.hashCode(nfaStates);
+            this.matched = highestMatch(nfaStates);
+            long[] atEnd = nfaStates.clone();
+            closure(atEnd, false, true);
+            this.matchedAtEnd = highestMatch(atEnd);
+            this.decided = matched == highestId || (floatingStarts.length == 0 && onlyMatchStates(nfaStates));
+            this.next = new State[numberOfClasses];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof State && Arrays.equals(nfaStates, ((State) o).nfaStates);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // ------------------------------------------
+
+    /**
+     * Collects one or more expressions into a single automaton.
+     */
+    static final class Builder {
+        private int[] kind = new int[64];
+        private int[] arg  = new int[64];
+        private int[] out1 = new int[64];
+        private int[] out2 = new int[64];
+        private int   size = 0;
+
+        private int[] floatingStarts = new int[8];
+        private int   floatingCount = 0;
+        private int[] anchoredStarts = new int[8];
+        private int   anchoredCount = 0;
+        private int   highestId = -1;
+
+        /**
+         * Add an expression to the automaton.
+         * @param id The non-negative id that is reported if this expression matches.
+         * @param regex The regular expression
+         * @return True if the expression was added, false if it uses a construct that is not supported.
+         */
+        boolean add(int id, String regex) {
+            int mark = size;
+            try {
+                Parser parser = new Parser(this, regex);
+                Fragment fragment = parser.parse();
+                int match = newState(MATCH, id);
+                fragment.patch(this, match);
+                if (kind[fragment.start] == BOL) {
+                    anchoredStarts = append(anchoredStarts, anchoredCount++, fragment.start);
+                } else {
+                    floatingStarts = append(floatingStarts, floatingCount++, fragment.start);
+                }
+                highestId = Math.max(highestId, id);
+                return true;
+            } catch (UnsupportedExpression e) {
+                size = mark; // Drop the partially built states
+                return false;
+            }
+        }
+
+        GlobAutomaton build() {
+            return new GlobAutomaton(this);
+        }
+
+        private static int[] append(int[] array, int index, int value) {
+            int[] result = index < array.length ? array : Arrays.copyOf(array, array.length * 2);
+            result[index] = value;
+            return result;
+        }
+
+        private int newState(int stateKind, int stateArg) {
+            if (size == kind.length) {
+                int newLength = kind.length * 2;
+                kind = Arrays.copyOf(kind, newLength);
+                arg  = Arrays.copyOf(arg,  newLength);
+                out1 = Arrays.copyOf(out1, newLength);
+                out2 = Arrays.copyOf(out2, newLength);
+            }
+            kind[size] = stateKind;
+            arg[size]  = stateArg;
+            out1[size] = -1;
+            out2[size] = -1;
+            return size++;
+        }
+    }
+
+    private static final class UnsupportedExpression extends RuntimeException {
+        UnsupportedExpression() {
+            super(null, null, false, false);
+        }
+    }
+
+    // A partially built piece of the NFA with a list of the not yet connected outgoing transitions.
+    // Each dangling transition is encoded as (state << 1 | (0 for out1, 1 for out2)).
+    private static final class Fragment {
+        private final int     start;
+        private final int[]   dangling;
+        private final boolean zeroWidth;
+
+        Fragment(int start, boolean zeroWidth, int... dangling) {
+            this.start = start;
+            this.dangling = dangling;
+            this.zeroWidth = zeroWidth;
+        }
+
+        void patch(Builder builder, int target) {
+            for (int slot : dangling) {
+                if ((slot & 1) == 0) {
+                    builder.out1[slot >>> 1] = target;
+                } else {
+                    builder.out2[slot >>> 1] = target;
+                }
+            }
+        }
+
+        static int[] concat(int[] left, int[] right) {
+            int[] result = Arrays.copyOf(left, left.length + right.length);
+            System.arraycopy(right, 0, result, left.length, right.length);
+            return result;
+        }
+    }
+
+    // A recursive descent parser for the supported subset of the regular expressions.
+    private static final class Parser {
+        private final Builder builder;
+        private final String regex;
+        private int pos = 0;
+
+        Parser(Builder builder, String regex) {
+            this.builder = builder;
+            this.regex = regex;
+        }
+
+        Fragment parse() {
+            Fragment fragment = parseAlternation();
+            if (pos != regex.length()) {
+                throw new UnsupportedExpression(); // Like an unbalanced ')'
+            }
+            return fragment;
+        }
+
+        private boolean atEnd() {
+            return pos >= regex.length();
+        }
+
+        private Fragment parseAlternation() {
+            Fragment left = parseConcatenation();
+            while (!atEnd() && regex.charAt(pos) == '|') {
+                pos++;
+                Fragment right = parseConcatenation();
+                int split = builder.newState(SPLIT, 0);
+                builder.out1[split] = left.start;
+                builder.out2[split] = right.start;
+                left = new Fragment(split, left.zeroWidth && right.zeroWidth, Fragment.concat(left.dangling, right.dangling));
+            }
+            return left;
+        }
+
+        private Fragment parseConcatenation() {
+            Fragment result = null;
+            while (!atEnd() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+                Fragment next = parseQuantified();
+                if (result == null) {
+                    result = next;
+                } else {
+                    result.patch(builder, next.start);
+                    result = new Fragment(result.start, result.zeroWidth && next.zeroWidth, next.dangling);
+                }
+            }
+            if (result == null) {
+                int empty = builder.newState(EMPTY, 0);
+                return new Fragment(empty, true, empty << 1);
+            }
+            return result;
+        }
+
+        private Fragment parseQuantified() {
+            Fragment atom = parseAtom();
+            if (atEnd()) {
+                return atom;
+            }
+            char quantifier = regex.charAt(pos);
+            if (quantifier == '{') {
+                throw new UnsupportedExpression();
+            }
+            if (quantifier != '*' && quantifier != '+' && quantifier != '?') {
+                return atom;
+            }
+            pos++;
+            if (atom.zeroWidth || (!atEnd() && "*+?{".indexOf(regex.charAt(pos)) >= 0)) {
+                // Quantified anchors, lazy and possessive quantifiers are not needed.
+                throw new UnsupportedExpression();
+            }
+            int split = builder.newState(SPLIT, 0);
+            builder.out1[split] = atom.start;
+            switch (quantifier) {
+                case '*':
+                    atom.patch(builder, split);
+                    return new Fragment(split, false, split << 1 | 1);
+                case '+':
+                    atom.patch(builder, split);
+                    return new Fragment(atom.start, false, split << 1 | 1);
+                default: // '?'
+                    return new Fragment(split, false, Fragment.concat(atom.dangling, new int[]{split << 1 | 1}));
+            }
+        }
+
+        private Fragment parseAtom() {
+            char c = regex.charAt(pos++);
+            if (Character.isSurrogate(c)) {
+                throw new UnsupportedExpression();
+            }
+            switch (c) {
+                case '(':
+                    if (!atEnd() && regex.charAt(pos) == '?') {
+                        throw new UnsupportedExpression(); // Special groups
+                    }
+                    Fragment inner = parseAlternation();
+                    if (atEnd() || regex.charAt(pos) != ')') {
+                        throw new UnsupportedExpression();
+                    }
+                    pos++;
+                    return inner;
+                case '.':
+                    return character(ANY_CHAR);
+                case '[':
+                    if (regex.startsWith("^/]", pos)) {
+                        pos += 3;
+                        return character(NOT_SLASH);
+                    }
+                    throw new UnsupportedExpression();
+                case '\\':
+                    if (atEnd()) {
+                        throw new UnsupportedExpression();
+                    }
+                    char escaped = regex.charAt(pos++);
+                    if (Character.isLetterOrDigit(escaped) || Character.isSurrogate(escaped)) {
+                        throw new UnsupportedExpression(); // Things like \d, \Q and back references
+                    }
+                    return character(escaped);
+                case '^':
+                    return zeroWidth(BOL);
+                case '$':
+                    return zeroWidth(EOL);
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                case '}':
+                case ']':
+                    throw new UnsupportedExpression();
+                default:
+                    return character(c);
+            }
+        }
+
+        private Fragment character(int test) {
+            int state = builder.newState(CHAR, test);
+            return new Fragment(state, false, state << 1);
+        }
+
+        private Fragment zeroWidth(int stateKind) {
+            int state = builder.newState(stateKind, 0);
+            return new Fragment(state, true, state << 1);
+        }
+    }
+}
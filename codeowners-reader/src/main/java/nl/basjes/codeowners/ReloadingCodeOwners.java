@@ -0,0 +1,229 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Holds the CodeOwners of a CODEOWNERS file and picks up any change of that file.
+ * <p>
+ * The file is polled (last modified time and size) and when it changed it is parsed again on the polling thread.
+ * The file is streamed into the parser and only a digest of the content is retained to recognize a file that was touched but not changed.
+ * Only a completely loaded CodeOwners is published so a query (via {@link #get()}) never blocks and never sees a half built state.
+ * If reloading fails, or the new content has structural problems (see {@link CodeOwners#hasStructuralProblems()}),
+ * the previous CodeOwners remains in use and the problem is reported to the {@link Listener}.
+ */
+public final class ReloadingCodeOwners implements Closeable {
+
+    /**
+     * Is informed about all reloads of the CODEOWNERS file.
+     * The methods are called from the thread that does the reloading.
+     */
+    public interface Listener {
+        /**
+         * A changed CODEOWNERS file was loaded and is now in use.
+         * @param file The CODEOWNERS file.
+         * @param codeOwners The new CodeOwners.
+         * @param reloadTime How long it took to read and parse the file.
+         */
+        default void reloaded(Path file, CodeOwners codeOwners, Duration reloadTime) {
+        }
+
+        /**
+         * A changed CODEOWNERS file could not be loaded or has structural problems; the previous CodeOwners remains in use.
+         * @param file The CODEOWNERS file.
+         * @param exception What went wrong.
+         */
+        default void reloadFailed(Path file, Exception exception) {
+        }
+    }
+
+    private final Path file;
+    private final Listener listener;
+    private final AtomicReference<CodeOwners> current = new AtomicReference<>();
+    private final ScheduledExecutorService poller;
+
+    // Only used while holding the lock on this instance.
+    private FileTime lastModified;
+    private long lastSize;
+    private byte[] lastDigest;
+
+    /**
+     * Load the CODEOWNERS file without automatic polling; call {@link #reloadIfChanged()} to pick up changes.
+     * @param file The CODEOWNERS file.
+     * @param listener Is informed about every reload.
+     * @throws IOException If the initial load fails.
+     */
+    public ReloadingCodeOwners(Path file, Listener listener) throws IOException {
+        this(file, null, listener);
+    }
+
+    /**
+     * Load the CODEOWNERS file and check for changes at a fixed interval.
+     * The initial CodeOwners is used even if it has structural problems because there is nothing to fall back to.
+     * @param file The CODEOWNERS file.
+     * @param pollInterval How often the file is checked for changes (must be positive). If null no polling is done.
+     * @param listener Is informed about every reload.
+     * @throws IOException If the initial load fails.
+     */
+    public ReloadingCodeOwners(Path file, Duration pollInterval, Listener listener) throws IOException {
+        this.file = Objects.requireNonNull(file, "The file may not be null");
+        this.listener = Objects.requireNonNull(listener, "The listener may not be null");
+        if (pollInterval != null && (pollInterval.isZero() || pollInterval.isNegative())) {
+            throw new IllegalArgumentException("The pollInterval must be positive but was " + pollInterval);
+        }
+
+        synchronized (this) {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            MessageDigest digest = newDigest();
+            current.set(load(digest));
+            lastModified = attributes.lastModifiedTime();
+            lastSize = attributes.size();
+            lastDigest = digest.digest();
+        }
+
+        if (pollInterval == null) {
+            poller = null;
+        } else {
+            poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "CodeOwners reloader for " + file);
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = pollInterval.toNanos();
+            poller.scheduleWithFixedDelay(this::reloadIfChanged, interval, interval, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @return The most recently loaded CodeOwners.
+     */
+    public CodeOwners get() {
+        return current.get();
+    }
+
+    /**
+     * @return The CODEOWNERS file that is being watched.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Check the file and if it changed load it again.
+     * Problems are reported to the listener and never thrown.
+     * @return True if a new CodeOwners was published.
+     */
+    public synchronized boolean reloadIfChanged() {
+        CodeOwners codeOwners;
+        long start = System.nanoTime();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (attributes.lastModifiedTime().equals(lastModified) && attributes.size() == lastSize) {
+                return false;
+            }
+            // A file that fails to load is only reported once.
+            lastModified = attributes.lastModifiedTime();
+            lastSize = attributes.size();
+            MessageDigest digest = newDigest();
+            codeOwners = load(digest);
+            byte[] contentDigest = digest.digest();
+            if (Arrays.equals(contentDigest, lastDigest)) {
+                return false; // Touched but not changed
+            }
+            if (codeOwners.hasStructuralProblems()) {
+                // The digest of the content in use is kept so going back to that content is seen as unchanged.
+                throw new IOException("The changed " + file + " has structural problems.");
+            }
+            lastDigest = contentDigest;
+        } catch (IOException | RuntimeException e) {
+            notifyListener(() -> listener.reloadFailed(file, e));
+            return false;
+        }
+        current.set(codeOwners);
+        Duration reloadTime = Duration.ofNanos(System.nanoTime() - start);
+        notifyListener(() -> listener.reloaded(file, codeOwners, reloadTime));
+        return true;
+    }
+
+    private CodeOwners load(MessageDigest digest) throws IOException {
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(file), digest);
+             Reader reader = new InputStreamReader(inputStream, UTF_8)) {
+            // With syntax errors the file is read again for the full parser.
+            CodeOwners codeOwners = new CodeOwners(reader, file);
+            // The parsing may have stopped early; the digest must cover the entire content.
+            byte[] skipped = new byte[8192];
+            while (inputStream.read(skipped) >= 0) {
+                // Only updating the digest
+            }
+            return codeOwners;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Every Java platform must support SHA-256", e);
+        }
+    }
+
+    private void notifyListener(Runnable notification) {
+        try {
+            notification.run();
+        } catch (RuntimeException e) {
+            // A failing listener must not stop the polling.
+            CodeOwners.LOG.error("The listener of {} failed: {}", this, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stop polling the file. The last loaded CodeOwners remains available.
+     */
+    @Override
+    public void close() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReloadingCodeOwners{file=" + file + "}";
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index over all approval rules of a section to quickly find the last rule that matches a filename.
+ * <p>
+ * Most rules are of a simple form. These are put in buckets that are only probed with the parts of the filename they can match:
+ * <ul>
+ * <li>Anchored literal paths like {@code /services/billing/} or {@code /README.md}: a trie over the start of the filename.</li>
+ * <li>Literal names like {@code pom.xml} or {@code docs/}: must be equal to one of the directory or file names in the filename.</li>
+ * <li>Literal suffixes like {@code *.md} or {@code .gitignore}: must be at the end of one of the directory or file names in the filename.</li>
+ * </ul>
+ * All other rules are combined into a single {@link GlobAutomaton}.
+ * Because the rule numbers are retained the highest matching rule over all buckets is the last rule that matches.
+ * <p>
+ * The classification of a rule follows exactly what the regex (as made by the {@link ApprovalRule}) would match.
+ */
+final class RuleIndex {
+
+    private final List<ApprovalRule> approvalRules;
+
+    // Rules like "*" that match everything
+    private int matchAllRule = -1;
+    // Rules like "/services/billing/" and "/README.md"
+    private final PrefixNode prefixRoot = new PrefixNode();
+    // Rules like "pom.xml", "docs/", "*.md" and ".gitignore" stored in a trie of the REVERSED names.
+    private final NameNode nameRoot = new NameNode();
+
+    // All rules that need a real wildcard match
+    private final GlobAutomaton automaton;
+    private final int generalRules;
+    // The rules that cannot be handled by the automaton
+    private final int[] regexRules;
+
+    RuleIndex(List<ApprovalRule> approvalRules) {
+        this.approvalRules = new ArrayList<>(approvalRules);
+
+        GlobAutomaton.Builder builder = new GlobAutomaton.Builder();
+        int general = 0;
+        List<Integer> unsupported = new ArrayList<>();
+        for (int ruleIndex = 0; ruleIndex < approvalRules.size(); ruleIndex++) {
+            ApprovalRule approvalRule = approvalRules.get(ruleIndex);
+            if (addToBucket(ruleIndex, approvalRule.getFileExpression())) {
+                continue;
+            }
+            if (builder.add(ruleIndex, approvalRule.getFileRegex())) {
+                general++;
+            } else {
+                unsupported.add(ruleIndex);
+            }
+        }
+        generalRules = general;
+        automaton = general == 0 ? null : builder.build();
+        regexRules = unsupported.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Restore a RuleIndex (i.e. from a snapshot) without compiling the general rules again.
+     * @param approvalRules The rules of the section
+     * @param automaton The automaton of all general rules (as returned by {@link #getAutomaton()})
+     * @param regexRules The general rules the automaton cannot handle (as returned by {@link #getRegexRules()})
+     */
+    RuleIndex(List<ApprovalRule> approvalRules, GlobAutomaton automaton, int[] regexRules) {
+        this.approvalRules = new ArrayList<>(approvalRules);
+        BitSet automatonRules = new BitSet();
+        for (int ruleIndex = 0; ruleIndex < approvalRules.size(); ruleIndex++) {
+            if (!addToBucket(ruleIndex, approvalRules.get(ruleIndex).getFileExpression())) {
+                automatonRules.set(ruleIndex);
+            }
+        }
+        for (int i = 0; i < regexRules.length; i++) {
+            if (regexRules[i] < 0 || regexRules[i] >= approvalRules.size() || (i > 0 && regexRules[i] <= regexRules[i - 1]) ||
+                !automatonRules.get(regexRules[i])) {
+                throw new IllegalArgumentException("The regex rules do not match the rules");
+            }
+            automatonRules.clear(regexRules[i]);
+        }
+        generalRules = automatonRules.cardinality();
+        // Every id the automaton can report must be exactly one of the general rules.
+        if (automaton == null ? generalRules != 0 : !automaton.getIds().equals(automatonRules)) {
+            throw new IllegalArgumentException("The automaton does not match the rules");
+        }
+        this.automaton = automaton;
+        this.regexRules = regexRules.clone();
+    }
+
+    /**
+     * @return The automaton of all general rules, null if there are none.
+     */
+    GlobAutomaton getAutomaton() {
+        return automaton;
+    }
+
+    /**
+     * @return The indexes of the general rules that can only be matched with the regex.
+     */
+    int[] getRegexRules() {
+        return regexRules.clone();
+    }
+
+    /**
+     * @return The number of rules that are not in any of the buckets.
+     */
+    int getNumberOfGeneralRules() {
+        return generalRules + regexRules.length;
+    }
+
+    // ------------------------------------------
+
+    private static final String NOT_LITERAL = "*?\\[](){}+|^$";
+
+    private static boolean isLiteral(String expression) {
+        for (int i = 0; i < expression.length(); i++) {
+            if (NOT_LITERAL.indexOf(expression.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param fileExpression The file expression of a rule
+     * @return The fixed start (i.e. "/generated/" or "/src/ma") that all paths matched by an anchored rule
+     * (i.e. "/generated/" or "/src/ma*n/") must have, null if the rule can match paths anywhere.
+     */
+    static String anchoredPrefix(String fileExpression) {
+        // The same cleanup as is done while making the regex
+        String expression = fileExpression
+            .trim()
+            .replace("\\ ", " ")
+            .replaceAll("/+", "/");
+        if (!expression.startsWith("/")) {
+            return null;
+        }
+        int end = 0;
+        while (end < expression.length() && NOT_LITERAL.indexOf(expression.charAt(end)) < 0) {
+            end++;
+        }
+        return expression.substring(0, end);
+    }
+
+    private boolean addToBucket(int ruleIndex, String fileExpression) {
+        // The same cleanup as is done while making the regex
+        String expression = fileExpression
+            .trim()
+            .replace("\\ ", " ")
+            .replaceAll("/+", "/");
+
+        if (expression.equals("*") || expression.equals("**")) {
+            matchAllRule = ruleIndex;
+            return true;
+        }
+
+        if (expression.startsWith("*")) {
+            // "*.md" : Any name that ends with ".md"
+            String suffix = expression.substring(1);
+            return isLiteral(suffix) && addName(ruleIndex, suffix, true);
+        }
+
+        if (!isLiteral(expression)) {
+            return false;
+        }
+
+        if (expression.startsWith("/")) {
+            // "/services/billing/" : The filename must start with this
+            // "/README.md"         : The filename must be this or be in this directory
+            PrefixNode node = prefixRoot;
+            for (char c : expression.toCharArray()) {
+                node = node.children.computeIfAbsent(c, k -> new PrefixNode());
+            }
+            if (expression.endsWith("/")) {
+                node.prefixRule = ruleIndex;
+            } else {
+                node.boundedRule = ruleIndex;
+            }
+            return true;
+        }
+
+        // A leading '.' does NOT get the implicit "/**/" so it is a suffix of a name.
+        return addName(ruleIndex, expression, expression.startsWith("."));
+    }
+
+    private boolean addName(int ruleIndex, String name, boolean isSuffix) {
+        boolean isDirectory = name.endsWith("/");
+        String cleanName = isDirectory ? name.substring(0, name.length() - 1) : name;
+        if (cleanName.isEmpty() || cleanName.indexOf('/') >= 0) {
+            return false; // Multiple levels are not handled here
+        }
+        NameNode node = nameRoot;
+        for (int i = cleanName.length() - 1; i >= 0; i--) {
+            node = node.children.computeIfAbsent(cleanName.charAt(i), k -> new NameNode());
+        }
+        if (isSuffix) {
+            if (isDirectory) {
+                node.directorySuffixRule = ruleIndex;
+            } else {
+                node.suffixRule = ruleIndex;
+            }
+        } else {
+            if (isDirectory) {
+                node.directoryNameRule = ruleIndex;
+            } else {
+                node.nameRule = ruleIndex;
+            }
+        }
+        return true;
+    }
+
+    // ------------------------------------------
+
+    /**
+     * @param filename The filename to match
+     * @return The index of the last rule that matches the filename, -1 if no rule matches.
+     */
+    int lastMatchingRule(String filename) {
+        int lastMatch = lastMatchingBucketRule(filename, false);
+
+        // The general rules; only if they can still change the outcome
+        if (automaton != null && automaton.getHighestId() > lastMatch) {
+            lastMatch = Math.max(lastMatch, automaton.lastMatch(filename));
+        }
+
+        // The few rules the automaton cannot handle are checked from the last one down.
+        for (int i = regexRules.length - 1; i >= 0; i--) {
+            int ruleIndex = regexRules[i];
+            if (ruleIndex <= lastMatch) {
+                break;
+            }
+            if (approvalRules.get(ruleIndex).matches(filename)) {
+                return ruleIndex;
+            }
+        }
+        return lastMatch;
+    }
+
+    /**
+     * @param directory The directory (must start and end with a '/').
+     * @return The index of the last rule that matches ALL files in this directory and its subdirectories,
+     * -1 if no rule does that. The few rules that can only be matched with a regex are never used for this.
+     */
+    int lastRuleMatchingAllFilesUnder(String directory) {
+        int lastMatch = lastMatchingBucketRule(directory, true);
+        if (automaton != null && automaton.getHighestId() > lastMatch) {
+            lastMatch = Math.max(lastMatch, automaton.lastPrefixMatch(directory));
+        }
+        return lastMatch;
+    }
+
+    /**
+     * @param directory The directory (must start and end with a '/').
+     * @return The index of the last rule that matches ALL files directly in this directory (so not in its subdirectories),
+     * -1 if no rule does that. The few rules that can only be matched with a regex are never used for this.
+     */
+    int lastRuleMatchingAllFilesIn(String directory) {
+        int lastMatch = lastMatchingBucketRule(directory, true);
+        if (automaton != null && automaton.getHighestId() > lastMatch) {
+            lastMatch = Math.max(lastMatch, automaton.lastMatchForAllNames(directory));
+        }
+        return lastMatch;
+    }
+
+    /**
+     * @param filename The filename to match
+     * @param allFilesIn The filename is a directory (ending with a '/') and only rules that match ALL files under it count.
+     * @return The index of the last rule in the buckets that matches, -1 if no rule matches.
+     */
+    private int lastMatchingBucketRule(String filename, boolean allFilesIn) {
+        int lastMatch = matchAllRule;
+
+        int length = filename.length();
+
+        // The anchored paths
+        PrefixNode prefixNode = prefixRoot;
+        for (int i = 0; prefixNode != null; i++) {
+            lastMatch = Math.max(lastMatch, prefixNode.prefixRule);
+            if (i == length) {
+                if (!allFilesIn) {
+                    lastMatch = Math.max(lastMatch, prefixNode.boundedRule);
+                }
+                break;
+            }
+            char c = filename.charAt(i);
+            if (c == '/') {
+                lastMatch = Math.max(lastMatch, prefixNode.boundedRule);
+            }
+            prefixNode = prefixNode.children.get(c);
+        }
+
+        // The names and suffixes of all directories and the file
+        int nameStart = 0;
+        boolean afterSeparator = false;
+        while (nameStart <= length) {
+            int nameEnd = filename.indexOf('/', nameStart);
+            boolean isDirectory = nameEnd >= 0;
+            if (!isDirectory) {
+                if (allFilesIn) {
+                    break; // The name of the file is unknown
+                }
+                nameEnd = length;
+            }
+            NameNode nameNode = nameRoot;
+            for (int i = nameEnd - 1; i >= nameStart; i--) {
+                nameNode = nameNode.children.get(filename.charAt(i));
+                if (nameNode == null) {
+                    break;
+                }
+                lastMatch = Math.max(lastMatch, nameNode.suffixRule);
+                if (isDirectory) {
+                    lastMatch = Math.max(lastMatch, nameNode.directorySuffixRule);
+                }
+                if (i == nameStart && afterSeparator) {
+                    lastMatch = Math.max(lastMatch, nameNode.nameRule);
+                    if (isDirectory) {
+                        lastMatch = Math.max(lastMatch, nameNode.directoryNameRule);
+                    }
+                }
+            }
+            nameStart = nameEnd + 1;
+            afterSeparator = true;
+        }
+        return lastMatch;
+    }
+
+    // ------------------------------------------
+
+    private static final class PrefixNode {
+        private final Map<Character, PrefixNode> children = new HashMap<>();
+        // The filename starts with the path to this node
+        private int prefixRule = -1;
+        // The filename is the path to this node or it is a directory with files under it
+        private int boundedRule = -1;
+    }
+
+    private static final class NameNode {
+        private final Map<Character, NameNode> children = new HashMap<>();
+        // A name ends with this
+        private int suffixRule = -1;
+        // A directory name ends with this
+        private int directorySuffixRule = -1;
+        // A name is exactly this
+        private int nameRule = -1;
+        // A directory name is exactly this
+        private int directoryNameRule = -1;
+    }
+}
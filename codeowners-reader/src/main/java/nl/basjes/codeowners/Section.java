@@ -18,34 +18,104 @@
 package nl.basjes.codeowners;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static nl.basjes.codeowners.CodeOwners.LOG;
 import static nl.basjes.codeowners.CodeOwnersLoader.IMPLICIT_SECTION_NAME;
 
 public class Section {
-    private boolean verbose = false;
-    boolean optional = false;
+    private final boolean optional;
     private final String name;
-    private int minimalNumberOfApprovers = 0;
-    private final List<String> defaultApprovers = new ArrayList<>();
-    private final List<ApprovalRule> approvalRules = new ArrayList<>();
+    private final int minimalNumberOfApprovers;
+    private final List<String> defaultApprovers;
+    private final List<ApprovalRule> approvalRules;
+    private final RuleIndex ruleIndex;
+    // Only the default for the queries that do not specify verbose (see the deprecated setVerbose).
+    private volatile boolean verbose = false;
+    // The rules that result in no approvers at all (in the order of the file).
+    private final int[] rulesWithoutApprovers;
+    // For each of those the fixed start of all paths it can match; null if it can match anywhere.
+    private final String[] rulesWithoutApproversPrefix;
 
+    /**
+     * An empty section.
+     * @param name The name of the section
+     * @deprecated A Section is immutable and only created when a CODEOWNERS file is read.
+     */
+    @Deprecated
     public Section(String name) {
+        this(new Builder(name));
+    }
+
+    private Section(Builder builder) {
+        this.name = builder.name;
+        this.optional = builder.optional;
+        this.minimalNumberOfApprovers = builder.minimalNumberOfApprovers;
+        this.defaultApprovers = Collections.unmodifiableList(new ArrayList<>(builder.defaultApprovers));
+        this.approvalRules = Collections.unmodifiableList(new ArrayList<>(builder.approvalRules));
+        this.ruleIndex = new RuleIndex(approvalRules);
+        this.rulesWithoutApprovers = findRulesWithoutApprovers();
+        this.rulesWithoutApproversPrefix = anchoredPrefixes(rulesWithoutApprovers);
+    }
+
+    // Used when restoring a snapshot.
+    Section(String name, boolean optional, int minimalNumberOfApprovers, List<String> defaultApprovers, List<ApprovalRule> approvalRules, RuleIndex ruleIndex) {
         this.name = name;
+        this.optional = optional;
+        this.minimalNumberOfApprovers = minimalNumberOfApprovers;
+        this.defaultApprovers = Collections.unmodifiableList(new ArrayList<>(defaultApprovers));
+        this.approvalRules = Collections.unmodifiableList(new ArrayList<>(approvalRules));
+        this.ruleIndex = ruleIndex;
+        this.rulesWithoutApprovers = findRulesWithoutApprovers();
+        this.rulesWithoutApproversPrefix = anchoredPrefixes(rulesWithoutApprovers);
     }
 
-    void addDefaultApprover(String name) {
-        String cleanedName = name.trim();
-        if (!defaultApprovers.contains(cleanedName)) {
-            defaultApprovers.add(cleanedName);
+    private int[] findRulesWithoutApprovers() {
+        if (!defaultApprovers.isEmpty()) {
+            return new int[0]; // A rule without approvers gets the default approvers.
         }
+        List<Integer> rules = new ArrayList<>();
+        for (int rule = 0; rule < approvalRules.size(); rule++) {
+            if (approvalRules.get(rule).getApprovers().isEmpty()) {
+                rules.add(rule);
+            }
+        }
+        return rules.stream().mapToInt(Integer::intValue).toArray();
     }
 
-    void addApprovalRule(ApprovalRule rule) {
-        approvalRules.add(rule);
+    private String[] anchoredPrefixes(int[] rules) {
+        String[] prefixes = new String[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            prefixes[i] = RuleIndex.anchoredPrefix(approvalRules.get(rules[i]).getFileExpression());
+        }
+        return prefixes;
     }
 
+    /**
+     * @param rule The rule that matches all the files that are asked about (-1 if none).
+     * @param directory The directory (must start and end with a '/').
+     * @return True if the rule exists and neither it nor any later rule could remove all approvers from any of the files under the directory.
+     */
+    private boolean keepsApproversUnder(int rule, String directory) {
+        if (rule < 0) {
+            return false;
+        }
+        for (int i = rulesWithoutApprovers.length - 1; i >= 0 && rulesWithoutApprovers[i] >= rule; i--) {
+            String prefix = rulesWithoutApproversPrefix[i];
+            if (prefix == null || prefix.startsWith(directory) || directory.startsWith(prefix)) {
+                return false; // This rule (or a later one) can match some of the files.
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param verbose True enables logging, False disables logging
+     * @deprecated Use the methods that have a verbose parameter.
+     * This only sets the default for the calls without that parameter.
+     */
+    @Deprecated
     public void setVerbose(boolean verbose) {
         this.verbose = verbose;
         approvalRules.forEach(rule -> rule.setVerbose(verbose));
@@ -55,10 +125,16 @@ public class Section {
         return name;
     }
 
+    /**
+     * @return The default approvers of this section. This list cannot be modified.
+     */
     public List<String> getDefaultApprovers() {
         return defaultApprovers;
     }
 
+    /**
+     * @return The approval rules of this section in the order of the file. This list cannot be modified.
+     */
     public List<ApprovalRule> getApprovalRules() {
         return approvalRules;
     }
@@ -71,10 +147,6 @@ public class Section {
         return IMPLICIT_SECTION_NAME.equals(name);
     }
 
-    void setMinimalNumberOfApprovers(int minimalNumberOfApprovers) {
-        this.minimalNumberOfApprovers = minimalNumberOfApprovers;
-    }
-
     public int getMinimalNumberOfApprovers() {
         return minimalNumberOfApprovers;
     }
@@ -84,25 +156,34 @@ public class Section {
      * @return The list of approver usernames for this filename in the order (as good as possible) as they appear in the code owner rules in this section.
      */
     public List<String> getApprovers(String filename) {
+        return getApprovers(filename, verbose);
+    }
+
+    /**
+     * @param filename The filename for which the approvers are requested.
+     * @param verbose True to log how the approvers were determined.
+     * @return The list of approver usernames for this filename in the order (as good as possible) as they appear in the code owner rules in this section.
+     */
+    public List<String> getApprovers(String filename, boolean verbose) {
         if (verbose) {
             LOG.info("# ---------------------------");
             LOG.info("# Section [{}]", getName());
         }
+
+        // GitHub: Order is important; the last matching pattern takes the most precedence.
+        // Gitlab: When a file or directory matches multiple entries in the CODEOWNERS file, the users from last pattern matching the file or directory are used.
+        int ruleIndex = verbose ? lastMatchingRuleVerbose(filename) : lastMatchingRule(filename);
+
         List<String> approvers = new ArrayList<>();
-        for (ApprovalRule approvalRule : approvalRules) {
-            List<String> ruleApprovers = approvalRule.getApprovers(filename);
-            if (ruleApprovers != null) {
-                // GitHub: Order is important; the last matching pattern takes the most precedence.
-                // Gitlab: When a file or directory matches multiple entries in the CODEOWNERS file, the users from last pattern matching the file or directory are used.
-                approvers.clear();
-                if (ruleApprovers.isEmpty()) {
-                    if (verbose) {
-                        LOG.info("-- MATCH WITHOUT APPROVERS --> Using Default approvers {}", defaultApprovers);
-                    }
-                    approvers.addAll(defaultApprovers);
-                } else {
-                    approvers.addAll(ruleApprovers);
+        if (ruleIndex >= 0) {
+            List<String> ruleApprovers = approvalRules.get(ruleIndex).getApprovers();
+            if (ruleApprovers.isEmpty()) {
+                if (verbose) {
+                    LOG.info("-- MATCH WITHOUT APPROVERS --> Using Default approvers {}", defaultApprovers);
                 }
+                approvers.addAll(defaultApprovers);
+            } else {
+                approvers.addAll(ruleApprovers);
             }
         }
         if (verbose) {
@@ -112,8 +193,58 @@ public class Section {
         return approvers;
     }
 
+    /**
+     * Determined from the rules without looking at any actual file.
+     * This is on the safe side: if unsure (i.e. a rule that can only be matched with a regex) the answer is false.
+     * @param directory The directory (must start and end with a '/').
+     * @return True if every file that could be created in this directory or any of its subdirectories gets approvers from this section.
+     */
+    boolean approvesAllFilesUnder(String directory) {
+        return keepsApproversUnder(ruleIndex.lastRuleMatchingAllFilesUnder(directory), directory);
+    }
+
+    /**
+     * Determined from the rules without looking at any actual file (see {@link #approvesAllFilesUnder(String)}).
+     * @param directory The directory (must start and end with a '/').
+     * @return True if every file that could be created directly in this directory gets approvers from this section.
+     */
+    boolean approvesAllFilesIn(String directory) {
+        return keepsApproversUnder(ruleIndex.lastRuleMatchingAllFilesIn(directory), directory);
+    }
+
+    /**
+     * @param filename The filename to match
+     * @return The index of the last rule that matches the filename, -1 if no rule matches.
+     */
+    int lastMatchingRule(String filename) {
+        return ruleIndex.lastMatchingRule(filename);
+    }
+
+    RuleIndex getRuleIndex() {
+        return ruleIndex;
+    }
+
+    // Checks all rules one by one so every rule can log what it did.
+    private int lastMatchingRuleVerbose(String filename) {
+        int lastMatch = -1;
+        for (int ruleIndex = 0; ruleIndex < approvalRules.size(); ruleIndex++) {
+            if (approvalRules.get(ruleIndex).getApprovers(filename, true) != null) {
+                lastMatch = ruleIndex;
+            }
+        }
+        return lastMatch;
+    }
+
     @Override
     public String toString() {
+        return toString(verbose);
+    }
+
+    /**
+     * @param verbose True to also include the regex that is used for each rule.
+     * @return The section in the CODEOWNERS format.
+     */
+    String toString(boolean verbose) {
         StringBuilder result = new StringBuilder();
         if (optional) {
             result.append('^');
@@ -127,8 +258,74 @@ public class Section {
         }
         result.append('\n');
         for (ApprovalRule approvalRule : approvalRules) {
-            result.append(approvalRule).append('\n');
+            result.append(approvalRule.toString(verbose)).append('\n');
         }
         return result.toString();
     }
+
+    // ------------------------------------------
+
+    /**
+     * Collects everything of a section while the CODEOWNERS file is being read.
+     */
+    static final class Builder {
+        private final String name;
+        private boolean optional = false;
+        private int minimalNumberOfApprovers = 0;
+        private final List<String> defaultApprovers = new ArrayList<>();
+        private final List<ApprovalRule> approvalRules = new ArrayList<>();
+
+        Builder(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isOptional() {
+            return optional;
+        }
+
+        Builder setOptional(boolean optional) {
+            this.optional = optional;
+            return this;
+        }
+
+        Builder setMinimalNumberOfApprovers(int minimalNumberOfApprovers) {
+            this.minimalNumberOfApprovers = minimalNumberOfApprovers;
+            return this;
+        }
+
+        Builder addDefaultApprover(String name) {
+            String cleanedName = name.trim();
+            if (!defaultApprovers.contains(cleanedName)) {
+                defaultApprovers.add(cleanedName);
+            }
+            return this;
+        }
+
+        Builder addApprovalRule(ApprovalRule rule) {
+            approvalRules.add(rule);
+            return this;
+        }
+
+        boolean hasApprovalRules() {
+            return !approvalRules.isEmpty();
+        }
+
+        /**
+         * Add all default approvers and rules of the other section to this one.
+         * @param other The section that has the same name.
+         */
+        Builder merge(Builder other) {
+            other.defaultApprovers.forEach(this::addDefaultApprover);
+            other.approvalRules.forEach(this::addApprovalRule);
+            return this;
+        }
+
+        Section build() {
+            return new Section(this);
+        }
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares matching a filename against all rules using the regex, using the automaton per rule
+ * and using the single automaton of all rules in a section.
+ * Run the main method (i.e. from the IDE) to get the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkApprovalRule {
+
+    private final List<ApprovalRule> rules = new ArrayList<>();
+    private final List<String> filenames = new ArrayList<>();
+    private Section section;
+
+    @Setup
+    public void setup() {
+        // Something that looks like a CODEOWNERS file of a big monorepo
+        for (int service = 0; service < 100; service++) {
+            rules.add(new ApprovalRule("/services/service" + service + "/", Collections.singletonList("@team" + service)));
+            rules.add(new ApprovalRule("/services/service" + service + "/**/*.sql", Collections.singletonList("@dba")));
+            rules.add(new ApprovalRule("services/service" + service + "/docs/", Collections.singletonList("@docs")));
+            rules.add(new ApprovalRule("*.ext" + service, Collections.singletonList("@team" + service)));
+        }
+        rules.add(new ApprovalRule("pom.xml", Collections.singletonList("@build")));
+        rules.add(new ApprovalRule("/docs/*/README.md", Collections.singletonList("@docs")));
+        Section.Builder sectionBuilder = new Section.Builder("Benchmark");
+        rules.forEach(sectionBuilder::addApprovalRule);
+        section = sectionBuilder.build();
+
+        for (int service = 0; service < 100; service += 7) {
+            filenames.add("/services/service" + service + "/src/main/java/nl/basjes/Something" + service + ".java");
+            filenames.add("/services/service" + service + "/src/main/resources/db/migration/V" + service + ".sql");
+            filenames.add("/services/service" + service + "/docs/README.md");
+            filenames.add("/services/service" + service + "/pom.xml");
+        }
+    }
+
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        for (String filename : filenames) {
+            for (ApprovalRule rule : rules) {
+                blackhole.consume(rule.getFilePattern().matcher(filename).find());
+            }
+        }
+    }
+
+    @Benchmark
+    public void automaton(Blackhole blackhole) {
+        for (String filename : filenames) {
+            for (ApprovalRule rule : rules) {
+                blackhole.consume(rule.matches(filename));
+            }
+        }
+    }
+
+    @Benchmark
+    public void section(Blackhole blackhole) {
+        for (String filename : filenames) {
+            blackhole.consume(section.lastMatchingRule(filename));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(
+            new OptionsBuilder()
+                .include(BenchmarkApprovalRule.class.getSimpleName())
+                .build())
+            .run();
+    }
+}
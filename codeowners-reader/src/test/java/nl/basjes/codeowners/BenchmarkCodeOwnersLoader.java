@@ -0,0 +1,86 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a big (5000 lines) CODEOWNERS file with the ANTLR parser and with the CodeOwnersScanner.
+ * Run the main method (i.e. from the IDE) to get the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkCodeOwnersLoader {
+
+    private String content;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        for (int service = 0; service < 1000; service++) {
+            builder.append("# Service ").append(service).append('\n');
+            builder.append("[Service ").append(service).append("][1] @team").append(service).append('\n');
+            builder.append("/services/service").append(service).append("/ @team").append(service).append('\n');
+            builder.append("/services/service").append(service).append("/**/*.sql @dba user").append(service).append("@example.nl\n");
+            builder.append("services/service").append(service).append("/docs/ @@developer\n");
+        }
+        content = builder.toString();
+    }
+
+    @Benchmark
+    public List<CodeOwnersScanner.Entry> scanOnly() {
+        return CodeOwnersScanner.scan(content);
+    }
+
+    @Benchmark
+    public CodeOwnersLoader scanner() {
+        return new CodeOwnersLoader(content, true);
+    }
+
+    @Benchmark
+    public CodeOwnersLoader antlr() {
+        return new CodeOwnersLoader(content, false);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(
+            new OptionsBuilder()
+                .include(BenchmarkCodeOwnersLoader.class.getSimpleName())
+                .build())
+            .run();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static nl.basjes.codeowners.TestUtils.assertOwners;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestCanonicalPath {
+
+    @Test
+    void verifyNormalization() {
+        for (String filename : Arrays.asList("", "/", "a", "/a", "a/b", "\\a\\b", "a\\b/", "//a//b", "C:\\a")) {
+            // The way filenames were normalized before
+            String expected = filename.replace("\\", "/");
+            if (!expected.startsWith("/")) {
+                expected = "/" + expected;
+            }
+            CanonicalPath canonicalPath = CanonicalPath.of(filename);
+            assertEquals(expected, canonicalPath.getPath(), "Filename |" + filename + "|");
+
+            int separator = 0;
+            for (int i = 0; i < expected.length(); i++) {
+                if (expected.charAt(i) == '/') {
+                    assertEquals(i, canonicalPath.getSeparator(separator++), "Filename |" + filename + "|");
+                }
+            }
+            assertEquals(separator, canonicalPath.getNumberOfSeparators(), "Filename |" + filename + "|");
+        }
+    }
+
+    @Test
+    void verifyAlreadyCanonical() {
+        String filename = "/dir/sub/file.txt";
+        CanonicalPath canonicalPath = CanonicalPath.of(filename);
+        assertSame(filename, canonicalPath.getPath());
+        assertFalse(canonicalPath.isDirectory());
+        assertTrue(CanonicalPath.of("dir\\sub\\").isDirectory());
+        assertEquals(CanonicalPath.of("dir\\sub"), CanonicalPath.of("/dir/sub"));
+    }
+
+    @Test
+    void verifyApprovers() {
+        CodeOwners codeOwners = new CodeOwners("*.md @docs\n^[Optional]\n/src/ @dev\n");
+        assertEquals(Arrays.asList("@docs", "@dev"), codeOwners.getAllApprovers(CanonicalPath.of("src\\README.md")));
+        assertEquals(Arrays.asList("@docs"),         codeOwners.getMandatoryApprovers(CanonicalPath.of("src\\README.md")));
+        assertOwners(codeOwners, "src/README.md", "@docs", "@dev");
+    }
+
+}
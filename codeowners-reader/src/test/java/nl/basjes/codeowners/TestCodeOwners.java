@@ -27,7 +27,9 @@ import java.net.URL;
 
 import static nl.basjes.codeowners.TestUtils.assertOwners;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TestCodeOwners {
 
@@ -45,8 +47,7 @@ class TestCodeOwners {
             "/foo/.* @user1\n" + // Intended to match '/foo/.bar' NOT '/foo/' and NOT '/foo/foo/.bar'
             "*.xml @user2\n"
         );
-//        codeOwners.setVerbose(true);
-//        LOG.info("CODEOWNERS:\n{}", codeOwners);
+//        LOG.info("CODEOWNERS:\n{}", codeOwners.toString(true));
         assertOwners(codeOwners, "/foo/.foo", "@user1");
         assertOwners(codeOwners, "/foo/.foo/bar", "@user1");
         assertOwners(codeOwners, "/foo/foo/.bar"); // No users
@@ -63,8 +64,7 @@ class TestCodeOwners {
             "/tool-*/ @user1\n" + // Intended to match '/tool-library/bar.txt'
             "*.xml @user2\n"
         );
-        codeOwners.setVerbose(true);
-        LOG.info("CODEOWNERS:\n{}", codeOwners);
+        LOG.info("CODEOWNERS:\n{}", codeOwners.toString(true));
         assertOwners(codeOwners, "/tool-app/bar.txt", "@user1");
         assertOwners(codeOwners, "/tool-app/foo/bar.txt", "@user1");
         assertOwners(codeOwners, "/tool-app/bar.xml", "@user2");
@@ -84,8 +84,7 @@ class TestCodeOwners {
             "/dir3/*/*/* @user3\n" +
             "/dir4/**/* @user4\n"
         );
-        codeOwners.setVerbose(true);
-        LOG.info("CODEOWNERS:\n{}", codeOwners);
+        LOG.info("CODEOWNERS:\n{}", codeOwners.toString(true));
         // NO Subdirs
         assertOwners(codeOwners, "/dir1/bar.txt", "@user1");
         assertOwners(codeOwners, "/dir1//bar.txt");
@@ -131,13 +130,11 @@ class TestCodeOwners {
 //        LOG.info("\n{}", codeOwners);
         runChecks(codeOwners);
         // Now reparse the toString output... (NORMAL)
-        codeOwners.setVerbose(false);
         CodeOwners codeOwners2 = new CodeOwners(codeOwners.toString());
         runChecks(codeOwners2);
 
         // Now reparse the toString output... (VERBOSE)
-        codeOwners.setVerbose(true);
-        CodeOwners codeOwners3 = new CodeOwners(codeOwners.toString());
+        CodeOwners codeOwners3 = new CodeOwners(codeOwners.toString(true));
         runChecks(codeOwners3);
 
     }
@@ -148,16 +145,14 @@ class TestCodeOwners {
             "/tool-*/ @user1\n" +
             "*.xml @user2\n"
         );
-        codeOwners.setVerbose(true);
         assertEquals(
             "# CODEOWNERS file:\n" +
             "# Regex used for the next rule:   ^/tool-.*/\n" +
             "/tool-*/ @user1\n" +
             "# Regex used for the next rule:   .*\\.xml(/|$)\n" +
             "*.xml @user2\n",
-            codeOwners.toString());
+            codeOwners.toString(true));
 
-        codeOwners.setVerbose(false);
         assertEquals(
             "# CODEOWNERS file:\n" +
             "/tool-*/ @user1\n" +
@@ -170,13 +165,11 @@ class TestCodeOwners {
         CodeOwners codeOwners = new CodeOwners(
             "# Nothing here, only comments\n"
         );
-        codeOwners.setVerbose(true);
         assertEquals(
             "# CODEOWNERS file:\n" +
             "# No CODEOWNER rules were defined.\n",
-            codeOwners.toString());
+            codeOwners.toString(true));
 
-        codeOwners.setVerbose(false);
         assertEquals(
             "# CODEOWNERS file:\n" +
             "# No CODEOWNER rules were defined.\n",
@@ -184,4 +177,66 @@ class TestCodeOwners {
     }
 
 
+    @Test
+    void testDirectoryFullyCovered() {
+        CodeOwners codeOwners = new CodeOwners(
+            "/src/ @dev\n" +
+            "/src/main/resources/*.properties\n" + // Without approvers
+            "/docs/ @docs\n" +
+            "/docs/*.md @writers\n" +
+            "\n" +
+            "^[Optional] @optional\n" +
+            "/tools/\n" +
+            "\n" +
+            "[Tests] @testers\n" +
+            "/test/\n" +
+            "/scripts/* @scripters\n");
+
+        assertTrue(codeOwners.isDirectoryFullyCovered("docs"));
+        assertTrue(codeOwners.isDirectoryFullyCovered("/docs/sub/dir/"));
+        assertTrue(codeOwners.isDirectoryFullyCovered("test/"));
+        // Only an optional section
+        assertFalse(codeOwners.isDirectoryFullyCovered("tools"));
+        // A later rule removes all approvers for some of the files
+        assertFalse(codeOwners.isDirectoryFullyCovered("src"));
+        assertFalse(codeOwners.isDirectoryFullyCovered("src/main/resources"));
+        assertFalse(codeOwners.isDirectoryFullyCovered(""));
+        assertFalse(codeOwners.isDirectoryFullyCovered("other"));
+        assertTrue(codeOwners.getMandatoryApprovers("src/main/resources/x.properties").isEmpty());
+        // Only the files directly in the directory
+        assertTrue(codeOwners.isDirectoryFullyCovered("scripts"));
+        assertFalse(codeOwners.isDirectoryFullyCovered("scripts/sub"));
+
+        // Separators are cleaned
+        assertTrue(codeOwners.isDirectoryFullyCovered("docs//sub\\dir"));
+
+        // The same answer from the cache
+        assertTrue(codeOwners.isDirectoryFullyCovered("docs/"));
+        assertFalse(codeOwners.isDirectoryFullyCovered("tools/"));
+    }
+
+    @Test
+    void testDirectoryFullyCoveredWithUnrelatedExclusion() {
+        CodeOwners codeOwners = new CodeOwners(
+            "* @team\n" +
+            "/generated/\n" +       // Without approvers
+            "/build/output*/\n");   // Without approvers
+
+        // These exclusions cannot match anything in these directories
+        assertTrue(codeOwners.isDirectoryFullyCovered("src"));
+        assertTrue(codeOwners.isDirectoryFullyCovered("src/main"));
+        assertTrue(codeOwners.isDirectoryFullyCovered("gen"));
+        assertTrue(codeOwners.isDirectoryFullyCovered("build/other"));
+        assertEquals("[@team]", codeOwners.getMandatoryApprovers("src/main/NewFile").toString());
+
+        // These directories contain (or are) excluded paths
+        assertFalse(codeOwners.isDirectoryFullyCovered(""));
+        assertFalse(codeOwners.isDirectoryFullyCovered("generated"));
+        assertFalse(codeOwners.isDirectoryFullyCovered("generated/sub"));
+        assertFalse(codeOwners.isDirectoryFullyCovered("build"));
+        assertFalse(codeOwners.isDirectoryFullyCovered("build/output1"));
+
+        // An unanchored exclusion can match in any directory
+        assertFalse(new CodeOwners("* @team\ngenerated/\n").isDirectoryFullyCovered("src"));
+    }
 }
@@ -0,0 +1,130 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static nl.basjes.codeowners.TestGlobAutomaton.FILENAMES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestCodeOwnersBatch {
+
+    private static final CodeOwners CODE_OWNERS = new CodeOwners(
+        "* @everyone\n" +
+        "\n" +
+        "[Documentation] @docs-team\n" +
+        "docs/\n" +
+        "*.md\n" +
+        "/docs/*/README.md @readme-team\n" +
+        "\n" +
+        "^[Optional] @optional-team\n" +
+        "/dir2/*/*\n" +
+        "lib/ @lib-team\n" +
+        "\n" +
+        "[Source]\n" +
+        "src/**/java/ @java-team\n" +
+        "*.js @js-team\n"
+    );
+
+    private static List<String> filenames() {
+        List<String> filenames = new ArrayList<>();
+        for (String filename : FILENAMES) {
+            // Relative filenames and Windows style separators must be handled the same way as the single file calls.
+            filenames.add(filename.replaceAll("^/", ""));
+            filenames.add(filename.replace("/", "\\"));
+        }
+        return filenames;
+    }
+
+    @Test
+    void verifyBatchSameAsSingle() {
+        List<String> filenames = filenames();
+
+        Map<String, List<String>> allApprovers = CODE_OWNERS.getAllApprovers(filenames);
+        Map<String, List<String>> mandatoryApprovers = CODE_OWNERS.getMandatoryApprovers(filenames);
+
+        // The order of the input is retained
+        assertEquals(new ArrayList<>(new LinkedHashSet<>(filenames)), new ArrayList<>(allApprovers.keySet()));
+
+        for (String filename : filenames) {
+            assertEquals(CODE_OWNERS.getAllApprovers(filename),       allApprovers.get(filename),       "All: " + filename);
+            assertEquals(CODE_OWNERS.getMandatoryApprovers(filename), mandatoryApprovers.get(filename), "Mandatory: " + filename);
+        }
+    }
+
+    @Test
+    void verifyBatchWithExecutor() {
+        List<String> filenames = filenames();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Map<String, List<String>> allApprovers = CODE_OWNERS.getAllApprovers(filenames, executor);
+            Map<String, List<String>> mandatoryApprovers = CODE_OWNERS.getMandatoryApprovers(filenames, executor);
+
+            Map<String, List<String>> allCallbacks = new ConcurrentHashMap<>();
+            CODE_OWNERS.forEachAllApprovers(filenames, executor, allCallbacks::put);
+            Map<String, List<String>> mandatoryCallbacks = new ConcurrentHashMap<>();
+            CODE_OWNERS.forEachMandatoryApprovers(filenames, executor, mandatoryCallbacks::put);
+
+            assertEquals(allApprovers, allCallbacks);
+            assertEquals(mandatoryApprovers, mandatoryCallbacks);
+            for (String filename : filenames) {
+                assertEquals(CODE_OWNERS.getAllApprovers(filename),       allApprovers.get(filename),       "All: " + filename);
+                assertEquals(CODE_OWNERS.getMandatoryApprovers(filename), mandatoryApprovers.get(filename), "Mandatory: " + filename);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void verifyDuplicatesInBatch() {
+        List<String> filenames = Arrays.asList("b.md", "a.js", "b.md", "lib/c.txt", "a.js");
+        Map<String, List<String>> allApprovers = CODE_OWNERS.getAllApprovers(filenames, Runnable::run);
+        // Each filename once in the order of its first occurrence
+        assertEquals(Arrays.asList("b.md", "a.js", "lib/c.txt"), new ArrayList<>(allApprovers.keySet()));
+        assertEquals(CODE_OWNERS.getAllApprovers("a.js"), allApprovers.get("a.js"));
+    }
+
+    @Test
+    void verifyEmptyBatch() {
+        assertTrue(CODE_OWNERS.getAllApprovers(Collections.emptyList()).isEmpty());
+        assertTrue(CODE_OWNERS.getMandatoryApprovers(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    void verifyFailurePropagates() {
+        List<String> filenames = new ArrayList<>(filenames());
+        assertThrows(IllegalStateException.class, () ->
+            CODE_OWNERS.forEachAllApprovers(filenames, Runnable::run, (filename, approvers) -> {
+                throw new IllegalStateException("Failure for " + filename);
+            }));
+    }
+
+}
@@ -59,7 +59,6 @@ class TestCodeOwnersGitlab {
                 "SomethingElse.md @user3"
         );
 
-        codeOwners.setVerbose(true);
         // The Code Owners for the README.md in the root directory are @user1, @user2, and @user3 + @user5 because of the extra rule for all *.md files.
         assertOwners(codeOwners, "README.md",           "@user1", "@user2", "@user3", "@user5");
         // The Code Owners for internal/README.md are @user4 and @user3 + @user5 because of the extra rule for all *.md files.
@@ -326,17 +325,14 @@ class TestCodeOwnersGitlab {
             "\n"
         );
 
-        codeOwners.setVerbose(false);
         assertOwners(codeOwners, "docs/api/graphql/index.md", "@docs-team");
         assertMandatoryOwners(codeOwners, "docs/api/graphql/index.md");
 
-        codeOwners.setVerbose(true);
         assertOwners(codeOwners, "/something/README.md", "@docs-team");
         assertMandatoryOwners(codeOwners, "/something/README.md");
 
         assertOwners(codeOwners, "/model/db/README.md", "@docs-team", "@database-team");
 
-        codeOwners.setVerbose(false);
         assertEquals(
             "# CODEOWNERS file:\n" +
             "^[One][11] @docs-team\n" +
@@ -369,11 +365,9 @@ class TestCodeOwnersGitlab {
             "\n"
         );
 
-        codeOwners.setVerbose(false);
         assertOwners(codeOwners, "docs/api/graphql/index.md", "@docs-team", "@@optionalsection", "some-1@example.nl");
         assertMandatoryOwners(codeOwners, "docs/api/graphql/index.md");
 
-        codeOwners.setVerbose(true);
         assertOwners(codeOwners, "/something/README.md", "@docs-team", "@@optionalsection", "some-1@example.nl");
         assertMandatoryOwners(codeOwners, "/something/README.md");
 
@@ -383,7 +377,6 @@ class TestCodeOwnersGitlab {
         assertOwners(codeOwners, "/config/db/database-setup.md", "@docs-team", "@@maintainer", "@@optionalsection", "some-1@example.nl", "other-2_user@example.nl");
         assertMandatoryOwners(codeOwners, "/config/db/database-setup.md", "@docs-team", "@@maintainer", "other-2_user@example.nl");
 
-        codeOwners.setVerbose(false);
         assertEquals(
             "# CODEOWNERS file:\n" +
             "^[One][11] @docs-team @@optionalsection some-1@example.nl\n" +
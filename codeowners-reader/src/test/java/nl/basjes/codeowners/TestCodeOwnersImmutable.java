@@ -0,0 +1,123 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TestCodeOwnersImmutable {
+
+    private static final CodeOwners CODE_OWNERS = new CodeOwners(
+        "* @everyone\n" +
+        "\n" +
+        "[Documentation] @docs-team\n" +
+        "docs/\n" +
+        "*.md\n" +
+        "\n" +
+        "^[Optional] @optional-team\n" +
+        "lib/ @lib-team\n" +
+        "\n" +
+        "[documentation] @more-docs-team\n" + // Merged into [Documentation]
+        "/docs/*/README.md @readme-team\n"
+    );
+
+    @Test
+    void verifyCannotBeModified() {
+        for (Section section : CODE_OWNERS.getAllDefinedSections()) {
+            List<ApprovalRule> approvalRules = section.getApprovalRules();
+            assertThrows(UnsupportedOperationException.class, () -> approvalRules.add(new ApprovalRule("foo", new ArrayList<>())));
+            assertThrows(UnsupportedOperationException.class, () -> section.getDefaultApprovers().add("@someone"));
+            for (ApprovalRule approvalRule : approvalRules) {
+                assertThrows(UnsupportedOperationException.class, () -> approvalRule.getApprovers().add("@someone"));
+            }
+        }
+    }
+
+    @Test
+    void verifyMergedSection() {
+        Section documentation = CODE_OWNERS.getAllDefinedSections().stream()
+            .filter(section -> section.getName().equals("Documentation"))
+            .findFirst()
+            .orElseThrow(IllegalStateException::new);
+        assertEquals(3, documentation.getApprovalRules().size());
+        assertEquals(2, documentation.getDefaultApprovers().size());
+    }
+
+    @Test
+    void verifyVerboseIsOnlyLogging() {
+        for (String filename : new String[]{"README.md", "docs/foo.txt", "docs/foo/README.md", "lib/foo.java", "src/foo.java"}) {
+            assertEquals(CODE_OWNERS.getAllApprovers(filename),       CODE_OWNERS.getAllApprovers(filename, true));
+            assertEquals(CODE_OWNERS.getMandatoryApprovers(filename), CODE_OWNERS.getMandatoryApprovers(filename, true));
+        }
+        assertEquals(CODE_OWNERS.toString(), new CodeOwners(CODE_OWNERS.toString(true)).toString());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation") // Existing users of these methods must still compile and work.
+    void verifyDeprecatedVerbose() {
+        CodeOwners codeOwners = new CodeOwners(CODE_OWNERS.toString());
+        String expected = codeOwners.toString();
+        codeOwners.setVerbose(true);
+        assertEquals(codeOwners.toString(true), codeOwners.toString());
+        assertEquals(CODE_OWNERS.getAllApprovers("docs/foo/README.md"), codeOwners.getAllApprovers("docs/foo/README.md"));
+        for (Section section : codeOwners.getAllDefinedSections()) {
+            assertEquals(section.toString(true), section.toString());
+        }
+        codeOwners.setVerbose(false);
+        assertEquals(expected, codeOwners.toString());
+
+        Section section = new Section("Empty");
+        section.setVerbose(true);
+        assertEquals("Empty", section.getName());
+        assertEquals(0, section.getApprovers("foo.txt").size());
+
+        ApprovalRule approvalRule = new ApprovalRule("*.md", Collections.singletonList("@docs"));
+        approvalRule.setVerbose(true);
+        assertEquals(approvalRule.toString(true), approvalRule.toString());
+    }
+
+    @Test
+    void verifyConcurrentQueries() throws ExecutionException, InterruptedException {
+        List<String> expected = CODE_OWNERS.getAllApprovers("docs/foo/README.md");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                // Mixing verbose and non verbose queries on the same instance.
+                boolean verbose = i % 100 == 0;
+                results.add(executor.submit(() -> CODE_OWNERS.getAllApprovers("docs/foo/README.md", verbose)));
+            }
+            for (Future<List<String>> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
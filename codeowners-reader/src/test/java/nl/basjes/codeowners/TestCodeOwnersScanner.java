@@ -0,0 +1,144 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestCodeOwnersScanner {
+
+    static final List<String> CORPUS = Arrays.asList(
+        "",
+        "# Nothing here, only comments\n",
+        "*.md @docs\n",
+        "*.md @docs", // No newline at the end
+        "/tool-*/ @user1\n*.xml @user2\n",
+        "/foo/.* @user1\r\n*.xml @user2\r\n",
+        "/foo/.* @user1\r*.xml @user2\r",
+        "docs/\n*.md\n@late-user\n", // The user belongs to the previous rule
+        "\\#file_with_pound.rb @owner\npath\\ with\\ spaces/ @space-owner\n",
+        "README.md @user1 @user2 @user1\n",
+        "docs/ user@example.nl other_user@example.com @group/sub-group\n",
+        "[Documentation][2] @docs-team\n*.md @tech-writer-team\ndocs/\nREADME.md\n",
+        "^[Database] @database-team\nmodel/db/\nconfig/db/database-setup.md @docs-team\n",
+        "[One][11] @docs-team\ndocs/\n*.md\n\n[Two][22] @database-team\nmodel/db/\n\n[Three]\nthree1/ \n\n^[Four]\nfour/\n\n[  tHrEe  ]\nthree2/ @docs-team\n",
+        "^[One][11] @docs-team @@optionalsection some-1@example.nl\ndocs/\n*.md\n\n[Two][22] @database-team @@developer user_1_foo@example.nl\nmodel/db/\n",
+        "[Documentation]\ndocs/ @a\n^[DoCuMeNtAtIoN]\nREADME.md @b\n",
+        "[ ][Section]\nfoo @a\n",
+        "[A][1][B]\nfoo @a\n",
+        "[Section with spaces and + signs ]\nfoo @a # comment\n",
+        "\t+foo/bar\t@a+@b\n",
+        "foo/bar@x\n",
+        "[Unclosed\n", // Fallback
+        "^foo\n", // Fallback
+        "@user\nfoo\n", // Fallback
+        "docs/ @\n", // Fallback
+        "foo!bar @a\n", // Fallback
+        "[A][B]\nfoo @a\n", // Fallback (and fails)
+        "*.md @docs\n# Comment without newline" // Fallback
+    );
+
+    private static void assertSameAsAntlr(String content) {
+        CodeOwnersLoader antlr;
+        try {
+            antlr = new CodeOwnersLoader(content, false);
+        } catch (RuntimeException e) {
+            // If ANTLR fails the scanner must not be used
+            assertNull(CodeOwnersScanner.scan(content), "Content |" + content + "|");
+            return;
+        }
+        CodeOwnersLoader scanner = new CodeOwnersLoader(content, true);
+
+        Map<String, Section> expected = antlr.getSections();
+        Map<String, Section> actual = scanner.getSections();
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()), "Content |" + content + "|");
+        for (Map.Entry<String, Section> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().toString(true), actual.get(entry.getKey()).toString(true), "Content |" + content + "|");
+        }
+        assertEquals(antlr.hasStructuralProblems(), scanner.hasStructuralProblems(), "Content |" + content + "|");
+    }
+
+    @Test
+    void verifyCorpus() throws IOException, URISyntaxException {
+        for (String content : CORPUS) {
+            assertSameAsAntlr(content);
+        }
+
+        URL url = this.getClass().getClassLoader().getResource("CODEOWNERS_base");
+        assertNotNull(url);
+        String baseContent = new String(Files.readAllBytes(Paths.get(url.toURI())), UTF_8);
+        assertNotNull(CodeOwnersScanner.scan(baseContent));
+        assertSameAsAntlr(baseContent);
+    }
+
+    @Test
+    void verifyFallback() {
+        assertNotNull(CodeOwnersScanner.scan("[A]\n*.md @docs\n"));
+        assertNull(CodeOwnersScanner.scan("[Unclosed\n"));
+        assertNull(CodeOwnersScanner.scan("foo!bar @a\n"));
+        assertNull(CodeOwnersScanner.scan("*.md @docs\n# Comment without newline"));
+    }
+
+    private static final List<String> FRAGMENTS = Arrays.asList(
+        "[Section]", "[section]", "^[Optional]", "[Counted][2]", "[ ]", "[Spaced Name ]", "[3]",
+        "docs/", "*.md", "/build/output/", "\\#pound", "with\\ space", "src/**/java/", ".gitignore",
+        "@user", "@group/team", "@@developer", "some.one@example.nl", "user_1@x", "a@b.c",
+        " ", "\t", "+", "\n", "\n", "\r\n", "\r", "# comment\n"
+    );
+
+    @Test
+    void verifyRandomContent() {
+        Random random = new Random(42);
+        int usedScanner = 0;
+        int runs = 2000;
+        for (int run = 0; run < runs; run++) {
+            StringBuilder content = new StringBuilder();
+            int parts = 1 + random.nextInt(30);
+            for (int part = 0; part < parts; part++) {
+                content.append(FRAGMENTS.get(random.nextInt(FRAGMENTS.size())));
+                if (random.nextBoolean()) {
+                    content.append(' ');
+                }
+            }
+            String text = content.append('\n').toString();
+            if (CodeOwnersScanner.scan(text) != null) {
+                usedScanner++;
+            }
+            assertSameAsAntlr(text);
+        }
+        // Many of these are not valid (i.e. starting with a user) but a lot of them are.
+        assertTrue(usedScanner > runs / 3, "Only " + usedScanner + " of " + runs + " were handled by the scanner.");
+    }
+
+}
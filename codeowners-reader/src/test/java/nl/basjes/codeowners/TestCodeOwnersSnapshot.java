@@ -0,0 +1,161 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static nl.basjes.codeowners.TestGlobAutomaton.FILENAMES;
+import static nl.basjes.codeowners.TestUtils.assertOwners;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestCodeOwnersSnapshot {
+
+    private static final String CODEOWNERS =
+        "* @everyone\n" +
+        "\n" +
+        "[Documentation] @docs-team\n" +
+        "docs/\n" +
+        "*.md\n" +
+        "/docs/*/README.md @readme-team\n" +
+        "[a-c]bc @regex\n" + // Cannot be handled by the automaton
+        "\n" +
+        "^[Optional][2] @optional-team\n" +
+        "/dir2/*/*\n" +
+        "lib/ @lib-team\n" +
+        "\n" +
+        "[documentation] @more-docs\n" +
+        "src/**/java/ @java-team\n";
+
+    private static void assertSameCodeOwners(CodeOwners expected, CodeOwners actual) {
+        assertEquals(expected.toString(true), actual.toString(true));
+        assertEquals(expected.hasStructuralProblems(), actual.hasStructuralProblems());
+        for (String filename : FILENAMES) {
+            assertEquals(expected.getAllApprovers(filename),       actual.getAllApprovers(filename),       filename);
+            assertEquals(expected.getMandatoryApprovers(filename), actual.getMandatoryApprovers(filename), filename);
+        }
+    }
+
+    @Test
+    void verifyRoundTrip() throws IOException, URISyntaxException {
+        URL url = this.getClass().getClassLoader().getResource("CODEOWNERS_base");
+        assertNotNull(url);
+        String baseContent = new String(Files.readAllBytes(Paths.get(url.toURI())), UTF_8);
+
+        for (String content : Arrays.asList(CODEOWNERS, baseContent, "# Only comments\n")) {
+            CodeOwners codeOwners = new CodeOwners(content);
+            byte[] hash = CodeOwnersSnapshot.sha256(content.getBytes(UTF_8));
+            byte[] snapshot = CodeOwnersSnapshot.toBytes(codeOwners, hash);
+
+            CodeOwners restored = CodeOwnersSnapshot.fromBytes(snapshot, hash);
+            assertNotNull(restored);
+            assertSameCodeOwners(codeOwners, restored);
+
+            // Writing the restored one again must give exactly the same snapshot
+            assertArrayEquals(snapshot, CodeOwnersSnapshot.toBytes(restored, hash));
+        }
+    }
+
+    @Test
+    void verifyStaleAndDamaged() throws IOException {
+        CodeOwners codeOwners = new CodeOwners(CODEOWNERS);
+        byte[] hash = CodeOwnersSnapshot.sha256(CODEOWNERS.getBytes(UTF_8));
+        byte[] snapshot = CodeOwnersSnapshot.toBytes(codeOwners, hash);
+
+        // Made from a different file
+        assertNull(CodeOwnersSnapshot.fromBytes(snapshot, CodeOwnersSnapshot.sha256(new byte[0])));
+
+        // Made by a different version of this library
+        assertNull(CodeOwnersSnapshot.fromBytes(CodeOwnersSnapshot.toBytes(codeOwners, hash, "0.0.1"), hash));
+        assertFalse(CodeOwnersSnapshot.LIBRARY_VERSION.startsWith("Unknown"));
+
+        // Not a snapshot at all
+        assertThrows(IOException.class, () -> CodeOwnersSnapshot.fromBytes("Something else".getBytes(UTF_8), hash));
+
+        // Truncated
+        assertThrows(IOException.class, () -> CodeOwnersSnapshot.fromBytes(Arrays.copyOf(snapshot, snapshot.length - 10), hash));
+    }
+
+    @Test
+    void verifyAutomatonMustMatchTheRules() {
+        List<ApprovalRule> first = Arrays.asList(
+            new ApprovalRule("src/**/java/", Collections.singletonList("@java")),
+            new ApprovalRule("*.md", Collections.singletonList("@docs")));
+        List<ApprovalRule> second = Arrays.asList(
+            new ApprovalRule("*.md", Collections.singletonList("@docs")),
+            new ApprovalRule("src/**/java/", Collections.singletonList("@java")));
+        RuleIndex firstIndex = new RuleIndex(first);
+        assertNotNull(firstIndex.getAutomaton());
+
+        // Same layout works
+        assertEquals(0, new RuleIndex(first, firstIndex.getAutomaton(), firstIndex.getRegexRules()).lastMatchingRule("/src/main/java/Foo.java"));
+
+        // The automaton reports rule 0 which is not a general rule in the other list.
+        assertThrows(IllegalArgumentException.class, () -> new RuleIndex(second, firstIndex.getAutomaton(), firstIndex.getRegexRules()));
+        // The automaton is missing
+        assertThrows(IllegalArgumentException.class, () -> new RuleIndex(first, null, firstIndex.getRegexRules()));
+    }
+
+    @Test
+    void verifyLoad(@TempDir Path directory) throws IOException {
+        Path codeOwnersFile = directory.resolve("CODEOWNERS");
+        Path snapshotFile = directory.resolve("CODEOWNERS.snapshot");
+        Files.write(codeOwnersFile, CODEOWNERS.getBytes(UTF_8));
+
+        // No snapshot yet: it is created
+        CodeOwners first = CodeOwnersSnapshot.load(codeOwnersFile, snapshotFile);
+        assertTrue(Files.exists(snapshotFile));
+        assertSameCodeOwners(new CodeOwners(CODEOWNERS), first);
+        byte[] snapshot = Files.readAllBytes(snapshotFile);
+
+        // From the snapshot (which remains unchanged)
+        CodeOwners second = CodeOwnersSnapshot.load(codeOwnersFile, snapshotFile);
+        assertSameCodeOwners(first, second);
+        assertArrayEquals(snapshot, Files.readAllBytes(snapshotFile));
+
+        // The CODEOWNERS file changed: the snapshot is replaced
+        Files.write(codeOwnersFile, "*.md @writers\n".getBytes(UTF_8));
+        CodeOwners third = CodeOwnersSnapshot.load(codeOwnersFile, snapshotFile);
+        assertOwners(third, "README.md", "@writers");
+        assertEquals(third.toString(), CodeOwnersSnapshot.load(codeOwnersFile, snapshotFile).toString());
+
+        // A damaged snapshot is replaced
+        Files.write(snapshotFile, new byte[]{1, 2, 3});
+        CodeOwners fourth = CodeOwnersSnapshot.load(codeOwnersFile, snapshotFile);
+        assertOwners(fourth, "README.md", "@writers");
+        assertNotNull(CodeOwnersSnapshot.fromBytes(Files.readAllBytes(snapshotFile), CodeOwnersSnapshot.sha256("*.md @writers\n".getBytes(UTF_8))));
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static nl.basjes.codeowners.TestCodeOwnersScanner.CORPUS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TestCodeOwnersStreaming {
+
+    // Hands out the content a single character at a time to hit every possible chunk boundary.
+    private static final class TrickleReader extends FilterReader {
+        TrickleReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return super.read(buffer, offset, Math.min(1, length));
+        }
+    }
+
+    private static void assertSameCodeOwners(CodeOwners expected, CodeOwners actual, String content) {
+        assertEquals(expected.toString(true), actual.toString(true), "Content |" + content + "|");
+        assertEquals(expected.hasStructuralProblems(), actual.hasStructuralProblems(), "Content |" + content + "|");
+    }
+
+    @Test
+    void verifyAllSources(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("CODEOWNERS");
+        for (String content : CORPUS) {
+            CodeOwners expected;
+            try {
+                expected = new CodeOwners(content);
+            } catch (RuntimeException e) {
+                continue; // Content the loader cannot handle at all
+            }
+            Files.write(file, content.getBytes(UTF_8));
+
+            assertSameCodeOwners(expected, new CodeOwners(file), content);
+            assertSameCodeOwners(expected, new CodeOwners(file, true), content);
+            assertSameCodeOwners(expected, new CodeOwners(file.toFile()), content);
+
+            if (CodeOwnersScanner.scan(content) == null) {
+                // Syntax errors need the full parser which needs the entire content which a Reader does not retain.
+                assertThrows(IOException.class, () -> new CodeOwners(new StringReader(content)), content);
+                assertThrows(IOException.class, () -> new CodeOwners(new ByteArrayInputStream(content.getBytes(UTF_8))), content);
+                continue;
+            }
+            assertSameCodeOwners(expected, new CodeOwners(new StringReader(content)), content);
+            assertSameCodeOwners(expected, new CodeOwners(new TrickleReader(new StringReader(content))), content);
+            assertSameCodeOwners(expected, new CodeOwners(new ByteArrayInputStream(content.getBytes(UTF_8))), content);
+        }
+    }
+
+    @Test
+    void verifyLargeMappedFile(@TempDir Path directory) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            if (i % 50 == 0) {
+                content.append("[Section ").append(i).append("] @team").append(i).append("\r\n");
+            }
+            content.append("/dir").append(i).append("/**/*.java @user").append(i).append(" # Ünïcödé\r\n");
+        }
+        Path file = directory.resolve("CODEOWNERS");
+        Files.write(file, content.toString().getBytes(UTF_8));
+
+        CodeOwners expected = new CodeOwners(content.toString());
+        assertSameCodeOwners(expected, new CodeOwners(file, true), "Large file");
+        assertSameCodeOwners(expected, new CodeOwners(file, false), "Large file");
+    }
+
+    @Test
+    void verifyInvalidUTF8(@TempDir Path directory) throws IOException {
+        byte[] content = {'*', '.', 'm', 'd', ' ', '@', 'a', ' ', '#', (byte) 0xC3, (byte) 0x28, '\n', 'x', ' ', '@', 'b', '\n'};
+        Path file = directory.resolve("CODEOWNERS");
+        Files.write(file, content);
+
+        CodeOwners expected = new CodeOwners(new String(content, UTF_8));
+        assertSameCodeOwners(expected, new CodeOwners(file, true), "Invalid UTF-8");
+        assertSameCodeOwners(expected, new CodeOwners(file, false), "Invalid UTF-8");
+    }
+
+    @Test
+    void verifyMissingFile(@TempDir Path directory) {
+        Path file = directory.resolve("DoesNotExist");
+        assertThrows(IOException.class, () -> new CodeOwners(file));
+        assertThrows(IOException.class, () -> new CodeOwners(file, true));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static nl.basjes.codeowners.TestUtils.assertOwners;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestCompiledRuleCache {
+
+    @Test
+    void verifySharedRules() {
+        ApprovalRule first = new ApprovalRule("docs/**/*.md", Collections.singletonList("@docs"));
+        long hits = CompiledRuleCache.getHits();
+        ApprovalRule second = new ApprovalRule("docs/**/*.md ", Arrays.asList("@other", "@more"));
+
+        assertTrue(CompiledRuleCache.getHits() > hits);
+        assertSame(first.getFileRegex(), second.getFileRegex());
+
+        // Each rule compiles the Pattern only once and only when it is needed
+        assertSame(first.getFilePattern(), first.getFilePattern());
+        assertEquals(first.getFilePattern().pattern(), second.getFilePattern().pattern());
+
+        // The shared rules must still behave as separate rules
+        CodeOwners codeOwners = new CodeOwners(
+            "[One]\n" +
+            "docs/**/*.md @docs\n" +
+            "[Two]\n" +
+            "docs/**/*.md @other\n");
+        assertOwners(codeOwners, "docs/foo/bar.md", "@docs", "@other");
+    }
+
+    @Test
+    void verifyBounded() {
+        for (int i = 0; i < CompiledRuleCache.MAXIMUM_SIZE + 100; i++) {
+            new ApprovalRule("file" + i + ".txt", Collections.singletonList("@user"));
+        }
+        assertTrue(CompiledRuleCache.size() <= CompiledRuleCache.MAXIMUM_SIZE);
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestGlobAutomaton {
+
+    // All file expressions that are used in the other tests and some additional edge cases.
+    static final List<String> FILE_EXPRESSIONS = Collections.unmodifiableList(Arrays.asList(
+        "*", "**", "**/logs", "*.js", "*.rb", "*.txt", "*.xml", "*.md", "*.tar.gz", "*foo", "*.*",
+        "/apps/", "/build/output/", "/config/", "/docs/", "/scripts/", "/tool-*/",
+        "/dir1/*", "/dir2/*/*", "/dir3/*/*/*", "/dir4/**/*",
+        "/docs/*", "/docs/**/*.md", "/docs/**/index.md", "/docs/*.md", "/docs/*/README.md",
+        "/docs/*spec*", "/docs/index.*", "/foo/.*", "/foo", "/foo/bar", "//foo//bar//",
+        "CODEOWNERS", "INSTALL.md", "LICENSE", "README", "README.md", "SomethingElse.md", ".gitignore",
+        ".github/", "\\#file_with_pound.rb", "apps/", "config/db/database-setup.md", "data-models/",
+        "docs", "docs/", "ee/docs", "internal/README.md", "internal\\ stuff/README.md",
+        "internalstuff/README.md", "lib/", "path\\ with\\ spaces/", "three2/",
+        "file?.txt", "/dir?/", "src/**/java/", "src/main/java/README.md", "a*b*c", "-dash_underscore-"
+    ));
+
+    static final List<String> FILENAMES = Collections.unmodifiableList(buildFilenames());
+
+    private static List<String> buildFilenames() {
+        List<String> segments = Arrays.asList(
+            "", "foo", "bar", ".foo", "docs", "dir1", "dir2", "dir3", "dir4", "tool-app", "apps", "lib",
+            "README", "README.md", "index.md", "spec.md", "a.tar.gz", "x.js", "Foo.rb", "#file_with_pound.rb",
+            "CODEOWNERS", ".gitignore", "x.gitignore", ".github", "internal stuff", "path with spaces",
+            "file1.txt", "file12.txt", "config", "db", "database-setup.md", "src", "main", "java",
+            "logs", "abc", "aXbYc", "-dash_underscore-", "data-models", "ee", "x\ny", "x y", "😀"
+        );
+        List<String> result = new ArrayList<>();
+        result.add("");
+        result.add("/");
+        for (String first : segments) {
+            result.add("/" + first);
+            result.add("/" + first + "/");
+            for (String second : segments) {
+                result.add("/" + first + "/" + second);
+                result.add("/" + first + "/" + second + "/x.txt");
+            }
+        }
+        return result;
+    }
+
+    @Test
+    void verifySameAsRegex() {
+        for (String fileExpression : FILE_EXPRESSIONS) {
+            ApprovalRule rule = new ApprovalRule(fileExpression, Collections.singletonList("@someone"));
+            Pattern pattern = rule.getFilePattern();
+
+            GlobAutomaton.Builder builder = new GlobAutomaton.Builder();
+            assertTrue(builder.add(0, pattern.pattern()), "Unable to compile " + fileExpression + " ( " + pattern + " )");
+            GlobAutomaton automaton = builder.build();
+
+            for (String filename : FILENAMES) {
+                boolean expected = pattern.matcher(filename).find();
+                assertEquals(expected, automaton.matches(filename),
+                    "Expression |" + fileExpression + "| ( " + pattern + " ) on |" + filename + "|");
+                assertEquals(expected, rule.matches(filename));
+            }
+        }
+    }
+
+    @Test
+    void verifyLastMatchSameAsRegex() {
+        List<Pattern> patterns = new ArrayList<>();
+        GlobAutomaton.Builder builder = new GlobAutomaton.Builder();
+        for (String fileExpression : FILE_EXPRESSIONS) {
+            Pattern pattern = new ApprovalRule(fileExpression, Collections.emptyList()).getFilePattern();
+            assertTrue(builder.add(patterns.size(), pattern.pattern()));
+            patterns.add(pattern);
+        }
+        GlobAutomaton automaton = builder.build();
+
+        for (String filename : FILENAMES) {
+            int expected = -1;
+            for (int i = 0; i < patterns.size(); i++) {
+                if (patterns.get(i).matcher(filename).find()) {
+                    expected = i;
+                }
+            }
+            assertEquals(expected, automaton.lastMatch(filename), "Filename |" + filename + "|");
+        }
+    }
+
+    @Test
+    void verifySectionSameAsRuleByRule() {
+        Section.Builder sectionBuilder = new Section.Builder("Test");
+        sectionBuilder.addDefaultApprover("@default");
+        List<ApprovalRule> rules = new ArrayList<>();
+        for (int i = 0; i < FILE_EXPRESSIONS.size(); i++) {
+            // Every third rule has no approvers so the default approvers are used.
+            List<String> approvers = i % 3 == 0 ? Collections.emptyList() : Collections.singletonList("@user" + i);
+            ApprovalRule rule = new ApprovalRule(FILE_EXPRESSIONS.get(i), approvers);
+            rules.add(rule);
+            sectionBuilder.addApprovalRule(rule);
+        }
+        // A rule the automaton cannot handle
+        ApprovalRule regexRule = new ApprovalRule("[a-c]bc", Collections.singletonList("@regex"));
+        rules.add(regexRule);
+        sectionBuilder.addApprovalRule(regexRule);
+        Section section = sectionBuilder.build();
+
+        for (String filename : FILENAMES) {
+            List<String> expected = Collections.emptyList();
+            for (ApprovalRule rule : rules) {
+                if (rule.getFilePattern().matcher(filename).find()) {
+                    expected = rule.getApprovers().isEmpty() ? section.getDefaultApprovers() : rule.getApprovers();
+                }
+            }
+            assertEquals(expected, section.getApprovers(filename), "Filename |" + filename + "|");
+        }
+    }
+
+    @Test
+    void verifyAnchors() {
+        GlobAutomaton.Builder builder = new GlobAutomaton.Builder();
+        assertTrue(builder.add(0, "^a|b$"));
+        GlobAutomaton automaton = builder.build();
+        assertTrue(automaton.matches("axx"));
+        assertTrue(automaton.matches("xxb"));
+        assertFalse(automaton.matches("xax"));
+        assertFalse(automaton.matches("xbx"));
+    }
+
+    @Test
+    void verifyUnsupported() {
+        for (String regex : Arrays.asList("\\d", "[a-z]", "a{2}", "a*?", "a++", "(?i)a", "(a", "a)", "$*", "\\Q*\\E")) {
+            GlobAutomaton.Builder builder = new GlobAutomaton.Builder();
+            assertFalse(builder.add(0, regex), "Should not support " + regex);
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static nl.basjes.codeowners.TestUtils.assertOwners;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestReloadingCodeOwners {
+
+    private static final class RecordingListener implements ReloadingCodeOwners.Listener {
+        private final List<CodeOwners> reloaded = new CopyOnWriteArrayList<>();
+        private final List<Exception> failures = new CopyOnWriteArrayList<>();
+        private final CountDownLatch reloadedLatch = new CountDownLatch(1);
+
+        @Override
+        public void reloaded(Path file, CodeOwners codeOwners, Duration reloadTime) {
+            assertFalse(reloadTime.isNegative());
+            reloaded.add(codeOwners);
+            reloadedLatch.countDown();
+        }
+
+        @Override
+        public void reloadFailed(Path file, Exception exception) {
+            failures.add(exception);
+        }
+    }
+
+    // Force a different modification time because some filesystems only have a 1 or 2 second resolution.
+    private static void write(Path file, String content, int generation) throws IOException {
+        Files.write(file, content.getBytes(UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000_000_000L + generation * 10_000L));
+    }
+
+    @Test
+    void reloadOnChange(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("CODEOWNERS");
+        write(file, "*.md @docs\n", 1);
+
+        RecordingListener listener = new RecordingListener();
+        try (ReloadingCodeOwners reloading = new ReloadingCodeOwners(file, listener)) {
+            CodeOwners first = reloading.get();
+            assertOwners(first, "README.md", "@docs");
+
+            // Nothing changed
+            assertFalse(reloading.reloadIfChanged());
+            assertSame(first, reloading.get());
+
+            // Touched but the content is the same
+            write(file, "*.md @docs\n", 2);
+            assertFalse(reloading.reloadIfChanged());
+            assertSame(first, reloading.get());
+
+            write(file, "*.md @writers\n", 3);
+            assertTrue(reloading.reloadIfChanged());
+            assertOwners(reloading.get(), "README.md", "@writers");
+            // The old instance is untouched
+            assertOwners(first, "README.md", "@docs");
+
+            assertEquals(1, listener.reloaded.size());
+            assertSame(reloading.get(), listener.reloaded.get(0));
+            assertTrue(listener.failures.isEmpty());
+        }
+    }
+
+    @Test
+    void keepPreviousOnFailure(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("CODEOWNERS");
+        write(file, "*.md @docs\n", 1);
+
+        RecordingListener listener = new RecordingListener();
+        try (ReloadingCodeOwners reloading = new ReloadingCodeOwners(file, listener)) {
+            CodeOwners first = reloading.get();
+
+            Files.delete(file);
+            assertFalse(reloading.reloadIfChanged());
+            assertSame(first, reloading.get());
+            assertEquals(1, listener.failures.size());
+            assertTrue(listener.failures.get(0) instanceof IOException);
+
+            write(file, "*.md @writers\n", 2);
+            assertTrue(reloading.reloadIfChanged());
+            assertOwners(reloading.get(), "README.md", "@writers");
+        }
+    }
+
+    @Test
+    void keepPreviousOnStructuralProblems(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("CODEOWNERS");
+        write(file, "*.md @docs\n", 1);
+
+        RecordingListener listener = new RecordingListener();
+        try (ReloadingCodeOwners reloading = new ReloadingCodeOwners(file, listener)) {
+            CodeOwners first = reloading.get();
+
+            // The same section both required and optional
+            write(file, "[Documentation]\n*.md @writers\n^[Documentation]\n*.txt @writers\n", 2);
+            assertFalse(reloading.reloadIfChanged());
+            assertSame(first, reloading.get());
+            assertEquals(1, listener.failures.size());
+            assertTrue(listener.failures.get(0).getMessage().contains("structural problems"));
+
+            // Only reported once
+            assertFalse(reloading.reloadIfChanged());
+            assertEquals(1, listener.failures.size());
+
+            // Back to the content that is still in use
+            write(file, "*.md @docs\n", 3);
+            assertFalse(reloading.reloadIfChanged());
+            assertSame(first, reloading.get());
+
+            write(file, "*.md @writers\n", 4);
+            assertTrue(reloading.reloadIfChanged());
+            assertOwners(reloading.get(), "README.md", "@writers");
+            assertEquals(1, listener.reloaded.size());
+        }
+    }
+
+    @Test
+    void reloadWithSyntaxErrors(@TempDir Path directory) throws IOException {
+        // The syntax error on the first line means the file must be read again for the full parser.
+        Path file = directory.resolve("CODEOWNERS");
+        write(file, "foo!bar @a\n*.md @docs\n", 1);
+
+        RecordingListener listener = new RecordingListener();
+        try (ReloadingCodeOwners reloading = new ReloadingCodeOwners(file, listener)) {
+            assertOwners(reloading.get(), "README.md", "@docs");
+
+            // A change after the syntax error is still seen as a change
+            write(file, "foo!bar @a\n*.md @dics\n", 2);
+            assertTrue(reloading.reloadIfChanged());
+            assertOwners(reloading.get(), "README.md", "@dics");
+            assertTrue(listener.failures.isEmpty());
+        }
+    }
+
+    @Test
+    void listenerIsRequired(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("CODEOWNERS");
+        write(file, "*.md @docs\n", 1);
+        assertThrows(NullPointerException.class, () -> new ReloadingCodeOwners(file, null));
+    }
+
+    @Test
+    void pollIntervalMustBePositive(@TempDir Path directory) throws IOException, InterruptedException {
+        Path file = directory.resolve("CODEOWNERS");
+        write(file, "*.md @docs\n", 1);
+        RecordingListener listener = new RecordingListener();
+        assertThrows(IllegalArgumentException.class, () -> new ReloadingCodeOwners(file, Duration.ZERO, listener));
+        assertThrows(IllegalArgumentException.class, () -> new ReloadingCodeOwners(file, Duration.ofMillis(-1), listener));
+
+        // Less than a millisecond is fine
+        try (ReloadingCodeOwners reloading = new ReloadingCodeOwners(file, Duration.ofNanos(100_000), listener)) {
+            write(file, "*.md @writers\n", 2);
+            assertTrue(listener.reloadedLatch.await(10, TimeUnit.SECONDS));
+            assertOwners(reloading.get(), "README.md", "@writers");
+        }
+    }
+
+    @Test
+    void reloadByPolling(@TempDir Path directory) throws IOException, InterruptedException {
+        Path file = directory.resolve("CODEOWNERS");
+        write(file, "*.md @docs\n", 1);
+
+        RecordingListener listener = new RecordingListener();
+        try (ReloadingCodeOwners reloading = new ReloadingCodeOwners(file, Duration.ofMillis(10), listener)) {
+            write(file, "*.md @writers\n", 2);
+            assertTrue(listener.reloadedLatch.await(10, TimeUnit.SECONDS));
+            assertOwners(reloading.get(), "README.md", "@writers");
+        }
+    }
+
+}
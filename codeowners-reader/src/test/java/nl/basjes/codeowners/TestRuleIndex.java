@@ -0,0 +1,150 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.codeowners;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static nl.basjes.codeowners.TestGlobAutomaton.FILENAMES;
+import static nl.basjes.codeowners.TestGlobAutomaton.FILE_EXPRESSIONS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestRuleIndex {
+
+    private static List<ApprovalRule> toRules(List<String> fileExpressions) {
+        List<ApprovalRule> rules = new ArrayList<>();
+        for (String fileExpression : fileExpressions) {
+            rules.add(new ApprovalRule(fileExpression, Collections.emptyList()));
+        }
+        return rules;
+    }
+
+    private static int expectedLastMatch(List<ApprovalRule> rules, String filename) {
+        int expected = -1;
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i).getFilePattern().matcher(filename).find()) {
+                expected = i;
+            }
+        }
+        return expected;
+    }
+
+    @Test
+    void verifyEachRuleSameAsRegex() {
+        for (String fileExpression : FILE_EXPRESSIONS) {
+            List<ApprovalRule> rules = toRules(Collections.singletonList(fileExpression));
+            RuleIndex ruleIndex = new RuleIndex(rules);
+            for (String filename : FILENAMES) {
+                assertEquals(expectedLastMatch(rules, filename), ruleIndex.lastMatchingRule(filename),
+                    "Expression |" + fileExpression + "| on |" + filename + "|");
+            }
+            // Also without the leading '/'
+            for (String filename : FILENAMES) {
+                String relative = filename.replaceAll("^/", "");
+                assertEquals(expectedLastMatch(rules, relative), ruleIndex.lastMatchingRule(relative),
+                    "Expression |" + fileExpression + "| on |" + relative + "|");
+            }
+        }
+    }
+
+    @Test
+    void verifyAllFilesInIsSafe() {
+        List<String> names = Arrays.asList("x.txt", "README.md", ".gitignore", "docs", "x y", "😀");
+        List<String> subPaths = Arrays.asList("docs/x.txt", "foo/bar/x.js", "README.md/x");
+        for (String fileExpression : FILE_EXPRESSIONS) {
+            List<ApprovalRule> rules = toRules(Collections.singletonList(fileExpression));
+            RuleIndex ruleIndex = new RuleIndex(rules);
+            for (String directory : FILENAMES) {
+                if (!directory.endsWith("/")) {
+                    continue;
+                }
+                boolean allUnder = ruleIndex.lastRuleMatchingAllFilesUnder(directory) == 0;
+                boolean allIn = ruleIndex.lastRuleMatchingAllFilesIn(directory) == 0;
+                if (allUnder) {
+                    assertTrue(allIn, "Expression |" + fileExpression + "| on |" + directory + "|");
+                    for (String subPath : subPaths) {
+                        assertEquals(0, expectedLastMatch(rules, directory + subPath),
+                            "Expression |" + fileExpression + "| on |" + directory + subPath + "|");
+                    }
+                }
+                if (allIn) {
+                    // Then really every file in there must match
+                    for (String name : names) {
+                        assertEquals(0, expectedLastMatch(rules, directory + name),
+                            "Expression |" + fileExpression + "| on |" + directory + name + "|");
+                    }
+                }
+            }
+        }
+
+        RuleIndex ruleIndex = new RuleIndex(toRules(Arrays.asList(
+            "*",                        // 0: Everything
+            "/services/billing/",       // 1: Anchored directory
+            "/README",                  // 2: Anchored file (or directory)
+            "docs/",                    // 3: Directory name
+            "*.md",                     // 4: Suffix
+            "/src/**/java/",            // 5: General
+            "/tools/*",                 // 6: General, only the files directly in the directory
+            "*.txt"                     // 7: Only some files
+        )));
+        assertEquals(0, ruleIndex.lastRuleMatchingAllFilesUnder("/"));
+        assertEquals(0, ruleIndex.lastRuleMatchingAllFilesUnder("/services/"));
+        assertEquals(1, ruleIndex.lastRuleMatchingAllFilesUnder("/services/billing/"));
+        assertEquals(1, ruleIndex.lastRuleMatchingAllFilesUnder("/services/billing/sub/"));
+        assertEquals(2, ruleIndex.lastRuleMatchingAllFilesUnder("/README/"));
+        assertEquals(0, ruleIndex.lastRuleMatchingAllFilesUnder("/READMEX/"));
+        assertEquals(3, ruleIndex.lastRuleMatchingAllFilesUnder("/foo/docs/"));
+        assertEquals(4, ruleIndex.lastRuleMatchingAllFilesUnder("/foo/index.md/"));
+        assertEquals(5, ruleIndex.lastRuleMatchingAllFilesUnder("/src/main/java/"));
+        assertEquals(0, ruleIndex.lastRuleMatchingAllFilesUnder("/src/main/"));
+        assertEquals(0, ruleIndex.lastRuleMatchingAllFilesUnder("/tools/"));
+        assertEquals(6, ruleIndex.lastRuleMatchingAllFilesIn("/tools/"));
+        assertEquals(0, ruleIndex.lastRuleMatchingAllFilesIn("/tools/sub/"));
+        assertEquals(5, ruleIndex.lastRuleMatchingAllFilesIn("/src/main/java/"));
+    }
+
+    @Test
+    void verifyBuckets() {
+        List<ApprovalRule> rules = toRules(Arrays.asList(
+            "*",                        // Everything
+            "/services/billing/",       // Anchored directory
+            "/README.md",               // Anchored file
+            "pom.xml",                  // Name
+            "docs/",                    // Directory name
+            "*.md",                     // Suffix
+            ".gitignore",               // Suffix (no implicit /**/ )
+            ".github/",                 // Directory suffix
+            "path\\ with\\ spaces/",    // Directory name with spaces
+            "/docs/*.md",               // General
+            "/dir2/*/*",                // General
+            "src/main/java/"            // General
+        ));
+        RuleIndex ruleIndex = new RuleIndex(rules);
+        assertEquals(3, ruleIndex.getNumberOfGeneralRules());
+
+        for (String filename : FILENAMES) {
+            assertEquals(expectedLastMatch(rules, filename), ruleIndex.lastMatchingRule(filename), "Filename |" + filename + "|");
+        }
+    }
+
+}
@@ -36,6 +36,7 @@ public class TestUtils {
     }
 
     private static void assertOwnersInternal(CodeOwners codeOwners, String filename, boolean anyOrderIsValid, String... expectedApproversParam) {
+        assertSameAsAllRules(codeOwners, filename);
         List<String> expectedApprovers = Arrays.asList(expectedApproversParam);
         List<String> actualApprovers = codeOwners.getAllApprovers(filename);
         if (anyOrderIsValid) {
@@ -48,9 +49,7 @@ public class TestUtils {
                 actualApprovers,
                 "Filename \"" + filename + "\" should have approvers " + expectedApprovers + " but got " + actualApprovers);
         } catch (AssertionFailedError afe) {
-            codeOwners.setVerbose(true);
-            codeOwners.getAllApprovers(filename);
-            codeOwners.setVerbose(false);
+            codeOwners.getAllApprovers(filename, true);
             throw afe;
         }
     }
@@ -66,6 +65,7 @@ public class TestUtils {
 
 
     private static void assertMandatoryOwnersInternal(CodeOwners codeOwners, String filename, boolean anyOrderIsValid, String... expectedApproversParam) {
+        assertSameAsAllRules(codeOwners, filename);
         List<String> expectedApprovers = Arrays.asList(expectedApproversParam);
         List<String> actualApprovers = codeOwners.getMandatoryApprovers(filename);
         if (anyOrderIsValid) {
@@ -78,13 +78,31 @@ public class TestUtils {
                 actualApprovers,
                 "Filename \"" + filename + "\" should have mandatory approvers " + expectedApprovers + " but got " + actualApprovers);
         } catch (AssertionFailedError afe) {
-            codeOwners.setVerbose(true);
-            codeOwners.getMandatoryApprovers(filename);
-            codeOwners.setVerbose(false);
+            codeOwners.getMandatoryApprovers(filename, true);
             throw afe;
         }
     }
 
+    /**
+     * The last matching rule of each section must be the same as when checking all rules from first to last.
+     */
+    public static void assertSameAsAllRules(CodeOwners codeOwners, String filename) {
+        String matchFileName = CanonicalPath.of(filename).getPath();
+        for (Section section : codeOwners.getSections().values()) {
+            List<ApprovalRule> approvalRules = section.getApprovalRules();
+            int expectedRule = -1;
+            for (int ruleIndex = 0; ruleIndex < approvalRules.size(); ruleIndex++) {
+                if (approvalRules.get(ruleIndex).getFilePattern().matcher(matchFileName).find()) {
+                    expectedRule = ruleIndex;
+                }
+            }
+            assertEquals(
+                expectedRule,
+                section.lastMatchingRule(matchFileName),
+                "Filename \"" + filename + "\" in section [" + section.getName() + "]");
+        }
+    }
+
     public static void assertOwners(String codeOwners, String filename, String... expectedOwners) {
         assertOwners(new CodeOwners(codeOwners), filename, expectedOwners);
     }
@@ -18,8 +18,12 @@
 package nl.basjes.maven.enforcer.codeowners;
 
 import nl.basjes.codeowners.CodeOwners;
+import nl.basjes.gitignore.FileTreeEntry;
 import nl.basjes.gitignore.GitIgnore;
+import nl.basjes.gitignore.GitIndex;
+import nl.basjes.gitignore.GitRepository;
 import nl.basjes.gitignore.GitIgnoreFileSet;
+import nl.basjes.maven.enforcer.codeowners.CodeOwnersSessionCache.ProjectScan;
 import nl.basjes.maven.enforcer.codeowners.utils.ProblemTable;
 import nl.basjes.maven.enforcer.codeowners.utils.StringTable;
 import org.apache.maven.enforcer.rule.api.AbstractEnforcerRule;
@@ -30,14 +34,30 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static nl.basjes.gitignore.GitIgnore.standardizeFilename;
-import static nl.basjes.gitignore.Utils.findAllNonIgnored;
+import static nl.basjes.gitignore.Utils.streamAllNonIgnoredEntriesLoadingGitIgnores;
 
 @SuppressWarnings("unused") // Used by the enforcer-plugin that finds it via the @Named annotation
 @Named("codeOwners") // rule name - must start from lowercase character
@@ -53,6 +73,14 @@ public class CodeOwnersEnforcerRule extends AbstractEnforcerRule {
 
     private boolean allNewlyCreatedFilesMustHaveCodeOwner = false;
 
+    private boolean useGitIndex = false;
+
+    // If set only the files added since this revision (and their directories) are checked.
+    private String changedFilesSince = null;
+
+    // The number of threads used to determine the approvers; 0 (or less) means one per available processor.
+    private int threads = 1;
+
     private boolean verbose = false;
 
     private boolean showApprovers = false;
@@ -63,15 +91,28 @@ public class CodeOwnersEnforcerRule extends AbstractEnforcerRule {
 
     private final MavenProject project;
 
+    // The internal files that are used by common SCMs.
+    private static final String SCM_INTERNAL_FILES =
+        "/.git/\n" +
+        "/.hg/\n" +
+        ".svn/\n";
+
+    private final CodeOwnersSessionCache sessionCache;
+
+    // The result of scanning the project which is needed by both the getCacheId and the execute.
+    private boolean projectScanned = false;
+    private GitIndex gitIndex = null;
+    private ProjectScan projectScan = null;
+    private ChangedFiles changedFiles = null;
+
     @Inject
-    public CodeOwnersEnforcerRule(MavenProject project) {
+    public CodeOwnersEnforcerRule(MavenProject project, CodeOwnersSessionCache sessionCache) {
         this.project = project;
+        this.sessionCache = sessionCache;
     }
 
     public void execute() throws EnforcerRuleException {
-        if (baseDir == null) {
-            baseDir = project.getBasedir();
-        }
+        resolveBaseDir();
         getLog().debug("BaseDir=|"+baseDir+"|");
 
          boolean runGitlabMembersCheck = false;
@@ -89,8 +130,13 @@ public class CodeOwnersEnforcerRule extends AbstractEnforcerRule {
             }
         }
 
-        // Get the ignore rules
-        GitIgnoreFileSet gitIgnores = loadAllGitIgnoreFiles(baseDir);
+        boolean checkExistingFiles = allFilesMustHaveCodeOwner || allExisingFilesMustHaveCodeOwner;
+        boolean checkNewlyCreatedFiles = allFilesMustHaveCodeOwner || allNewlyCreatedFilesMustHaveCodeOwner;
+
+        // Normally already done while determining the cache id.
+        scanProject();
+        GitIgnoreFileSet gitIgnores = projectScan.getGitIgnores();
+        List<FileTreeEntry> allNonIgnoredFilesAndDirectoriesInProject = projectScan.getAllNonIgnoredFilesAndDirectories();
 
         // Get the codeowners
         CodeOwners codeOwners = loadCodeOwners(baseDir, codeOwnersFile);
@@ -109,48 +155,48 @@ public class CodeOwnersEnforcerRule extends AbstractEnforcerRule {
             getLog().info("=================================\n");
         }
 
-        // Get a list of all files in the project and sort them
-        Path baseDirPath = baseDir.toPath();
-        List<Path> allNonIgnoredFilesAndDirectoriesInProject =
-            findAllNonIgnored(gitIgnores)
-                .stream()
-                .map(baseDirPath::relativize)
-                .sorted()
-                .collect(Collectors.toList());
-
-        // Because all files have been forced to be project relative we must change the gitIgnores matching.
-        gitIgnores.assumeQueriesAreProjectRelative();
-
         if (showApprovers) {
-            // Run this listing without the verbose set to keep the output usable
-            codeOwners.setVerbose(false);
-            gitIgnores.setVerbose(false);
             printApprovers(allNonIgnoredFilesAndDirectoriesInProject, codeOwners);
         }
 
-        // Set everything to the requested verbosity
-        codeOwners.setVerbose(verbose);
-        gitIgnores.setVerbose(verbose);
+        if (changedFiles != null) {
+            getLog().info("Only checking the " + changedFiles.files.size() + " files added since " +
+                changedFilesSince + " (" + changedFiles.baseCommit + ").");
+            if (checkExistingFiles) {
+                allNonIgnoredFilesHaveApprovers(changedFiles.files, codeOwners);
+            }
+            if (checkNewlyCreatedFiles) {
+                allDirectoriesHaveApproversForNewFiles(changedFiles.directories, codeOwners);
+            }
+        }
 
-        if (allFilesMustHaveCodeOwner || allExisingFilesMustHaveCodeOwner) {
-            List<String> allNonIgnoredFilesInProject = allNonIgnoredFilesAndDirectoriesInProject
-                .stream()
-                .filter(path -> path.toFile().isFile())
-                .map(Path::toString)
-                .collect(Collectors.toList());
+        if (checkExistingFiles && changedFiles == null) {
+            if (gitIndex == null) {
+                List<String> allNonIgnoredFilesInProject = allNonIgnoredFilesAndDirectoriesInProject
+                    .stream()
+                    .filter(FileTreeEntry::isRegularFile)
+                    .map(entry -> entry.getPath().toString())
+                    .collect(Collectors.toList());
 
-            allNonIgnoredFilesHaveApprovers(allNonIgnoredFilesInProject, codeOwners);
+                allNonIgnoredFilesHaveApprovers(allNonIgnoredFilesInProject, codeOwners);
+            } else {
+                try (Stream<String> allTrackedFiles = gitIndex.streamTrackedFiles()) {
+                    allNonIgnoredFilesHaveApprovers(allTrackedFiles::iterator, codeOwners);
+                } catch (UncheckedIOException e) {
+                    throw new EnforcerRuleException("Unable to read the git index: " + e.getCause().getMessage(), e);
+                }
+            }
         }
 
-        if (allFilesMustHaveCodeOwner || allNewlyCreatedFilesMustHaveCodeOwner) {
-            List<String> newFileForEveryDirectory = allNonIgnoredFilesAndDirectoriesInProject
+        if (checkNewlyCreatedFiles && changedFiles == null) {
+            List<String> directories = allNonIgnoredFilesAndDirectoriesInProject
                 .stream()
-                .filter(path -> path.toFile().isDirectory())
-                .map(directoryName -> (directoryName + "/" + unlikelyFilename).replace("//", "/"))
-                .filter(gitIgnores::keepFile)
+                .filter(FileTreeEntry::isDirectory)
+                .map(entry -> entry.getPath().toString())
+                .filter(directoryName -> newFilesAreNotIgnored(gitIgnores, directoryName))
                 .collect(Collectors.toList());
 
-            allNonIgnoredFilesHaveApprovers(newFileForEveryDirectory, codeOwners);
+            allDirectoriesHaveApproversForNewFiles(directories, codeOwners);
         }
 
         if (runGitlabMembersCheck) {
@@ -166,7 +212,59 @@ public class CodeOwnersEnforcerRule extends AbstractEnforcerRule {
 
     // ------------------------------------------
 
-    GitIgnoreFileSet loadAllGitIgnoreFiles(File baseDir) {
+    private void resolveBaseDir() {
+        if (baseDir == null) {
+            baseDir = project.getBasedir();
+        }
+    }
+
+    /**
+     * Find the git index, the ignore rules and a list of all files in the project (sorted) in a single walk over the project.
+     * This is only done once even if both the getCacheId and the execute need it.
+     * The walk itself is shared with all other modules (in the same build) that have the same baseDir
+     * as long as no files were added or removed in the walked directories.
+     */
+    private void scanProject() throws EnforcerRuleException {
+        if (projectScanned) {
+            return;
+        }
+        resolveBaseDir();
+
+        // The existing files can also be taken from the git index
+        gitIndex = useGitIndex ? loadGitIndex(baseDir) : null;
+
+        // If this is null all files must be checked.
+        changedFiles = changedFilesSince == null ? null : findChangedFiles(baseDir, changedFilesSince);
+
+        boolean checkNewlyCreatedFiles = allFilesMustHaveCodeOwner || allNewlyCreatedFilesMustHaveCodeOwner;
+        boolean needAllFiles = changedFiles == null && (gitIndex == null || checkNewlyCreatedFiles);
+        if (needAllFiles || showApprovers) {
+            boolean[] walked = {false};
+            projectScan = sessionCache.getProjectScan(baseDir, verbose, () -> {
+                walked[0] = true;
+                GitIgnoreFileSet gitIgnores = createGitIgnoreFileSet();
+                List<Path> loadedGitIgnoreFiles = new ArrayList<>();
+                List<FileTreeEntry> allNonIgnored = loadAllGitIgnoreFilesAndFindAllNonIgnored(baseDir, gitIgnores, loadedGitIgnoreFiles::add);
+                // Because all files have been forced to be project relative we must change the gitIgnores matching.
+                gitIgnores.assumeQueriesAreProjectRelative();
+                return new ProjectScan(gitIgnores, allNonIgnored, loadedGitIgnoreFiles);
+            });
+            if (!walked[0]) {
+                getLog().info("Reusing the earlier scan of " + baseDir + " (" +
+                    projectScan.getLoadedGitIgnoreFiles().size() + " GitIgnore files).");
+            }
+        } else {
+            // Nothing needs the files in the project.
+            GitIgnoreFileSet gitIgnores = createGitIgnoreFileSet();
+            gitIgnores.assumeQueriesAreProjectRelative();
+            projectScan = new ProjectScan(gitIgnores, Collections.emptyList(), Collections.emptyList());
+        }
+        projectScanned = true;
+    }
+
+    // ------------------------------------------
+
+    GitIgnoreFileSet createGitIgnoreFileSet() {
         // Get the files that are ignored by the SCM
         GitIgnoreFileSet gitIgnores = new GitIgnoreFileSet(this.baseDir, false)
             .assumeQueriesIncludeProjectBaseDir();
@@ -174,24 +272,146 @@ public class CodeOwnersEnforcerRule extends AbstractEnforcerRule {
         gitIgnores.setVerbose(verbose);
 
         // Start with the internal files that are used by common SCMs.
-        gitIgnores.add(new GitIgnore(
-            "/.git/\n" +
-            "/.hg/\n" +
-            ".svn/\n"
-        ));
-
-        // Load all available gitignore configs.
-        List<Path> loadedFiles = gitIgnores.addAllGitIgnoreFiles();
-        for (Path loadedFile : loadedFiles) {
-            getLog().info("Using GitIgnore : " + pathToLoggingString(baseDir.toPath().relativize(loadedFile)));
+        gitIgnores.add(new GitIgnore(SCM_INTERNAL_FILES));
+        return gitIgnores;
+    }
+
+    /**
+     * Load all available gitignore configs while finding all non-ignored files and directories.
+     * @return The list (sorted by path) of all non-ignored files and directories relative to the baseDir.
+     * Each entry retains the file type it had during the walk so the filesystem need not be asked again.
+     */
+    List<FileTreeEntry> loadAllGitIgnoreFilesAndFindAllNonIgnored(File baseDir, GitIgnoreFileSet gitIgnores, Consumer<Path> loadedGitIgnoreFiles) {
+        Path baseDirPath = baseDir.toPath();
+        try (Stream<FileTreeEntry> allNonIgnored = streamAllNonIgnoredEntriesLoadingGitIgnores(gitIgnores, true,
+                loadedFile -> {
+                    loadedGitIgnoreFiles.accept(loadedFile);
+                    getLog().info("Using GitIgnore : " + pathToLoggingString(baseDirPath.relativize(loadedFile).toString()));
+                })) {
+            return allNonIgnored
+                .map(entry -> entry.relativize(baseDirPath))
+                .sorted(Comparator.comparing(FileTreeEntry::getPath))
+                .collect(Collectors.toList());
         }
+    }
 
-        return gitIgnores;
+    // ------------------------------------------
+
+    /**
+     * @return The git index of the project or null if the baseDir is not the top level of a git work tree.
+     */
+    GitIndex loadGitIndex(File baseDir) throws EnforcerRuleException {
+        try {
+            GitIndex gitIndex = GitIndex.forWorkTree(baseDir.toPath());
+            if (gitIndex == null) {
+                getLog().warn("No git index found in " + baseDir + ": walking the project to find all existing files.");
+            } else {
+                getLog().info("Using the git index (version " + gitIndex.getVersion() + ") for the existing files.");
+            }
+            return gitIndex;
+        } catch (IOException e) {
+            throw new EnforcerRuleException("Unable to read the git index: " + e.getMessage(), e);
+        }
     }
 
     // ------------------------------------------
 
-    CodeOwners loadCodeOwners(File baseDir, File codeOwnersFile) throws EnforcerRuleException {
+    /**
+     * The files that were added (or renamed) since a base revision.
+     * Files that only have a different content keep the same approvers and thus need no check.
+     */
+    static final class ChangedFiles {
+        final String baseCommit;
+        // The added files (sorted) relative to the baseDir.
+        final List<String> files;
+        // The directories (and all parent directories) of the added files in which new files are not ignored.
+        final List<String> directories;
+
+        ChangedFiles(String baseCommit, List<String> files, List<String> directories) {
+            this.baseCommit = baseCommit;
+            this.files = files;
+            this.directories = directories;
+        }
+    }
+
+    /**
+     * Compare the files tracked in the git index with the files in the base revision.
+     * @return The changed files or null if all files must be checked because the CODEOWNERS or a .gitignore file changed.
+     */
+    ChangedFiles findChangedFiles(File baseDir, String baseRevision) throws EnforcerRuleException {
+        Path baseDirPath = baseDir.toPath();
+        try {
+            GitIndex currentIndex = GitIndex.forWorkTree(baseDirPath);
+            if (currentIndex == null) {
+                getLog().warn("No git index found in " + baseDir + ": checking all files.");
+                return null;
+            }
+            GitRepository repository = GitRepository.open(baseDirPath);
+            String baseCommit = repository.resolve(baseRevision);
+
+            File resolvedCodeOwnersFile = findCodeOwnersFile(baseDir);
+            if (resolvedCodeOwnersFile == null) {
+                return null; // The execute will report this.
+            }
+            String codeOwnersPath = standardizeFilename(baseDirPath.relativize(resolvedCodeOwnersFile.toPath()).toString());
+            if (!Arrays.equals(repository.readFile(baseCommit, codeOwnersPath), Files.readAllBytes(resolvedCodeOwnersFile.toPath()))) {
+                getLog().info("The CODEOWNERS changed since " + baseRevision + ": checking all files.");
+                return null;
+            }
+
+            Set<String> baseFiles = new HashSet<>(repository.listFiles(baseCommit));
+            List<String> currentFiles;
+            try (Stream<String> allTrackedFiles = currentIndex.streamTrackedFiles()) {
+                currentFiles = allTrackedFiles.collect(Collectors.toList());
+            }
+
+            Set<String> gitIgnoreFiles = new TreeSet<>();
+            Stream.concat(baseFiles.stream(), currentFiles.stream())
+                .filter(file -> file.equals(".gitignore") || file.endsWith("/.gitignore"))
+                .forEach(gitIgnoreFiles::add);
+            for (String gitIgnoreFile : gitIgnoreFiles) {
+                Path currentGitIgnoreFile = baseDirPath.resolve(gitIgnoreFile);
+                byte[] current = Files.isRegularFile(currentGitIgnoreFile) ? Files.readAllBytes(currentGitIgnoreFile) : null;
+                if (!Arrays.equals(repository.readFile(baseCommit, gitIgnoreFile), current)) {
+                    getLog().info("The " + pathToLoggingString(gitIgnoreFile) + " changed since " + baseRevision + ": checking all files.");
+                    return null;
+                }
+            }
+
+            List<String> addedFiles = new ArrayList<>();
+            Set<String> directories = new TreeSet<>();
+            for (String file : currentFiles) {
+                if (!baseFiles.contains(file)) {
+                    addedFiles.add(file);
+                    for (int slash = file.lastIndexOf('/'); slash > 0; slash = file.lastIndexOf('/', slash - 1)) {
+                        directories.add(file.substring(0, slash));
+                    }
+                    directories.add("");
+                }
+            }
+            Collections.sort(addedFiles);
+
+            // The gitignore rules are the same as in the base revision.
+            GitIgnoreFileSet gitIgnores = repository.loadGitIgnoreFileSet(baseCommit);
+            gitIgnores.add(new GitIgnore(SCM_INTERNAL_FILES));
+            List<String> notIgnoredDirectories = directories
+                .stream()
+                .filter(directoryName -> newFilesAreNotIgnored(gitIgnores, directoryName))
+                .collect(Collectors.toList());
+
+            return new ChangedFiles(baseCommit, addedFiles, notIgnoredDirectories);
+        } catch (IOException | UncheckedIOException e) {
+            throw new EnforcerRuleException("Unable to determine the files changed since " + baseRevision + ": " + e.getMessage(), e);
+        }
+    }
+
+    // ------------------------------------------
+
+    /**
+     * If no CODEOWNERS file was specified this tries the default locations.
+     * @return The CODEOWNERS file or null if none was found.
+     */
+    File findCodeOwnersFile(File baseDir) {
         List<String> commonCodeOwnersFiles = Arrays.asList(
             "/CODEOWNERS",
             "/.github/CODEOWNERS",
@@ -200,7 +420,6 @@ public class CodeOwnersEnforcerRule extends AbstractEnforcerRule {
         );
 
         if (this.codeOwnersFile == null) {
-            // If no file was specified we try the default locations
             for (String codeOwnersFileName : commonCodeOwnersFiles) {
                 File tryingFile = new File(baseDir + codeOwnersFileName);
                 if (tryingFile.exists() && tryingFile.isFile()) {
@@ -209,38 +428,68 @@ public class CodeOwnersEnforcerRule extends AbstractEnforcerRule {
                 }
             }
         }
+        return this.codeOwnersFile;
+    }
 
-        if (this.codeOwnersFile == null) {
+    CodeOwners loadCodeOwners(File baseDir, File codeOwnersFile) throws EnforcerRuleException {
+        if (findCodeOwnersFile(baseDir) == null) {
             throw new EnforcerRuleException("This project does NOT have a CODEOWNERS file");
         }
 
-        getLog().info("Using CODEOWNERS: " + pathToLoggingString(baseDir.toPath().relativize(this.codeOwnersFile.toPath())));
-        try {
-            CodeOwners codeOwners = new CodeOwners(this.codeOwnersFile);
-            getLog().debug(codeOwners.toString());
-            return codeOwners;
-        } catch (IOException e) {
-            throw new EnforcerRuleException("Unable to read the CODEOWNERS: " + this.codeOwnersFile, e);
-        }
+        getLog().info("Using CODEOWNERS: " + pathToLoggingString(baseDir.toPath().relativize(this.codeOwnersFile.toPath()).toString()));
+        CodeOwners codeOwners = sessionCache.getCodeOwners(this.codeOwnersFile, () -> {
+            try {
+                return new CodeOwners(this.codeOwnersFile);
+            } catch (IOException e) {
+                throw new EnforcerRuleException("Unable to read the CODEOWNERS: " + this.codeOwnersFile, e);
+            }
+        });
+        getLog().debug(codeOwners.toString());
+        return codeOwners;
     }
 
     // ------------------------------------------
 
-    void allNonIgnoredFilesHaveApprovers(List<String> filenames, CodeOwners codeOwners) throws EnforcerRuleException {
-        boolean pass = true;
-        List<String> filesWithoutApprover = new ArrayList<>();
+    void allNonIgnoredFilesHaveApprovers(Iterable<String> filenames, CodeOwners codeOwners) throws EnforcerRuleException {
+        List<String> filesWithoutApprover;
+
+        int effectiveThreads = getEffectiveThreads();
+        if (effectiveThreads == 1 || verbose) {
+            // The verbose output of the matching is only readable if done sequentially.
+            filesWithoutApprover = new ArrayList<>();
+            for (String filename : filenames) {
+                getLog().debug("Checking: ${baseDir}/" + filename);
+                List<String> approvers = codeOwners.getMandatoryApprovers(filename, verbose);
+                getLog().debug("- Approvers: " + approvers);
+                if (approvers.isEmpty()) {
+                    filesWithoutApprover.add(filename);
+                }
+            }
+        } else {
+            List<String> allFilenames = new ArrayList<>();
+            filenames.forEach(allFilenames::add);
+            getLog().debug("Checking " + allFilenames.size() + " files using " + effectiveThreads + " threads.");
+
+            Queue<String> failures = new ConcurrentLinkedQueue<>();
+            ForkJoinPool pool = new ForkJoinPool(effectiveThreads);
+            try {
+                codeOwners.forEachMandatoryApprovers(allFilenames, pool, (filename, approvers) -> {
+                    if (approvers.isEmpty()) {
+                        failures.add(filename);
+                    }
+                });
+            } finally {
+                pool.shutdown();
+            }
+            // The order in which the threads find the failures is random.
+            filesWithoutApprover = new ArrayList<>(failures);
+            Collections.sort(filesWithoutApprover);
+        }
 
-        for (String filename : filenames) {
-            getLog().debug("Checking: ${baseDir}/" + filename);
-            List<String> approvers = codeOwners.getMandatoryApprovers(filename);
-            getLog().debug("- Approvers: " + approvers);
-            if (approvers.isEmpty()) {
+        if (!filesWithoutApprover.isEmpty()) {
+            for (String filename : filesWithoutApprover) {
                 getLog().error("No approvers for " + pathToLoggingString(filename));
-                filesWithoutApprover.add(filename);
-                pass = false;
             }
-        }
-        if (!pass) {
             throw new EnforcerRuleException("Not all files had an approver: \n--> " +
                 String.join("\n--> ", filesWithoutApprover));
         }
@@ -248,20 +497,70 @@ public class CodeOwnersEnforcerRule extends AbstractEnforcerRule {
 
     // ------------------------------------------
 
-    void printApprovers(List<Path> paths, CodeOwners codeOwners) {
+    /**
+     * @return True if a new file (with the unlikelyFilename) in this directory would not be ignored.
+     */
+    private boolean newFilesAreNotIgnored(GitIgnoreFileSet gitIgnores, String directoryName) {
+        return gitIgnores.keepFile((directoryName + "/" + unlikelyFilename).replace("//", "/"));
+    }
+
+    /**
+     * Checks for each directory if ANY new file in it would have approvers.
+     * This is decided from the CODEOWNERS rules and not from a single example filename which may
+     * (by accident) match a rule that other new files would not match.
+     */
+    void allDirectoriesHaveApproversForNewFiles(List<String> directories, CodeOwners codeOwners) throws EnforcerRuleException {
+        List<String> directoriesWithoutApprover = new ArrayList<>();
+        for (String directory : directories) {
+            if (!codeOwners.isDirectoryFullyCovered(directory)) {
+                directoriesWithoutApprover.add((directory + "/").replace("//", "/"));
+            }
+        }
+        Collections.sort(directoriesWithoutApprover);
+
+        if (!directoriesWithoutApprover.isEmpty()) {
+            for (String directory : directoriesWithoutApprover) {
+                getLog().error("No approvers for all new files in " + pathToLoggingString(directory));
+            }
+            throw new EnforcerRuleException("Not all directories had an approver for new files: \n--> " +
+                String.join("\n--> ", directoriesWithoutApprover));
+        }
+    }
+
+    // ------------------------------------------
+
+    void printApprovers(List<FileTreeEntry> entries, CodeOwners codeOwners) {
+        List<String> paths = entries.stream().map(entry -> entry.getPath().toString()).collect(Collectors.toList());
+        Map<String, List<String>> allMandatoryApprovers;
+        int effectiveThreads = getEffectiveThreads();
+        if (effectiveThreads == 1) {
+            allMandatoryApprovers = codeOwners.getMandatoryApprovers(paths, Runnable::run);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(effectiveThreads);
+            try {
+                allMandatoryApprovers = codeOwners.getMandatoryApprovers(paths, pool);
+            } finally {
+                pool.shutdown();
+            }
+        }
+
         StringTable table = new StringTable();
         table.withHeaders("Path", "Mandatory Approvers");
-        for (Path path : paths) {
-            List<String> mandatoryApprovers = codeOwners.getMandatoryApprovers(path.toString());
+        for (FileTreeEntry entry : entries) {
+            List<String> mandatoryApprovers = allMandatoryApprovers.get(entry.getPath().toString());
             if (mandatoryApprovers.isEmpty()) {
-                table.addRow(pathToLoggingString(path), mandatoryApprovers.toString(), "<-- NO APPROVERS!");
+                table.addRow(pathToLoggingString(entry), mandatoryApprovers.toString(), "<-- NO APPROVERS!");
             } else {
-                table.addRow(pathToLoggingString(path), mandatoryApprovers.toString());
+                table.addRow(pathToLoggingString(entry), mandatoryApprovers.toString());
             }
         }
         getLog().info("\n" + table);
     }
 
+    private int getEffectiveThreads() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
     // ------------------------------------------
 
     private String pathToLoggingString(String path) {
@@ -274,8 +573,11 @@ public class CodeOwnersEnforcerRule extends AbstractEnforcerRule {
 
     // ------------------------------------------
 
-    private String pathToLoggingString(Path path) {
-        String filename = standardizeFilename(path.toString()) + (path.toFile().isDirectory()?"/":"");
+    private String pathToLoggingString(FileTreeEntry entry) {
+        String filename = standardizeFilename(entry.getPath().toString());
+        if (entry.isDirectory() && !filename.endsWith("/")) {
+            filename += "/";
+        }
         if (filename.startsWith("/")) {
             return "${baseDir}" + filename;
         }
@@ -289,14 +591,72 @@ public class CodeOwnersEnforcerRule extends AbstractEnforcerRule {
      * change that would cause the result to be different. Multiple cached results are stored
      * based on their id.
      * <p>
-     * The easiest way to do this is to return a hash computed from the values of your parameters.
+     * The id is a hash of the rule parameters, the resolved baseDir, the content of the CODEOWNERS
+     * and all loaded gitignore files and the list of all files that are checked.
+     * So all modules in a build that share the same baseDir only need to be checked once.
      * <p>
      * If your rule is not cacheable, then you don't need to override this method or return null
      */
     @Override
     public String getCacheId() {
-        // Because of the Gitlab API calls this cannot be cached.
-        return null;
+        if (gitlab != null) {
+            // Because of the Gitlab API calls this cannot be cached.
+            return null;
+        }
+        try {
+            scanProject();
+            resolveBaseDir();
+            File resolvedCodeOwnersFile = findCodeOwnersFile(baseDir);
+            if (resolvedCodeOwnersFile == null) {
+                return null; // The execute will report this.
+            }
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            updateDigest(digest, baseDir.getCanonicalPath());
+            updateDigest(digest, String.format(
+                "allFilesMustHaveCodeOwner=%b;allExisingFilesMustHaveCodeOwner=%b;allNewlyCreatedFilesMustHaveCodeOwner=%b;" +
+                "useGitIndex=%b;changedFilesSince=%s;verbose=%b;showApprovers=%b;unlikelyFilename=%s",
+                allFilesMustHaveCodeOwner, allExisingFilesMustHaveCodeOwner, allNewlyCreatedFilesMustHaveCodeOwner,
+                useGitIndex, changedFilesSince, verbose, showApprovers, unlikelyFilename));
+
+            updateDigest(digest, resolvedCodeOwnersFile.getCanonicalPath());
+            digest.update(Files.readAllBytes(resolvedCodeOwnersFile.toPath()));
+
+            for (Path gitIgnoreFile : projectScan.getLoadedGitIgnoreFiles()) {
+                updateDigest(digest, gitIgnoreFile.toString());
+                digest.update(Files.readAllBytes(gitIgnoreFile));
+            }
+
+            // A new (or removed) file changes the outcome.
+            for (FileTreeEntry entry : projectScan.getAllNonIgnoredFilesAndDirectories()) {
+                updateDigest(digest, (entry.isDirectory() ? "D:" : "F:") + entry.getPath());
+            }
+            if (changedFiles != null) {
+                updateDigest(digest, "B:" + changedFiles.baseCommit);
+                changedFiles.files.forEach(file -> updateDigest(digest, "C:" + file));
+                changedFiles.directories.forEach(directory -> updateDigest(digest, "D:" + directory));
+            }
+            if (gitIndex != null) {
+                try (Stream<String> allTrackedFiles = gitIndex.streamTrackedFiles()) {
+                    allTrackedFiles.forEach(trackedFile -> updateDigest(digest, "T:" + trackedFile));
+                }
+            }
+
+            StringBuilder cacheId = new StringBuilder("CodeOwners:");
+            for (byte b : digest.digest()) {
+                cacheId.append(String.format("%02x", b));
+            }
+            return cacheId.toString();
+        } catch (EnforcerRuleException | IOException | UncheckedIOException | NoSuchAlgorithmException e) {
+            // Do not cache; the execute will report the actual problem.
+            getLog().debug("Unable to determine the cache id: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void updateDigest(MessageDigest digest, String value) {
+        digest.update(value.getBytes(UTF_8));
+        digest.update((byte) 0); // Separator
     }
 
     // ------------------------------------------
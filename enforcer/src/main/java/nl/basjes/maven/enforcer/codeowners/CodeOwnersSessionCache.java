@@ -0,0 +1,177 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.basjes.maven.enforcer.codeowners;
+
+import lombok.Getter;
+import nl.basjes.codeowners.CodeOwners;
+import nl.basjes.gitignore.FileTreeEntry;
+import nl.basjes.gitignore.GitIgnoreFileSet;
+import org.apache.maven.SessionScoped;
+import org.apache.maven.enforcer.rule.api.EnforcerRuleException;
+
+import javax.inject.Named;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the loaded CODEOWNERS and the scanned project trees for the duration of a single Maven session.
+ * In a multi-module build all modules that point to the same files reuse what the first one loaded.
+ * A cached value is only used if the files it was made from still have the same size and timestamp.
+ * For a scanned project these are the gitignore files and all directories that were walked, so files that
+ * were created or removed (for example by an earlier module) in any of the non-ignored directories trigger a new walk.
+ * <p>
+ * In a parallel build the same value may be loaded by two modules at the same time; the last one wins.
+ */
+@Named
+@SessionScoped
+public class CodeOwnersSessionCache {
+
+    @FunctionalInterface
+    interface Loader<T> {
+        T load() throws EnforcerRuleException;
+    }
+
+    private final Map<String, Cached<CodeOwners>> codeOwners = new ConcurrentHashMap<>();
+    private final Map<String, Cached<ProjectScan>> projectScans = new ConcurrentHashMap<>();
+
+    /**
+     * @param codeOwnersFile The CODEOWNERS file
+     * @param loader Loads the CODEOWNERS if there is no valid cached instance.
+     * @return The (possibly cached) CodeOwners of this file.
+     */
+    CodeOwners getCodeOwners(File codeOwnersFile, Loader<CodeOwners> loader) throws EnforcerRuleException {
+        String key = canonicalPath(codeOwnersFile);
+        Cached<CodeOwners> cached = codeOwners.get(key);
+        if (cached != null && cached.isUnchanged()) {
+            return cached.value;
+        }
+        CodeOwners loaded = loader.load();
+        codeOwners.put(key, new Cached<>(loaded, Collections.singletonList(codeOwnersFile.toPath())));
+        return loaded;
+    }
+
+    /**
+     * @param baseDir The base directory that was scanned.
+     * @param verbose The verbosity of the GitIgnoreFileSet in the scan.
+     * @param loader Scans the project if there is no valid cached scan.
+     * @return The (possibly cached) scan of this project.
+     * Adding or removing an entry changes the timestamp of the directory it is in so
+     * stamping all non-ignored directories is enough to detect a different set of files.
+     */
+    ProjectScan getProjectScan(File baseDir, boolean verbose, Loader<ProjectScan> loader) throws EnforcerRuleException {
+        String key = canonicalPath(baseDir) + (verbose ? "|verbose" : "");
+        Cached<ProjectScan> cached = projectScans.get(key);
+        if (cached != null && cached.isUnchanged()) {
+            return cached.value;
+        }
+        ProjectScan scanned = loader.load();
+        Path baseDirPath = baseDir.toPath();
+        List<Path> sourceFiles = new ArrayList<>(scanned.getLoadedGitIgnoreFiles());
+        sourceFiles.add(baseDirPath);
+        for (FileTreeEntry entry : scanned.getAllNonIgnoredFilesAndDirectories()) {
+            if (entry.isDirectory()) {
+                sourceFiles.add(baseDirPath.resolve(entry.getPath()));
+            }
+        }
+        projectScans.put(key, new Cached<>(scanned, sourceFiles));
+        return scanned;
+    }
+
+    private static String canonicalPath(File file) throws EnforcerRuleException {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            throw new EnforcerRuleException("Unable to determine the canonical path of " + file, e);
+        }
+    }
+
+    // ------------------------------------------
+
+    /**
+     * The result of a single walk over a project.
+     * None of this may be changed after it was created because it can be shared by many modules.
+     */
+    @Getter
+    static final class ProjectScan {
+        // The ignore rules; queries MUST be relative to the project base directory.
+        private final GitIgnoreFileSet gitIgnores;
+        // All non-ignored files and directories (sorted by path) relative to the base directory.
+        private final List<FileTreeEntry> allNonIgnoredFilesAndDirectories;
+        // The gitignore files that were used.
+        private final List<Path> loadedGitIgnoreFiles;
+
+        ProjectScan(GitIgnoreFileSet gitIgnores, List<FileTreeEntry> allNonIgnoredFilesAndDirectories, List<Path> loadedGitIgnoreFiles) {
+            this.gitIgnores = gitIgnores;
+            this.allNonIgnoredFilesAndDirectories = Collections.unmodifiableList(allNonIgnoredFilesAndDirectories);
+            this.loadedGitIgnoreFiles = Collections.unmodifiableList(new ArrayList<>(loadedGitIgnoreFiles));
+        }
+    }
+
+    // ------------------------------------------
+
+    private static final class Cached<T> {
+        private final T value;
+        private final List<FileStamp> stamps = new ArrayList<>();
+
+        Cached(T value, List<Path> sourceFiles) {
+            this.value = value;
+            for (Path sourceFile : sourceFiles) {
+                stamps.add(new FileStamp(sourceFile));
+            }
+        }
+
+        boolean isUnchanged() {
+            return stamps.stream().allMatch(FileStamp::isUnchanged);
+        }
+    }
+
+    private static final class FileStamp {
+        private final Path file;
+        // With the full precision of the filesystem; null if the file did not exist.
+        private final FileTime lastModified;
+        private final long length;
+
+        FileStamp(Path file) {
+            this.file = file;
+            this.lastModified = lastModified(file);
+            this.length = file.toFile().length();
+        }
+
+        boolean isUnchanged() {
+            return Objects.equals(lastModified(file), lastModified) && file.toFile().length() == length;
+        }
+
+        private static FileTime lastModified(Path file) {
+            try {
+                return Files.getLastModifiedTime(file);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+}
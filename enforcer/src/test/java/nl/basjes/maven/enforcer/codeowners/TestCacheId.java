@@ -0,0 +1,147 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.basjes.maven.enforcer.codeowners;
+
+import nl.basjes.maven.enforcer.codeowners.GitlabConfiguration.AccessToken;
+import nl.basjes.maven.enforcer.codeowners.GitlabConfiguration.ProjectId;
+import nl.basjes.maven.enforcer.codeowners.GitlabConfiguration.ServerUrl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TestCacheId {
+
+    private static void write(Path directory, String filename, String content) throws IOException {
+        Path file = directory.resolve(filename);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(UTF_8));
+    }
+
+    // The rule parameters are normally injected by Maven into the private fields.
+    private static void set(CodeOwnersEnforcerRule rule, String fieldName, Object value) {
+        try {
+            Field field = CodeOwnersEnforcerRule.class.getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(rule, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to set " + fieldName, e);
+        }
+    }
+
+    private static CodeOwnersEnforcerRule createRule(Path directory, CodeOwnersSessionCache sessionCache) {
+        CodeOwnersEnforcerRule rule = new CodeOwnersEnforcerRule(null, sessionCache);
+        rule.setLog(new EnforcerTestLogger("TestCacheId"));
+        set(rule, "baseDir", directory.toFile());
+        return rule;
+    }
+
+    // A new session cache every time so nothing of an earlier scan is reused.
+    private static String cacheId(Path directory) {
+        return createRule(directory, new CodeOwnersSessionCache()).getCacheId();
+    }
+
+    private static void createProject(Path directory) throws IOException {
+        write(directory, "CODEOWNERS", "/src/ @dev\n");
+        write(directory, ".gitignore", "*.log\n");
+        write(directory, "src/main/Existing.java", "Existing");
+    }
+
+    @Test
+    void noCacheIdWithGitlab(@TempDir Path directory) throws IOException {
+        createProject(directory);
+        CodeOwnersEnforcerRule rule = createRule(directory, new CodeOwnersSessionCache());
+        assertNotNull(rule.getCacheId());
+
+        rule = createRule(directory, new CodeOwnersSessionCache());
+        set(rule, "gitlab", new GitlabConfiguration(new ServerUrl(), new ProjectId(), new AccessToken()));
+        assertNull(rule.getCacheId());
+    }
+
+    @Test
+    void changedCodeOwners(@TempDir Path directory) throws IOException {
+        createProject(directory);
+        String before = cacheId(directory);
+        assertNotNull(before);
+        assertEquals(before, cacheId(directory));
+
+        write(directory, "CODEOWNERS", "/src/ @someone_else\n");
+        assertNotEquals(before, cacheId(directory));
+    }
+
+    @Test
+    void changedGitIgnore(@TempDir Path directory) throws IOException {
+        createProject(directory);
+        write(directory, "src/.gitignore", "*.tmp\n");
+        String before = cacheId(directory);
+        assertNotNull(before);
+
+        // A nested .gitignore with the same set of non-ignored files
+        write(directory, "src/.gitignore", "*.bak\n");
+        assertNotEquals(before, cacheId(directory));
+    }
+
+    @Test
+    void addedFile(@TempDir Path directory) throws IOException {
+        createProject(directory);
+        String before = cacheId(directory);
+        assertNotNull(before);
+
+        // An ignored file does not change anything
+        write(directory, "src/main/Output.log", "Output");
+        assertEquals(before, cacheId(directory));
+
+        write(directory, "src/main/Added.java", "Added");
+        assertNotEquals(before, cacheId(directory));
+    }
+
+    @Test
+    void changedRuleFlag(@TempDir Path directory) throws IOException {
+        createProject(directory);
+        String before = cacheId(directory);
+        assertNotNull(before);
+
+        CodeOwnersEnforcerRule rule = createRule(directory, new CodeOwnersSessionCache());
+        set(rule, "allFilesMustHaveCodeOwner", true);
+        assertNotEquals(before, rule.getCacheId());
+    }
+
+    @Test
+    void sameBaseDirSameCacheId(@TempDir Path directory) throws IOException {
+        createProject(directory);
+        write(directory, "module1/pom.xml", "<project/>");
+        write(directory, "module2/pom.xml", "<project/>");
+
+        // Two modules in the same build which both use the top of the project as the baseDir
+        CodeOwnersSessionCache sessionCache = new CodeOwnersSessionCache();
+        String module1 = createRule(directory, sessionCache).getCacheId();
+        String module2 = createRule(directory.resolve("module2").resolve(".."), sessionCache).getCacheId();
+        assertNotNull(module1);
+        assertEquals(module1, module2);
+    }
+}
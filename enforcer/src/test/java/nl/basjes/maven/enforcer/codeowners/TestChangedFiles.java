@@ -0,0 +1,104 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.basjes.maven.enforcer.codeowners;
+
+import nl.basjes.maven.enforcer.codeowners.CodeOwnersEnforcerRule.ChangedFiles;
+import org.apache.maven.enforcer.rule.api.EnforcerRuleException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class TestChangedFiles {
+
+    private static boolean git(Path directory, String... arguments) throws IOException, InterruptedException {
+        ProcessBuilder processBuilder = new ProcessBuilder()
+            .directory(directory.toFile())
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        processBuilder.command().add("git");
+        processBuilder.command().addAll(Arrays.asList(arguments));
+        // Commits must not depend on the configuration of the machine running the tests.
+        Map<String, String> environment = processBuilder.environment();
+        environment.put("GIT_CONFIG_NOSYSTEM", "1");
+        environment.put("GIT_CONFIG_GLOBAL", "/dev/null");
+        environment.put("GIT_AUTHOR_NAME", "Tester");
+        environment.put("GIT_AUTHOR_EMAIL", "tester@example.nl");
+        environment.put("GIT_COMMITTER_NAME", "Tester");
+        environment.put("GIT_COMMITTER_EMAIL", "tester@example.nl");
+        return processBuilder.start().waitFor() == 0;
+    }
+
+    private static void write(Path directory, String filename, String content) throws IOException {
+        Path file = directory.resolve(filename);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(UTF_8));
+    }
+
+    @Test
+    void onlyAddedFiles(@TempDir Path directory) throws IOException, InterruptedException, EnforcerRuleException {
+        assumeTrue(git(directory, "init", "-q"), "Unable to run git");
+
+        write(directory, "CODEOWNERS", "/src/ @dev\n");
+        write(directory, ".gitignore", "*.log\n");
+        write(directory, "src/main/Existing.java", "Existing");
+        run(directory, "add", "-A");
+        run(directory, "commit", "-q", "-m", "Base");
+        run(directory, "tag", "base");
+
+        write(directory, "src/main/Existing.java", "Changed content");
+        write(directory, "src/new/Added.java", "Added");
+        write(directory, "docs/Added.md", "Added");
+        run(directory, "add", "-A");
+
+        CodeOwnersEnforcerRule rule = new CodeOwnersEnforcerRule(null, new CodeOwnersSessionCache());
+        rule.setLog(new EnforcerTestLogger("onlyAddedFiles"));
+
+        ChangedFiles changedFiles = rule.findChangedFiles(directory.toFile(), "base");
+        assertNotNull(changedFiles);
+        assertEquals(Arrays.asList("docs/Added.md", "src/new/Added.java"), changedFiles.files);
+        assertEquals(Arrays.asList("", "docs", "src", "src/new"), changedFiles.directories);
+
+        // A changed .gitignore requires checking everything
+        write(directory, "src/.gitignore", "*.tmp\n");
+        run(directory, "add", "-A");
+        assertNull(rule.findChangedFiles(directory.toFile(), "base"));
+        run(directory, "rm", "-q", "-f", "src/.gitignore");
+        assertNotNull(rule.findChangedFiles(directory.toFile(), "base"));
+
+        // A changed CODEOWNERS requires checking everything
+        write(directory, "CODEOWNERS", "* @dev\n");
+        assertNull(rule.findChangedFiles(directory.toFile(), "base"));
+    }
+
+    private static void run(Path directory, String... arguments) throws IOException, InterruptedException {
+        assertTrue(git(directory, arguments), "Failed: git " + String.join(" ", arguments));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.basjes.maven.enforcer.codeowners;
+
+import nl.basjes.codeowners.CodeOwners;
+import nl.basjes.gitignore.FileTreeEntry;
+import nl.basjes.gitignore.GitIgnoreFileSet;
+import nl.basjes.maven.enforcer.codeowners.CodeOwnersSessionCache.ProjectScan;
+import org.apache.maven.enforcer.rule.api.EnforcerRuleException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static nl.basjes.gitignore.Utils.streamAllNonIgnoredEntriesLoadingGitIgnores;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestCodeOwnersSessionCache {
+
+    @Test
+    void reuseUntilChanged(@TempDir Path directory) throws IOException, EnforcerRuleException {
+        Path codeOwnersFile = directory.resolve("CODEOWNERS");
+        Files.write(codeOwnersFile, "* @everyone\n".getBytes(UTF_8));
+        File file = codeOwnersFile.toFile();
+
+        CodeOwnersSessionCache cache = new CodeOwnersSessionCache();
+        AtomicInteger loads = new AtomicInteger();
+        CodeOwnersSessionCache.Loader<CodeOwners> loader = () -> {
+            loads.incrementAndGet();
+            try {
+                return new CodeOwners(file);
+            } catch (IOException e) {
+                throw new EnforcerRuleException(e);
+            }
+        };
+
+        CodeOwners first = cache.getCodeOwners(file, loader);
+        // Same file via a different path
+        CodeOwners second = cache.getCodeOwners(new File(directory.toFile(), "./CODEOWNERS"), loader);
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+
+        // Changed content (and size) means it must be loaded again
+        Files.write(codeOwnersFile, "* @someone_else\n".getBytes(UTF_8));
+        CodeOwners third = cache.getCodeOwners(file, loader);
+        assertNotSame(first, third);
+        assertEquals(2, loads.get());
+        assertEquals("[@someone_else]", third.getMandatoryApprovers("README.md").toString());
+    }
+
+    private static Path write(Path directory, String filename, String content) throws IOException {
+        Path file = directory.resolve(filename);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(UTF_8));
+    }
+
+    @Test
+    void rescanAfterFilesWereAdded(@TempDir Path directory) throws IOException, EnforcerRuleException {
+        write(directory, ".gitignore", "target/\n");
+        write(directory, "src/main/Existing.java", "Existing");
+        write(directory, "target/Output.class", "Output");
+
+        CodeOwnersSessionCache cache = new CodeOwnersSessionCache();
+        AtomicInteger scans = new AtomicInteger();
+        CodeOwnersSessionCache.Loader<ProjectScan> loader = () -> {
+            scans.incrementAndGet();
+            GitIgnoreFileSet gitIgnores = new GitIgnoreFileSet(directory.toFile(), false);
+            List<Path> loadedGitIgnoreFiles = new ArrayList<>();
+            try (Stream<FileTreeEntry> entries = streamAllNonIgnoredEntriesLoadingGitIgnores(gitIgnores, false, loadedGitIgnoreFiles::add)) {
+                return new ProjectScan(gitIgnores, entries.map(entry -> entry.relativize(directory)).collect(Collectors.toList()), loadedGitIgnoreFiles);
+            }
+        };
+
+        // So any change gets a different timestamp even on a filesystem with a coarse clock.
+        for (String dir : new String[]{"", "src", "src/main", "target"}) {
+            Files.setLastModifiedTime(directory.resolve(dir), FileTime.fromMillis(0));
+        }
+        ProjectScan first = cache.getProjectScan(directory.toFile(), false, loader);
+        assertSame(first, cache.getProjectScan(directory.toFile(), false, loader));
+        assertEquals(1, scans.get());
+
+        // New files in an ignored directory do not change the scan
+        write(directory, "target/Generated.java", "Generated");
+        assertSame(first, cache.getProjectScan(directory.toFile(), false, loader));
+        assertEquals(1, scans.get());
+
+        // A file created (for example by an earlier module) in a walked directory
+        write(directory, "src/main/Generated.java", "Generated");
+        ProjectScan second = cache.getProjectScan(directory.toFile(), false, loader);
+        assertNotSame(first, second);
+        assertEquals(2, scans.get());
+        assertTrue(second.getAllNonIgnoredFilesAndDirectories().stream()
+            .anyMatch(entry -> entry.getPath().toString().equals("src" + File.separator + "main" + File.separator + "Generated.java")));
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.gitignore;
+
+/**
+ * A filename in the form used to match the gitignore rules.
+ * <p>
+ * The filename is normalized only once: all '\' become '/', repeated '/' are reduced to one and it starts
+ * with a '/' (unless it starts with a Windows drive like "C:/").
+ * The positions of all '/' are retained so the directories on the path can be found without any
+ * further string or regex work.
+ */
+public final class CanonicalPath {
+
+    private final String path;
+    // The positions of all '/' in the path
+    private final int[] separators;
+    // A line terminator in the filename makes the regexes of the rules behave differently.
+    private final boolean hasLineTerminator;
+
+    private CanonicalPath(String path, int[] separators, boolean hasLineTerminator) {
+        this.path = path;
+        this.separators = separators;
+        this.hasLineTerminator = hasLineTerminator;
+    }
+
+    /**
+     * @param filename The filename (may use '\' as separator, need not start with a '/').
+     * @return The canonical form of the filename. If it already is canonical then the same String is retained.
+     */
+    public static CanonicalPath of(String filename) {
+        int length = filename.length();
+        boolean hasLineTerminator = false;
+        boolean isCanonical = true;
+        int numberOfSeparators = 0;
+        char previous = 0;
+        for (int i = 0; i < length; i++) {
+            char c = filename.charAt(i);
+            if (isLineTerminator(c)) {
+                hasLineTerminator = true;
+            }
+            if (c == '\\') {
+                c = '/';
+                isCanonical = false;
+            }
+            if (c == '/') {
+                if (previous == '/') {
+                    isCanonical = false;
+                } else {
+                    numberOfSeparators++;
+                }
+            }
+            previous = c;
+        }
+
+        // Same as the regex "^[a-zA-Z]:/.*" (the '.' does not match a line terminator)
+        boolean isWindowsDrive = !hasLineTerminator && length >= 3 && isAsciiLetter(filename.charAt(0)) &&
+            filename.charAt(1) == ':' && (filename.charAt(2) == '/' || filename.charAt(2) == '\\');
+        boolean addLeadingSeparator = !isWindowsDrive && (length == 0 || (filename.charAt(0) != '/' && filename.charAt(0) != '\\'));
+        if (addLeadingSeparator) {
+            numberOfSeparators++;
+            isCanonical = false;
+        }
+
+        String path;
+        if (isCanonical) {
+            path = filename;
+        } else {
+            StringBuilder builder = new StringBuilder(length + 1);
+            if (addLeadingSeparator) {
+                builder.append('/');
+            }
+            previous = addLeadingSeparator ? '/' : 0;
+            for (int i = 0; i < length; i++) {
+                char c = filename.charAt(i);
+                if (c == '\\') {
+                    c = '/';
+                }
+                if (c != '/' || previous != '/') {
+                    builder.append(c);
+                }
+                previous = c;
+            }
+            path = builder.toString();
+        }
+
+        int[] separators = new int[numberOfSeparators];
+        int separator = 0;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                separators[separator++] = i;
+            }
+        }
+        return new CanonicalPath(path, separators, hasLineTerminator);
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * @param baseDir A canonical directory name (without a trailing '/').
+     * @return The path relative to the baseDir (i.e. "/dir/file") or null if it does not start with the baseDir.
+     */
+    CanonicalPath relativeTo(String baseDir) {
+        if (!path.startsWith(baseDir)) {
+            return null;
+        }
+        int start = baseDir.length();
+        if (start < path.length() && path.charAt(start) == '/') {
+            start++;
+        }
+        int skipped = 0;
+        while (skipped < separators.length && separators[skipped] < start) {
+            skipped++;
+        }
+        int[] relativeSeparators = new int[separators.length - skipped + 1];
+        for (int i = skipped; i < separators.length; i++) {
+            relativeSeparators[i - skipped + 1] = separators[i] - start + 1;
+        }
+        return new CanonicalPath('/' + path.substring(start), relativeSeparators, hasLineTerminator);
+    }
+
+    /**
+     * @return The canonical filename.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return The number of '/' in the canonical filename.
+     */
+    public int getNumberOfSeparators() {
+        return separators.length;
+    }
+
+    /**
+     * @param index Which '/' (0 is the first one)
+     * @return The position of this '/' in the canonical filename.
+     */
+    public int getSeparator(int index) {
+        return separators[index];
+    }
+
+    /**
+     * @return True if this is a directory name (i.e. it ends with a '/').
+     */
+    public boolean isDirectory() {
+        return !path.isEmpty() && path.charAt(path.length() - 1) == '/';
+    }
+
+    boolean hasLineTerminator() {
+        return hasLineTerminator;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CanonicalPath)) {
+            return false;
+        }
+        return path.equals(((CanonicalPath) o).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.gitignore;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * A process wide cache of the compiled gitignore rules.
+ * <p>
+ * In a large project the same rules (like "target/" or "*.class") occur in many .gitignore files.
+ * All identical rules (same expression and same base directory) share a single compiled Pattern.
+ * The cache is bounded; when full the least recently used entry is evicted.
+ */
+public final class CompiledRuleCache {
+
+    /**
+     * The maximum number of compiled rules that are retained.
+     */
+    public static final int MAXIMUM_SIZE = 10_000;
+
+    private static final Map<String, CompiledRule> CACHE = new LinkedHashMap<String, CompiledRule>(1024, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledRule> eldest) {
+            return size() > MAXIMUM_SIZE;
+        }
+    };
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private CompiledRuleCache() {
+    }
+
+    /**
+     * The regex and Pattern of a single rule. Immutable so it can be shared by all GitIgnore instances.
+     */
+    static final class CompiledRule {
+        final String fileRegex;
+        final Pattern filePattern;
+
+        CompiledRule(String fileRegex, Pattern filePattern) {
+            this.fileRegex = fileRegex;
+            this.filePattern = filePattern;
+        }
+    }
+
+    /**
+     * @param projectRelativeBaseDir The (normalized) base directory of the rule.
+     * @param fileExpression The expression as it was found in the .gitignore file.
+     * @param compiler Compiles the rule if it is not in the cache. Exceptions are passed on and nothing is cached.
+     * @return The (possibly shared) compiled rule.
+     */
+    static CompiledRule get(String projectRelativeBaseDir, String fileExpression, Function<String, CompiledRule> compiler) {
+        // Neither can contain a newline.
+        String key = projectRelativeBaseDir + '\n' + fileExpression;
+        CompiledRule compiledRule;
+        synchronized (CACHE) {
+            compiledRule = CACHE.get(key);
+        }
+        if (compiledRule != null) {
+            HITS.incrementAndGet();
+            return compiledRule;
+        }
+        MISSES.incrementAndGet();
+
+        // Compiled outside the lock; if two threads do this at the same time the first one wins.
+        compiledRule = compiler.apply(fileExpression);
+        synchronized (CACHE) {
+            CompiledRule existing = CACHE.putIfAbsent(key, compiledRule);
+            return existing == null ? compiledRule : existing;
+        }
+    }
+
+    /**
+     * @return The number of times a rule was found in the cache.
+     */
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    /**
+     * @return The number of times a rule had to be compiled.
+     */
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    /**
+     * @return The number of compiled rules currently in the cache.
+     */
+    public static int size() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    /**
+     * Remove all compiled rules and reset the hit and miss counters.
+     */
+    public static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+            HITS.set(0);
+            MISSES.set(0);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.gitignore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A path found while walking a directory tree together with its file attributes.
+ * <p>
+ * The attributes are read only once (when the entry is found) so the users of the walk can see if it is a
+ * file or a directory without asking the filesystem again.
+ */
+public final class FileTreeEntry {
+
+    private final Path path;
+    private final BasicFileAttributes attributes;
+
+    private FileTreeEntry(Path path, BasicFileAttributes attributes) {
+        this.path = path;
+        this.attributes = attributes;
+    }
+
+    /**
+     * @param path The path to read the attributes of (symbolic links are followed).
+     * @return The entry, or null if the path does not exist (anymore).
+     */
+    static FileTreeEntry of(Path path) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            try {
+                // A broken symbolic link is still an entry (but not a file and not a directory).
+                attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException e2) {
+                return null;
+            }
+        }
+        return new FileTreeEntry(path, attributes);
+    }
+
+    /**
+     * @param baseDir The directory this entry must be made relative to.
+     * @return The same entry (with the same attributes) with a path relative to the baseDir.
+     */
+    public FileTreeEntry relativize(Path baseDir) {
+        return new FileTreeEntry(baseDir.relativize(path), attributes);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return The attributes as they were when this entry was found.
+     */
+    public BasicFileAttributes getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return True if this is a directory (or a symbolic link to a directory).
+     */
+    public boolean isDirectory() {
+        return attributes.isDirectory();
+    }
+
+    /**
+     * @return True if this is a regular file (or a symbolic link to a regular file).
+     */
+    public boolean isRegularFile() {
+        return attributes.isRegularFile();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FileTreeEntry)) {
+            return false;
+        }
+        FileTreeEntry that = (FileTreeEntry) o;
+        return path.equals(that.path) && isDirectory() == that.isDirectory();
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path + (isDirectory() ? "/" : "");
+    }
+}
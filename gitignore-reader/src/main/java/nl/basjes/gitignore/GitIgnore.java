@@ -17,16 +17,24 @@
 
 package nl.basjes.gitignore;
 
+import nl.basjes.gitignore.CompiledRuleCache.CompiledRule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -48,17 +56,70 @@ public class GitIgnore {
     private final List<IgnoreRule> ignoreRules = new ArrayList<>();
     private boolean verbose;
 
+    // Most rules (like "target", ".idea/" or "*.log") only match a complete name or the end of a name
+    // of a single file or directory. These are found directly via these maps instead of via their regex.
+    private final Map<String, List<Integer>> nameRules = new HashMap<>();
+    private final Map<String, List<Integer>> suffixRules = new HashMap<>();
+    private int[] suffixLengths = new int[0];
+    // Rules (like "/build/" or "docs/**/*.pdf") that can only match below a fixed directory.
+    private final Map<String, List<Integer>> anchoredRules = new HashMap<>();
+    // All other rules
+    private final List<Integer> regexRules = new ArrayList<>();
+
     // Load the gitignore from a file
     public GitIgnore(File file) throws IOException {
         this("", file);
     }
 
     public GitIgnore(String projectRelativeBaseDir, File file) throws IOException {
-        this(projectRelativeBaseDir, readFileToString(file));
+        this(projectRelativeBaseDir, file.toPath());
+    }
+
+    // Load the gitignore from a file which is read as a stream (the file is never loaded as a whole).
+    public GitIgnore(Path file) throws IOException {
+        this("", file);
+    }
+
+    public GitIgnore(String projectRelativeBaseDir, Path file) throws IOException {
+        this(projectRelativeBaseDir, file, false);
+    }
+
+    /**
+     * Load the gitignore from a file which is read as a stream (the file is never loaded as a whole).
+     * @param projectRelativeBaseDir The directory (relative to the project) this gitignore applies to.
+     * @param file The gitignore file.
+     * @param memoryMapped True to read the file via a memory mapping (useful for very large generated files).
+     * @throws IOException In case of problems.
+     */
+    public GitIgnore(String projectRelativeBaseDir, Path file, boolean memoryMapped) throws IOException {
+        this.verbose = false;
+        this.projectRelativeBaseDir = toBaseDir(projectRelativeBaseDir);
+        try (BufferedReader reader = new BufferedReader(
+                memoryMapped ? new MappedFileReader(file) : new InputStreamReader(Files.newInputStream(file), UTF_8))) {
+            readRules(reader);
+        }
+    }
+
+    /**
+     * Load the gitignore from a reader.
+     * @param projectRelativeBaseDir The directory (relative to the project) this gitignore applies to.
+     * @param reader The content of the gitignore. This is NOT closed.
+     * @throws IOException In case of problems.
+     */
+    public GitIgnore(String projectRelativeBaseDir, Reader reader) throws IOException {
+        this.verbose = false;
+        this.projectRelativeBaseDir = toBaseDir(projectRelativeBaseDir);
+        readRules(reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader));
     }
 
-    private static String readFileToString(File file) throws IOException {
-        return new String(Files.readAllBytes(file.toPath()), UTF_8);
+    /**
+     * Load the gitignore from an UTF-8 encoded stream.
+     * @param projectRelativeBaseDir The directory (relative to the project) this gitignore applies to.
+     * @param inputStream The content of the gitignore. This is NOT closed.
+     * @throws IOException In case of problems.
+     */
+    public GitIgnore(String projectRelativeBaseDir, InputStream inputStream) throws IOException {
+        this(projectRelativeBaseDir, new InputStreamReader(inputStream, UTF_8));
     }
 
     public GitIgnore(String gitIgnoreContent) {
@@ -75,33 +136,66 @@ public class GitIgnore {
 
     public GitIgnore(String projectRelativeBaseDir, String gitIgnoreContent, boolean verbose) {
         this.verbose = verbose;
-        this.projectRelativeBaseDir = standardizeFilename(projectRelativeBaseDir + GITIGNORE_PATH_SEPARATOR);
+        this.projectRelativeBaseDir = toBaseDir(projectRelativeBaseDir);
 
         if (gitIgnoreContent == null) {
             return; // Nothing to read
         }
 
-        BufferedReader reader = new BufferedReader(new StringReader(gitIgnoreContent));
-        String line;
         try {
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) {
-                    continue;
-                }
-                if (line.startsWith("#")) {
-                    continue;
-                }
-                if (line.startsWith("!")) {
-                    ignoreRules.add(new IgnoreRule(this.projectRelativeBaseDir, true, line.substring(1), verbose));
-                } else {
-                    ignoreRules.add(new IgnoreRule(this.projectRelativeBaseDir, false, line, verbose));
-                }
-            }
+            readRules(new BufferedReader(new StringReader(gitIgnoreContent)));
         } catch (IOException io) {
             LOG.error("Got an IOException while reading the gitignore file content: {}", io.toString());
         }
+    }
+
+    private static String toBaseDir(String projectRelativeBaseDir) {
+        return standardizeFilename(projectRelativeBaseDir + GITIGNORE_PATH_SEPARATOR);
+    }
+
+    // Only a single line is in memory at any time.
+    private void readRules(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("!")) {
+                addRule(new IgnoreRule(this.projectRelativeBaseDir, true, line.substring(1), verbose));
+            } else {
+                addRule(new IgnoreRule(this.projectRelativeBaseDir, false, line, verbose));
+            }
+        }
+    }
+
+    private void addRule(IgnoreRule ignoreRule) {
+        int ruleNr = ignoreRules.size();
+        ignoreRules.add(ignoreRule);
 
+        if (!projectRelativeBaseDir.equals(ignoreRule.getProjectRelativeBaseDir())) {
+            regexRules.add(ruleNr);
+            return;
+        }
+        String literalName = ignoreRule.getLiteralName();
+        if (literalName == null) {
+            String anchoredDirectory = ignoreRule.getAnchoredDirectory();
+            if (anchoredDirectory == null) {
+                regexRules.add(ruleNr);
+            } else {
+                anchoredRules.computeIfAbsent(anchoredDirectory, directory -> new ArrayList<>()).add(ruleNr);
+            }
+            return;
+        }
+        if (ignoreRule.isLiteralSuffix()) {
+            suffixRules.computeIfAbsent(literalName, name -> new ArrayList<>()).add(ruleNr);
+            suffixLengths = suffixRules.keySet().stream().mapToInt(String::length).distinct().sorted().toArray();
+        } else {
+            nameRules.computeIfAbsent(literalName, name -> new ArrayList<>()).add(ruleNr);
+        }
     }
 
     /**
@@ -110,13 +204,19 @@ public class GitIgnore {
      * @return NULL: not matched, True: must be ignored, False: it must be UNignored
      */
     public Boolean isIgnoredFile(String filename) {
-        if (verbose) {
-            LOG.info("# vvvvvvvvvvvvvvvvvvvvvvvvvvv");
-            LOG.info("Checking: {}", filename);
-        }
-        String matchFileName = standardizeFilename(filename);
+        return isIgnoredFile(CanonicalPath.of(filename));
+    }
+
+    /**
+     * Checks if the file matches the stored expressions.
+     * @param filename The filename to be checked (which is a project relative filename).
+     * @return NULL: not matched, True: must be ignored, False: it must be UNignored
+     */
+    public Boolean isIgnoredFile(CanonicalPath filename) {
+        String matchFileName = filename.getPath();
 
         if (verbose) {
+            LOG.info("# vvvvvvvvvvvvvvvvvvvvvvvvvvv");
             LOG.info("Matching: {}", matchFileName);
         }
 
@@ -127,7 +227,8 @@ public class GitIgnore {
             if (verbose) {
                 LOG.info("# Not in my baseDir: {}", projectRelativeBaseDir);
             }
-        } else {
+        } else if (verbose) {
+            // All rules in order so every rule can log what it did.
             for (IgnoreRule ignoreRule : ignoreRules) {
                 Boolean ruleVerdict = ignoreRule.isIgnoredFile(matchFileName);
                 if (ruleVerdict == null) {
@@ -153,6 +254,12 @@ public class GitIgnore {
                     break;
                 }
             }
+        } else if (!filename.hasLineTerminator()) {
+            // The regex of a rule can never match across a line terminator (the "." does not match it) and
+            // its "$" also matches before a line terminator at the end; only the regexes handle that.
+            mustBeIgnored = isIgnoredFileViaIndex(filename);
+        } else {
+            mustBeIgnored = isIgnoredFileFromTheEnd(matchFileName);
         }
 
         if (verbose) {
@@ -169,6 +276,169 @@ public class GitIgnore {
         return mustBeIgnored;
     }
 
+    /**
+     * Gives the same verdict as checking all rules in order.
+     * The forward evaluation (last match wins, but a matching directory match that ignores always wins)
+     * only needs to know the last matching rule and if any directory match ignored the file.
+     * So the literal rules are looked up first and then the other rules that can match are checked from
+     * the last one down, stopping at the first match.
+     * Only if that is a negation the earlier directory matches must be checked.
+     */
+    private Boolean isIgnoredFileViaIndex(CanonicalPath filename) {
+        String matchFileName = filename.getPath();
+        Matches matches = new Matches();
+
+        // All names of the files and directories below the base directory (which ends with a '/').
+        int length = matchFileName.length();
+        int start = projectRelativeBaseDir.length();
+        int numberOfSeparators = filename.getNumberOfSeparators();
+        int separator = 0;
+        while (separator < numberOfSeparators && filename.getSeparator(separator) < start) {
+            separator++;
+        }
+        int[] anchored = new int[0];
+        while (start < length) {
+            int end = separator < numberOfSeparators ? filename.getSeparator(separator++) : length;
+            boolean isDirectory = end < length; // The rules ending in '/' only match if a '/' follows.
+            if (end > start) {
+                String name = matchFileName.substring(start, end);
+                matches.addAll(nameRules.get(name), isDirectory);
+                for (int suffixLength : suffixLengths) {
+                    if (suffixLength > name.length()) {
+                        break;
+                    }
+                    matches.addAll(suffixRules.get(name.substring(name.length() - suffixLength)), isDirectory);
+                }
+            }
+            if (isDirectory && !anchoredRules.isEmpty()) {
+                anchored = append(anchored, anchoredRules.get(matchFileName.substring(projectRelativeBaseDir.length(), end + 1)));
+            }
+            start = end + 1;
+        }
+
+        if (matches.ignoredByDirectoryMatch) {
+            return TRUE;
+        }
+
+        Arrays.sort(anchored);
+        FromTheEnd candidates = new FromTheEnd(regexRules, anchored);
+
+        int lastMatch = matches.lastMatch;
+        int ruleNr = candidates.next();
+        while (ruleNr > lastMatch) {
+            int candidate = ruleNr;
+            ruleNr = candidates.next();
+            if (ignoreRules.get(candidate).isIgnoredFile(matchFileName) != null) {
+                lastMatch = candidate;
+                break;
+            }
+        }
+
+        if (lastMatch < 0) {
+            return null;
+        }
+        if (!ignoreRules.get(lastMatch).isNegate()) {
+            return TRUE;
+        }
+
+        // Unignored, unless an earlier directory match ignores it.
+        for (; ruleNr >= 0; ruleNr = candidates.next()) {
+            IgnoreRule ignoreRule = ignoreRules.get(ruleNr);
+            if (ignoreRule.isDirectoryMatch() && ignoreRule.isIgnoredFile(matchFileName) != null) {
+                return TRUE;
+            }
+        }
+        return Boolean.FALSE;
+    }
+
+    private static int[] append(int[] ruleNrs, List<Integer> more) {
+        if (more == null) {
+            return ruleNrs;
+        }
+        int[] result = Arrays.copyOf(ruleNrs, ruleNrs.length + more.size());
+        for (int i = 0; i < more.size(); i++) {
+            result[ruleNrs.length + i] = more.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Gives the rule numbers of two ascending lists merged from the highest down; -1 when there are no more.
+     */
+    private static final class FromTheEnd {
+        private final List<Integer> first;
+        private final int[] second;
+        private int firstIndex;
+        private int secondIndex;
+
+        private FromTheEnd(List<Integer> first, int[] second) {
+            this.first = first;
+            this.second = second;
+            firstIndex = first.size() - 1;
+            secondIndex = second.length - 1;
+        }
+
+        private int next() {
+            int fromFirst = firstIndex < 0 ? -1 : first.get(firstIndex);
+            int fromSecond = secondIndex < 0 ? -1 : second[secondIndex];
+            if (fromFirst > fromSecond) {
+                firstIndex--;
+                return fromFirst;
+            }
+            if (fromSecond >= 0) {
+                secondIndex--;
+            }
+            return fromSecond;
+        }
+    }
+
+    /**
+     * Gives the same verdict as checking all rules in order by checking all rules from the last one down.
+     */
+    private Boolean isIgnoredFileFromTheEnd(String matchFileName) {
+        int ruleNr = ignoreRules.size() - 1;
+        for (; ruleNr >= 0; ruleNr--) {
+            if (ignoreRules.get(ruleNr).isIgnoredFile(matchFileName) != null) {
+                break;
+            }
+        }
+        if (ruleNr < 0) {
+            return null;
+        }
+        if (!ignoreRules.get(ruleNr).isNegate()) {
+            return TRUE;
+        }
+        // Unignored, unless an earlier directory match ignores it.
+        while (--ruleNr >= 0) {
+            IgnoreRule ignoreRule = ignoreRules.get(ruleNr);
+            if (ignoreRule.isDirectoryMatch() && ignoreRule.isIgnoredFile(matchFileName) != null) {
+                return TRUE;
+            }
+        }
+        return Boolean.FALSE;
+    }
+
+    private final class Matches {
+        private int lastMatch = -1;
+        private boolean ignoredByDirectoryMatch = false;
+
+        private void addAll(List<Integer> ruleNrs, boolean isDirectory) {
+            if (ruleNrs == null) {
+                return;
+            }
+            for (int ruleNr : ruleNrs) {
+                IgnoreRule ignoreRule = ignoreRules.get(ruleNr);
+                if (isDirectory || !ignoreRule.isLiteralOnlyDirectories()) {
+                    lastMatch = Math.max(lastMatch, ruleNr);
+                    // Only a rule that ignores can be a directory match
+                    if (ignoreRule.isDirectoryMatch()) {
+                        ignoredByDirectoryMatch = true;
+                    }
+                }
+            }
+        }
+    }
+
     public static String separatorsToUnix(String path) {
         return path.replace("\\", "/");
     }
@@ -179,11 +449,7 @@ public class GitIgnore {
      * @return A standardized form.
      */
     public static String standardizeFilename(String filename) {
-        String unixifiedName = separatorsToUnix(filename);
-        if (!unixifiedName.matches("^[a-zA-Z]:/.*")) {
-            unixifiedName = GITIGNORE_PATH_SEPARATOR + unixifiedName;
-        }
-        return unixifiedName.replaceAll("/+", "/");
+        return CanonicalPath.of(filename).getPath();
     }
 
     /**
@@ -240,6 +506,15 @@ public class GitIgnore {
         private final Pattern filePattern;
         private boolean verbose;
 
+        // If not null then this rule only matches a single file or directory name that is exactly
+        // this (i.e. "target") or ends with this (i.e. "*.log"); the regex is then not needed.
+        private final String literalName;
+        private final boolean literalSuffix;
+        private final boolean literalOnlyDirectories;
+
+        // If not null then this rule can only match files below this directory (relative to the base directory).
+        private final String anchoredDirectory;
+
         public IgnoreRule(String projectRelativeBaseDir, boolean negate, final String fileExpression, boolean verbose) {
             this.verbose = verbose;
             String baseDirRegex;
@@ -256,6 +531,108 @@ public class GitIgnore {
             this.fileExpression = fileExpression;
             this.directoryMatch = !negate && fileExpression.endsWith("/");
 
+            // Identical rules in other .gitignore files share the same compiled Pattern.
+            CompiledRule compiledRule = CompiledRuleCache.get(this.projectRelativeBaseDir, fileExpression,
+                expression -> compile(baseDirRegex, negate, expression));
+            filePattern = compiledRule.filePattern;
+            if (verbose) {
+                LOG.info("IgnoreRule for expression {}   -->   Regex {}", this.fileExpression, compiledRule.fileRegex);
+            }
+
+            literalOnlyDirectories = fileExpression.endsWith("/");
+            String name = literalOnlyDirectories ? fileExpression.substring(0, fileExpression.length() - 1) : fileExpression;
+            literalSuffix = name.startsWith("*");
+            if (literalSuffix) {
+                name = name.substring(1);
+            }
+            literalName = isLiteral(fileExpression, name) ? name : null;
+            anchoredDirectory = toAnchoredDirectory(compiledRule.fileRegex, "/".equals(this.projectRelativeBaseDir));
+        }
+
+        /**
+         * @param fileRegex The regex of the rule (without the base directory part)
+         * @param inRootDirectory If the base directory is the root of the project
+         * @return The directory (i.e. "docs/" or "src/main/") at the start of the regex that every matching
+         * filename must start with (after the base directory), or null if there is no such directory.
+         */
+        static String toAnchoredDirectory(String fileRegex, boolean inRootDirectory) {
+            String regex = fileRegex;
+            if (regex.startsWith("^/")) {
+                if (!inRootDirectory) {
+                    return null;
+                }
+                regex = regex.substring(2);
+            }
+            // An alternation in the regex (other than at the end) means the start is not fixed.
+            if (regex.replace("(/|$)", "").indexOf('|') >= 0) {
+                return null;
+            }
+
+            StringBuilder directory = new StringBuilder();
+            int length = regex.length();
+            int i = 0;
+            for (; i < length; i++) {
+                char c = regex.charAt(i);
+                if (c == '\\' && i + 1 < length && ".$()".indexOf(regex.charAt(i + 1)) >= 0) {
+                    directory.append(regex.charAt(++i));
+                } else if (Character.isLetterOrDigit(c) || "/-_ ~@#%=:,;'\"&!<>`".indexOf(c) >= 0) {
+                    directory.append(c);
+                } else {
+                    break;
+                }
+            }
+            // A quantifier makes the last character optional or repeatable.
+            if (i < length && "*+?{".indexOf(regex.charAt(i)) >= 0 && directory.length() > 0) {
+                directory.setLength(directory.length() - 1);
+            }
+            // The globstar in "docs/**/*.pdf" still needs a '/' after "docs".
+            if (regex.startsWith("(/.*)?/", i) && directory.length() > 0) {
+                directory.append('/');
+            }
+            int lastSlash = directory.lastIndexOf("/");
+            if (lastSlash <= 0 || directory.charAt(0) == '/') {
+                return null;
+            }
+            return directory.substring(0, lastSlash + 1);
+        }
+
+        /**
+         * @return True if the regex of the rule simply matches the name, or the end of the name, of a
+         * single file or directory. This must match what the conversion to the regex does.
+         */
+        private static boolean isLiteral(String fileExpression, String name) {
+            if (name.isEmpty() || fileExpression.startsWith("!") || !fileExpression.equals(fileExpression.trim())) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                switch (name.charAt(i)) {
+                    // Wildcards, escapes and the characters that have a special meaning in the regex.
+                    case '/':
+                    case '*':
+                    case '?':
+                    case '[':
+                    case ']':
+                    case '\\':
+                    case '^':
+                    case '|':
+                    case '+':
+                    case '{':
+                    case '}':
+                    // The regex handles these differently (filenames containing them never use the index,
+                    // see CanonicalPath.hasLineTerminator and its use in isIgnoredFile)
+                    case '\n':
+                    case '\r':
+                    case '\u0085':
+                    case '\u2028':
+                    case '\u2029':
+                        return false;
+                    default:
+                }
+            }
+            return true;
+        }
+
+        private static CompiledRule compile(String baseDirRegex, boolean negate, String fileExpression) {
             String fileRegex = fileExpression
                 .trim() // Clear leading and trailing spaces
 
@@ -354,15 +731,12 @@ public class GitIgnore {
 
             String finalRegex = baseDirRegex + fileRegex;
             try {
-                filePattern = Pattern.compile(finalRegex);
-                if (verbose) {
-                    LOG.info("IgnoreRule for expression {}   -->   Regex {}", this.fileExpression, fileRegex);
-                }
+                return new CompiledRule(fileRegex, Pattern.compile(finalRegex));
             } catch (PatternSyntaxException pse) {
                 String errorMsg = "You either have an invalid gitignore rule (which you should fix) " +
                     "or you have found an edge case that should be fixed. " +
                     "In the latter case please file a bug report to https://github.com/nielsbasjes/codeowners/issues " +
-                    "indicating that the expression >>>" + (negate?"!":"") + this.fileExpression + "<<< " +
+                    "indicating that the expression >>>" + (negate?"!":"") + fileExpression + "<<< " +
                     "was converted to regex >>>" + finalRegex + "<<< " +
                     "which triggered the error: " + pse.getMessage();
                 throw new PatternSyntaxException(errorMsg, finalRegex, pse.getIndex());
@@ -403,6 +777,30 @@ public class GitIgnore {
             return directoryMatch;
         }
 
+        boolean isNegate() {
+            return negate;
+        }
+
+        String getProjectRelativeBaseDir() {
+            return projectRelativeBaseDir;
+        }
+
+        String getLiteralName() {
+            return literalName;
+        }
+
+        boolean isLiteralSuffix() {
+            return literalSuffix;
+        }
+
+        boolean isLiteralOnlyDirectories() {
+            return literalOnlyDirectories;
+        }
+
+        String getAnchoredDirectory() {
+            return anchoredDirectory;
+        }
+
         /**
          * @return The directory in which this gitIgnore was located
          */
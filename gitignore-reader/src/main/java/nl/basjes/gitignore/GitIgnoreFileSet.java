@@ -30,6 +30,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static java.lang.Boolean.TRUE;
 import static java.util.Collections.emptyList;
@@ -46,9 +48,17 @@ public class GitIgnoreFileSet implements FileFilter {
     // This sorting is very important in the evaluation of the rules!
     private final TreeMap<String, List<GitIgnore>> gitIgnores = new TreeMap<>();
 
+    // The same lists as in the TreeMap, used to directly find the GitIgnore files of the parent directories of a file.
+    // These can be read while GitIgnore files are added concurrently (see addAllGitIgnoreFiles with a parallelism).
+    private final Map<String, List<GitIgnore>> gitIgnoresByBaseDir = new ConcurrentHashMap<>();
+
     // The "absolute" directory which is to be used as the project root for all the gitignore files.
     private final File projectBaseDir;
 
+    // The canonical forms of the project base directory as used to make a filename project relative.
+    private final String projectBaseDirPath;
+    private final String projectBaseDirAbsolutePath;
+
     public File getProjectBaseDir() {
         return projectBaseDir;
     }
@@ -75,6 +85,8 @@ public class GitIgnoreFileSet implements FileFilter {
     @SuppressWarnings("this-escape") // The 'this-escape' only applies to the optional auto-loading after the construction
     public GitIgnoreFileSet(final File projectBaseDir, boolean autoload) {
         this.projectBaseDir = projectBaseDir;
+        this.projectBaseDirPath = standardizeFilename(projectBaseDir.getPath());
+        this.projectBaseDirAbsolutePath = standardizeFilename(projectBaseDir.getAbsolutePath());
         if (autoload) {
             addAllGitIgnoreFiles();
         }
@@ -132,9 +144,13 @@ public class GitIgnoreFileSet implements FileFilter {
      *
      * @param gitIgnore The instance of the gitIgnore file.
      */
-    public void add(final GitIgnore gitIgnore) {
+    public synchronized void add(final GitIgnore gitIgnore) {
         gitIgnores
-            .computeIfAbsent(gitIgnore.getProjectRelativeBaseDir(), k -> new ArrayList<>())
+            .computeIfAbsent(gitIgnore.getProjectRelativeBaseDir(), baseDir -> {
+                List<GitIgnore> gitIgnoreList = new CopyOnWriteArrayList<>();
+                gitIgnoresByBaseDir.put(baseDir, gitIgnoreList);
+                return gitIgnoreList;
+            })
             .add(gitIgnore);
         gitIgnore.setVerbose(verbose);
     }
@@ -168,10 +184,93 @@ public class GitIgnoreFileSet implements FileFilter {
      * @return List of the loaded gitIgnore files.
      */
     public List<Path> addAllGitIgnoreFiles(boolean includeGlobalGitignore) {
-        return addAllGitIgnoreFiles(projectBaseDir.toPath(), 128, includeGlobalGitignore);
+        long hits = CompiledRuleCache.getHits();
+        long misses = CompiledRuleCache.getMisses();
+        List<Path> loadedGitIgnoreFiles = addAllGitIgnoreFiles(projectBaseDir.toPath(), 128, includeGlobalGitignore);
+        // These are process wide counters so with concurrent loading these are an approximation.
+        LOG.debug("Loaded {} gitignore files: {} rules were already compiled, {} rules were compiled.",
+            loadedGitIgnoreFiles.size(), CompiledRuleCache.getHits() - hits, CompiledRuleCache.getMisses() - misses);
+        return loadedGitIgnoreFiles;
     }
 
 
+    /**
+     * Automatically find all .gitignore files starting in the projects root and add them all to the set.
+     * The subdirectories of a directory are searched concurrently; the .gitignore file of a directory is
+     * always added before its subdirectories are searched so the end result is the same as the sequential variant.
+     *
+     * @param includeGlobalGitignore Whether to also include the global gitignore
+     * @param parallelism            The maximum number of directories that are searched concurrently.
+     * @return List of the loaded gitIgnore files: the global gitignore (if any) followed by all others sorted.
+     */
+    public List<Path> addAllGitIgnoreFiles(boolean includeGlobalGitignore, int parallelism) {
+        long hits = CompiledRuleCache.getHits();
+        long misses = CompiledRuleCache.getMisses();
+        List<Path> loadedGitIgnoreFiles = new ArrayList<>();
+        Path root = projectBaseDir.toPath();
+        if (includeGlobalGitignore && Files.isDirectory(root)) {
+            Path globalGitIgnore = addGlobalGitIgnore();
+            if (globalGitIgnore != null) {
+                loadedGitIgnoreFiles.add(globalGitIgnore);
+            }
+        }
+        loadedGitIgnoreFiles.addAll(ParallelWalker.walk(root, parallelism, 128, this::addGitIgnoreFileOfDirectory));
+        LOG.debug("Loaded {} gitignore files: {} rules were already compiled, {} rules were compiled.",
+            loadedGitIgnoreFiles.size(), CompiledRuleCache.getHits() - hits, CompiledRuleCache.getMisses() - misses);
+        return loadedGitIgnoreFiles;
+    }
+
+    /**
+     * Adds the .gitignore file in the directory (if any).
+     * @param current The directory
+     * @param loadedGitIgnoreFiles The added .gitignore file is added to this list.
+     * @return The subdirectories that must be searched.
+     */
+    private List<Path> addGitIgnoreFileOfDirectory(Path current, List<Path> loadedGitIgnoreFiles) {
+        if (!Files.isDirectory(current)) {
+            LOG.debug("Locate GI: Not DIR  {}", current);
+            return emptyList(); // It must be a directory
+        }
+
+        String dirPath = current.toFile().getPath();
+        if (!dirPath.endsWith(File.separator)) {
+            dirPath = dirPath + File.separatorChar;
+        }
+
+        if (ignoreFile(dirPath)) {
+            LOG.debug("Locate GI: Ignored  {}", current);
+            return emptyList(); // Is ignored
+        }
+
+        LOG.debug("Locate GI: Scan     {}", current);
+
+        List<Path> subDirs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(current)) {
+            for (Path path : stream) {
+                FileTreeEntry entry = FileTreeEntry.of(path); // Only one stat per entry
+                if (entry == null) {
+                    continue; // Removed while walking
+                }
+                if (entry.isRegularFile()) {
+                    if (".gitignore".equals(path.getFileName().toString())) {
+                        LOG.debug("Locate GI: ADDING   {}", path);
+                        addGitIgnoreFile(path.toFile());
+                        loadedGitIgnoreFiles.add(path);
+                    }
+                    continue;
+                }
+                if (entry.isDirectory()) {
+                    subDirs.add(path);
+                }
+            }
+        }
+        catch (IOException e) {
+            LOG.error("Unable to find .gitignore files in {} due to {}", projectBaseDir, e.toString());
+            return emptyList();
+        }
+        return subDirs;
+    }
+
     /**
      * add the global gitignore file (from `$XDG_CONFIG_HOME/git/ignore`, or, if `$XDG_CONFIG_HOME` is either not set or empty, `$HOME/.config/git/ignore`)
      *
@@ -205,7 +304,7 @@ public class GitIgnoreFileSet implements FileFilter {
         Path ignorePath = getGlobalGitIgnore(System.getenv("XDG_CONFIG_HOME"), System.getenv("HOME"));
         if (ignorePath != null) {
             try {
-                add(new GitIgnore("/", ignorePath.toFile()));
+                add(new GitIgnore("/", ignorePath));
                 return ignorePath;
             } catch (IOException e) {
                 LOG.error("Cannot read {} due to {}. Will skip this file.", ignorePath, e.getMessage());
@@ -227,14 +326,12 @@ public class GitIgnoreFileSet implements FileFilter {
      * @return List of the loaded gitIgnore files.
      */
     private List<Path> addAllGitIgnoreFiles(Path current, int maxRecursionDepth, boolean includeGlobalGitignore) {
-        List<Path> loadedGitIgnoreFiles = new ArrayList<>();
-        List<Path> subDirs = new ArrayList<>();
-
         if (!Files.isDirectory(current)) {
             LOG.debug("Locate GI: Not DIR  {}", current);
             return emptyList(); // It must be a directory
         }
 
+        List<Path> loadedGitIgnoreFiles = new ArrayList<>();
         if (includeGlobalGitignore) {
             Path globalGitIgnore = addGlobalGitIgnore();
             if (globalGitIgnore != null) {
@@ -242,37 +339,7 @@ public class GitIgnoreFileSet implements FileFilter {
             }
         }
 
-        String dirPath = current.toFile().getPath();
-        if (!dirPath.endsWith(File.separator)) {
-            dirPath = dirPath + File.separatorChar;
-        }
-
-        if (ignoreFile(dirPath)) {
-            LOG.debug("Locate GI: Ignored  {}", current);
-            return emptyList(); // Is ignored
-        }
-
-        LOG.debug("Locate GI: Scan     {}", current);
-
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(current)) {
-            for (Path path : stream) {
-                if (Files.isRegularFile(path)) {
-                    if (".gitignore".equals(path.getFileName().toString())) {
-                        LOG.debug("Locate GI: ADDING   {}", path);
-                        addGitIgnoreFile(path.toFile());
-                        loadedGitIgnoreFiles.add(path);
-                    }
-                    continue;
-                }
-                if (Files.isDirectory(path)) {
-                    subDirs.add(path);
-                }
-            }
-        }
-        catch (IOException e) {
-            LOG.error("Unable to find .gitignore files in {} due to {}", projectBaseDir, e.toString());
-            return emptyList();
-        }
+        List<Path> subDirs = addGitIgnoreFileOfDirectory(current, loadedGitIgnoreFiles);
 
         int nextMaxRecursionDepth = maxRecursionDepth - 1;
         if (nextMaxRecursionDepth > 0) {
@@ -308,13 +375,43 @@ public class GitIgnoreFileSet implements FileFilter {
      * @return NULL: not matched, True: must be ignored, False: it must be UNignored
      */
     public Boolean isIgnoredFile(String filename, boolean isRelative) {
-        Boolean result = null;
-        String projectBaseFileName = isRelative ? filename : getProjectRelative(filename);
+        return isIgnoredFile(CanonicalPath.of(filename), isRelative);
+    }
 
-        // Iterate over all available GitIgnore files in the correct order!
-        for (List<GitIgnore> gitIgnoreLists : gitIgnores.values()) {
-            for (GitIgnore gitIgnore : gitIgnoreLists) {
-                Boolean isIgnoredFile = gitIgnore.isIgnoredFile(projectBaseFileName);
+    /**
+     * Checks if the file matches the stored expressions.
+     * This is suitable for combining multiple sets of rules!
+     *
+     * @param filename The filename to be checked which follows the assumeProjectRelativeQueries flag.
+     * @return NULL: not matched, True: must be ignored, False: it must be UNignored
+     */
+    public Boolean isIgnoredFile(CanonicalPath filename) {
+        return isIgnoredFile(filename, assumeProjectRelativeQueries);
+    }
+
+    /**
+     * Checks if the file matches the stored expressions.
+     * This is suitable for combining multiple sets of rules!
+     *
+     * @param filename   The filename to be checked.
+     * @param isRelative True: The provided filename is a RELATIVE path (i.e. the project base directory is assumed to be the root).
+     *                   False:  The provided filename is an ABSOLUTE path (i.e. it still includes the project base directory).
+     * @return NULL: not matched, True: must be ignored, False: it must be UNignored
+     */
+    public Boolean isIgnoredFile(CanonicalPath filename, boolean isRelative) {
+        Boolean result = null;
+        CanonicalPath matchFileName = isRelative ? filename : getProjectRelative(filename);
+
+        // Only the GitIgnore files in the directories on the path to this file can match (all base dirs end with a '/').
+        // Iterating from the shortest to the longest directory is the same order as the TreeMap has.
+        String path = matchFileName.getPath();
+        for (int separator = 0; separator < matchFileName.getNumberOfSeparators(); separator++) {
+            List<GitIgnore> gitIgnoreList = gitIgnoresByBaseDir.get(path.substring(0, matchFileName.getSeparator(separator) + 1));
+            if (gitIgnoreList == null) {
+                continue;
+            }
+            for (GitIgnore gitIgnore : gitIgnoreList) {
+                Boolean isIgnoredFile = gitIgnore.isIgnoredFile(matchFileName);
                 if (isIgnoredFile != null) {
                     result = isIgnoredFile;
                 }
@@ -372,22 +469,18 @@ public class GitIgnoreFileSet implements FileFilter {
     }
 
     private String getProjectRelative(String fileName) {
-        String standardizedFilename       = standardizeFilename(fileName);
-        String projectBaseDirPath         = standardizeFilename(projectBaseDir.getPath());
-        if (standardizedFilename.startsWith(projectBaseDirPath)) {
-            return standardizeFilename(fileName)
-                .replaceAll("^\\Q" + projectBaseDirPath + "\\E", "/")
-                .replace("//", "/");
-        }
+        return getProjectRelative(CanonicalPath.of(fileName)).getPath();
+    }
 
-        String projectBaseDirAbsolutePath = standardizeFilename(projectBaseDir.getAbsolutePath());
-        if (standardizedFilename.startsWith(projectBaseDirAbsolutePath)) {
-            return standardizeFilename(fileName)
-                .replaceAll("^\\Q" + projectBaseDirAbsolutePath + "\\E", "/")
-                .replace("//", "/");
+    private CanonicalPath getProjectRelative(CanonicalPath fileName) {
+        CanonicalPath relative = fileName.relativeTo(projectBaseDirPath);
+        if (relative == null) {
+            relative = fileName.relativeTo(projectBaseDirAbsolutePath);
         }
-
-        throw new IllegalArgumentException("The requested file \"" + standardizedFilename + "\" is not relative to project root and is NOT in the projectBaseDir \"" + projectBaseDirPath + "\"");
+        if (relative == null) {
+            throw new IllegalArgumentException("The requested file \"" + fileName + "\" is not relative to project root and is NOT in the projectBaseDir \"" + projectBaseDirPath + "\"");
+        }
+        return relative;
     }
 
     @Override
@@ -0,0 +1,325 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.gitignore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Reads the paths of all tracked files from a git index file (normally .git/index).
+ * <p>
+ * The index versions 2, 3 and 4 (with the prefix compressed paths) are supported.
+ * The file is memory mapped and the entries are only decoded while the stream is consumed
+ * so the list of all tracked files is never built in memory.
+ * The entries are returned in the order of the index (which is sorted by path).
+ */
+public final class GitIndex {
+
+    private static final int SIGNATURE = 0x44495243; // "DIRC"
+
+    static final int SHA1_LENGTH   = 20;
+    static final int SHA256_LENGTH = 32;
+
+    // ctime, mtime (both seconds + nanoseconds), dev, ino, mode, uid, gid and size
+    private static final int STAT_DATA_LENGTH = 40;
+    private static final int MODE_OFFSET      = 24;
+
+    private static final int FLAG_EXTENDED    = 0x4000;
+    private static final int NAME_MASK        = 0x0FFF;
+    private static final int MODE_TYPE_GITLINK = 0xE; // mode 0160000: a submodule
+
+    private final ByteBuffer bytes;
+    private final int version;
+    private final int numberOfEntries;
+    private final int hashLength;
+
+    private GitIndex(ByteBuffer bytes, int version, int numberOfEntries, int hashLength) {
+        this.bytes = bytes;
+        this.version = version;
+        this.numberOfEntries = numberOfEntries;
+        this.hashLength = hashLength;
+    }
+
+    /**
+     * Read the index of a repository that uses SHA-1 object names.
+     * @param indexFile The index file.
+     * @return The index.
+     * @throws IOException If the file cannot be read or is not a supported git index.
+     */
+    public static GitIndex read(Path indexFile) throws IOException {
+        return read(indexFile, SHA1_LENGTH);
+    }
+
+    private static GitIndex read(Path indexFile, int hashLength) throws IOException {
+        ByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(indexFile, READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("The git index " + indexFile + " is too large to be memory mapped.");
+            }
+            // The mapping remains valid after the channel is closed.
+            bytes = channel.map(READ_ONLY, 0, size);
+        }
+        if (bytes.limit() < 12 || bytes.getInt(0) != SIGNATURE) {
+            throw new IOException("The file " + indexFile + " is not a git index.");
+        }
+        int version = bytes.getInt(4);
+        if (version < 2 || version > 4) {
+            throw new IOException("The git index " + indexFile + " has the unsupported version " + version + ".");
+        }
+        int numberOfEntries = bytes.getInt(8);
+        if (numberOfEntries < 0) {
+            throw new IOException("The git index " + indexFile + " is damaged.");
+        }
+        return new GitIndex(bytes, version, numberOfEntries, hashLength);
+    }
+
+    /**
+     * Read the index of the git repository of which the directory is the top level of the work tree.
+     * Both a normal ".git" directory and a ".git" file (as used by linked work trees and submodules) are supported.
+     * @param workTree The top level directory of the work tree.
+     * @return The index, or null if the directory is not the top level of a git work tree or there is no index (yet).
+     * @throws IOException If the index cannot be read or is not a supported git index.
+     */
+    public static GitIndex forWorkTree(Path workTree) throws IOException {
+        Path gitDir = findGitDir(workTree);
+        if (gitDir == null) {
+            return null;
+        }
+        Path indexFile = gitDir.resolve("index");
+        if (!Files.isRegularFile(indexFile)) {
+            return null;
+        }
+        return read(indexFile, usesSha256(findCommonDir(gitDir)) ? SHA256_LENGTH : SHA1_LENGTH);
+    }
+
+    /**
+     * @param workTree The top level directory of the work tree.
+     * @return The git directory of the work tree or null if there is none.
+     */
+    static Path findGitDir(Path workTree) throws IOException {
+        Path dotGit = workTree.resolve(".git");
+        if (Files.isDirectory(dotGit)) {
+            return dotGit;
+        }
+        if (!Files.isRegularFile(dotGit)) {
+            return null;
+        }
+        // A file with "gitdir: <path>"
+        for (String line : Files.readAllLines(dotGit, UTF_8)) {
+            if (line.startsWith("gitdir:")) {
+                Path gitDir = workTree.resolve(line.substring("gitdir:".length()).trim());
+                return Files.isDirectory(gitDir) ? gitDir : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param gitDir The git directory
+     * @return The directory with the objects, refs and config which a linked work tree shares with the main repository.
+     */
+    static Path findCommonDir(Path gitDir) throws IOException {
+        Path commonDirFile = gitDir.resolve("commondir");
+        if (Files.isRegularFile(commonDirFile)) {
+            List<String> lines = Files.readAllLines(commonDirFile, UTF_8);
+            if (!lines.isEmpty()) {
+                return gitDir.resolve(lines.get(0).trim());
+            }
+        }
+        return gitDir;
+    }
+
+    static boolean usesSha256(Path commonDir) throws IOException {
+        Path config = commonDir.resolve("config");
+        if (!Files.isRegularFile(config)) {
+            return false;
+        }
+        for (String line : Files.readAllLines(config, UTF_8)) {
+            String setting = line.replace(" ", "").replace("\t", "").toLowerCase(Locale.ROOT);
+            if (setting.equals("objectformat=sha256")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The version of the index format (2, 3 or 4).
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The number of entries in the index (a file in a merge conflict has multiple entries).
+     */
+    public int getNumberOfEntries() {
+        return numberOfEntries;
+    }
+
+    /**
+     * Lazily get all tracked files.
+     * Each file is returned only once (even when it is in a merge conflict) and submodules are skipped.
+     * @return The paths (relative to the top level of the work tree and always using '/') of all tracked files.
+     * @throws UncheckedIOException If the index turns out to be damaged.
+     */
+    public Stream<String> streamTrackedFiles() {
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(new TrackedFileIterator(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+            false);
+    }
+
+    private final class TrackedFileIterator implements Iterator<String> {
+        // A private view so the position of the shared mapping is never changed.
+        private final ByteBuffer buffer = bytes.duplicate();
+        private int remainingEntries = numberOfEntries;
+        private int offset = 12;
+        // The (raw) path of the previous entry; version 4 only stores how it differs from this one.
+        private byte[] path = new byte[256];
+        private int pathLength = 0;
+        private String previous = null;
+        private String next;
+
+        private TrackedFileIterator() {
+            next = findNext();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            String result = next;
+            next = findNext();
+            return result;
+        }
+
+        private String findNext() {
+            try {
+                while (remainingEntries > 0) {
+                    remainingEntries--;
+                    boolean isGitLink = readEntry();
+                    if (isGitLink) {
+                        continue;
+                    }
+                    String name = new String(path, 0, pathLength, UTF_8);
+                    if (name.equals(previous)) {
+                        continue; // The same file in a different merge stage
+                    }
+                    previous = name;
+                    return name;
+                }
+                return null;
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                throw new UncheckedIOException(new IOException("The git index is damaged at offset " + offset, e));
+            }
+        }
+
+        /**
+         * Reads the entry at the offset into the path and moves the offset to the next entry.
+         * @return True if this entry is a submodule.
+         */
+        private boolean readEntry() {
+            int entryStart = offset;
+            int mode = buffer.getInt(entryStart + MODE_OFFSET);
+            int flagsOffset = entryStart + STAT_DATA_LENGTH + hashLength;
+            int flags = buffer.getShort(flagsOffset) & 0xFFFF;
+            int nameStart = flagsOffset + 2;
+            if ((flags & FLAG_EXTENDED) != 0) {
+                nameStart += 2; // The extended flags (version 3 and later)
+            }
+
+            if (version == 4) {
+                // The number of bytes to remove from the end of the previous path followed by the rest of this path.
+                buffer.position(nameStart);
+                int strip = readVarInt();
+                if (strip > pathLength) {
+                    throw new IllegalArgumentException("Cannot remove " + strip + " bytes from a path of " + pathLength);
+                }
+                int suffixStart = buffer.position();
+                int suffixLength = lengthUntilNul(suffixStart);
+                pathLength -= strip;
+                append(suffixStart, suffixLength);
+                offset = suffixStart + suffixLength + 1;
+            } else {
+                int nameLength = flags & NAME_MASK;
+                if (nameLength == NAME_MASK) {
+                    nameLength = lengthUntilNul(nameStart); // The name is too long to be stored in the flags
+                }
+                pathLength = 0;
+                append(nameStart, nameLength);
+                // The entry is padded with 1 to 8 NUL bytes to a multiple of 8 bytes.
+                offset = entryStart + ((nameStart - entryStart + nameLength + 8) & ~7);
+            }
+            return (mode >>> 12) == MODE_TYPE_GITLINK;
+        }
+
+        private int readVarInt() {
+            int b = buffer.get() & 0xFF;
+            int value = b & 0x7F;
+            while ((b & 0x80) != 0) {
+                b = buffer.get() & 0xFF;
+                value = ((value + 1) << 7) | (b & 0x7F);
+            }
+            return value;
+        }
+
+        private int lengthUntilNul(int start) {
+            int end = start;
+            while (buffer.get(end) != 0) {
+                end++;
+            }
+            return end - start;
+        }
+
+        private void append(int start, int length) {
+            if (pathLength + length > path.length) {
+                path = Arrays.copyOf(path, Math.max(path.length * 2, pathLength + length));
+            }
+            buffer.position(start);
+            buffer.get(path, pathLength, length);
+            pathLength += length;
+        }
+    }
+
+}
@@ -0,0 +1,799 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.gitignore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Reads the files of any commit directly from the object database of a local git repository
+ * (also a bare repository or a mirror) so no checkout is needed.
+ * <p>
+ * Both loose objects and packfiles (including the deltas in them) are supported,
+ * also when they are in an alternate object database (see "objects/info/alternates").
+ * The content can be fed directly into the existing parsers, for example:
+ * <pre>
+ * GitRepository repository = GitRepository.open(Paths.get("project.git"));
+ * CodeOwners codeOwners = new CodeOwners(new String(repository.readFile("main", ".gitlab/CODEOWNERS"), UTF_8));
+ * GitIgnoreFileSet gitIgnores = repository.loadGitIgnoreFileSet("main");
+ * for (String file : repository.listFiles("main")) {
+ *     ...
+ * }
+ * </pre>
+ * Instances are not thread safe.
+ */
+public final class GitRepository {
+
+    private static final int OBJ_COMMIT    = 1;
+    private static final int OBJ_TREE      = 2;
+    private static final int OBJ_BLOB      = 3;
+    private static final int OBJ_TAG       = 4;
+    private static final int OBJ_OFS_DELTA = 6;
+    private static final int OBJ_REF_DELTA = 7;
+
+    private static final String[] TYPE_NAMES = {null, "commit", "tree", "blob", "tag"};
+
+    private static final int PACK_INDEX_SIGNATURE = 0xFF744F63; // "\377tOc"
+
+    // The bases of deltas are often needed again (for the next delta in the same chain).
+    private static final int MAX_CACHED_OBJECTS     = 256;
+    private static final int MAX_CACHED_OBJECT_SIZE = 1 << 20;
+
+    // The same limit git uses when following alternates that refer to other alternates.
+    private static final int MAX_ALTERNATES_DEPTH = 5;
+
+    // The order in which git tries to find a (short) ref name.
+    private static final String[] REF_PREFIXES = {"", "refs/", "refs/tags/", "refs/heads/", "refs/remotes/"};
+
+    private final Path gitDir;
+    private final Path commonDir;
+    private final int hashLength;
+    private final List<Path> objectDirectories = new ArrayList<>();
+    private final List<Pack> packs = new ArrayList<>();
+
+    private final Map<Long, GitObject> packedObjectCache = new LinkedHashMap<Long, GitObject>(64, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, GitObject> eldest) {
+            return size() > MAX_CACHED_OBJECTS;
+        }
+    };
+
+    private GitRepository(Path gitDir) throws IOException {
+        this.gitDir = gitDir;
+        this.commonDir = GitIndex.findCommonDir(gitDir);
+        this.hashLength = GitIndex.usesSha256(commonDir) ? GitIndex.SHA256_LENGTH : GitIndex.SHA1_LENGTH;
+
+        addObjectDirectory(commonDir.resolve("objects"), 0);
+        for (Path objectDirectory : objectDirectories) {
+            Path packDir = objectDirectory.resolve("pack");
+            if (!Files.isDirectory(packDir)) {
+                continue;
+            }
+            List<Path> indexFiles = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(packDir, "*.idx")) {
+                stream.forEach(indexFiles::add);
+            }
+            indexFiles.sort(null);
+            for (Path indexFile : indexFiles) {
+                String name = indexFile.getFileName().toString();
+                Path packFile = indexFile.resolveSibling(name.substring(0, name.length() - ".idx".length()) + ".pack");
+                if (Files.isRegularFile(packFile)) {
+                    packs.add(new Pack(packs.size(), indexFile, packFile));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the object directory and (recursively) all alternate object directories it refers to.
+     * Each line in "info/alternates" is a path that is absolute or relative to the object directory.
+     */
+    private void addObjectDirectory(Path objectDirectory, int depth) throws IOException {
+        Path directory = objectDirectory.toAbsolutePath().normalize();
+        if (objectDirectories.contains(directory) || !Files.isDirectory(directory)) {
+            return;
+        }
+        objectDirectories.add(directory);
+        Path alternates = directory.resolve("info").resolve("alternates");
+        if (depth >= MAX_ALTERNATES_DEPTH || !Files.isRegularFile(alternates)) {
+            return;
+        }
+        for (String line : Files.readAllLines(alternates, UTF_8)) {
+            String alternate = line.trim();
+            if (!alternate.isEmpty() && !alternate.startsWith("#")) {
+                addObjectDirectory(directory.resolve(alternate), depth + 1);
+            }
+        }
+    }
+
+    /**
+     * @param directory The top level of a work tree, a ".git" directory or a bare repository.
+     * @return The repository.
+     * @throws IOException If this is not a git repository.
+     */
+    public static GitRepository open(Path directory) throws IOException {
+        Path gitDir = GitIndex.findGitDir(directory);
+        if (gitDir == null) {
+            gitDir = directory;
+        }
+        if (!Files.isRegularFile(gitDir.resolve("HEAD")) ||
+            !Files.isDirectory(GitIndex.findCommonDir(gitDir).resolve("objects"))) {
+            throw new IOException("The directory " + directory + " is not a git repository.");
+        }
+        return new GitRepository(gitDir);
+    }
+
+    // ------------------------------------------
+
+    /**
+     * @param revision A full object name (in hex) or the (short) name of a ref like "HEAD", "main",
+     *                 "refs/heads/main", "v1.0" or "origin/main".
+     * @return The object name (in hex) of the commit.
+     * @throws IOException If the revision does not exist or is not a commit.
+     */
+    public String resolve(String revision) throws IOException {
+        return toHex(resolveCommit(revision));
+    }
+
+    /**
+     * @param revision The revision (see {@link #resolve(String)}).
+     * @return The paths (always using '/') of all files (including symbolic links but not submodules)
+     * in the commit in the order of git.
+     * @throws IOException If the revision does not exist or the repository is damaged.
+     */
+    public List<String> listFiles(String revision) throws IOException {
+        List<String> files = new ArrayList<>();
+        listFiles(readTree(revision), "", files);
+        return files;
+    }
+
+    private void listFiles(byte[] treeId, String directory, List<String> files) throws IOException {
+        for (TreeEntry entry : readTreeEntries(treeId)) {
+            if (entry.isTree()) {
+                listFiles(entry.id, directory + entry.name + '/', files);
+            } else if (!entry.isGitLink()) {
+                files.add(directory + entry.name);
+            }
+        }
+    }
+
+    /**
+     * @param revision The revision (see {@link #resolve(String)}).
+     * @param path The path of the file relative to the root of the repository (always using '/').
+     * @return The content of the file or null if there is no such file in the commit.
+     * @throws IOException If the revision does not exist or the repository is damaged.
+     */
+    public byte[] readFile(String revision, String path) throws IOException {
+        byte[] id = readTree(revision);
+        String[] names = path.replaceAll("^/+", "").split("/+");
+        for (int i = 0; i < names.length; i++) {
+            TreeEntry found = null;
+            for (TreeEntry entry : readTreeEntries(id)) {
+                if (entry.name.equals(names[i])) {
+                    found = entry;
+                    break;
+                }
+            }
+            boolean isLast = i == names.length - 1;
+            if (found == null || found.isGitLink() || found.isTree() == isLast) {
+                return null;
+            }
+            id = found.id;
+        }
+        // The object may be cached (also as the base of deltas) so the caller gets a copy.
+        return readObject(id, OBJ_BLOB).data.clone();
+    }
+
+    /**
+     * Load all .gitignore files of the commit (the same ones that would be loaded from a checkout of it).
+     * @param revision The revision (see {@link #resolve(String)}).
+     * @return A set with all .gitignore files that assumes all queries are relative to the root of the repository.
+     * @throws IOException If the revision does not exist or the repository is damaged.
+     */
+    public GitIgnoreFileSet loadGitIgnoreFileSet(String revision) throws IOException {
+        GitIgnoreFileSet gitIgnoreFileSet = new GitIgnoreFileSet(new File("/"), false).assumeQueriesAreProjectRelative();
+        loadGitIgnoreFiles(readTree(revision), "/", gitIgnoreFileSet);
+        return gitIgnoreFileSet;
+    }
+
+    private void loadGitIgnoreFiles(byte[] treeId, String directory, GitIgnoreFileSet gitIgnoreFileSet) throws IOException {
+        List<TreeEntry> entries = readTreeEntries(treeId);
+        // Just like in a checkout the .gitignore of a directory is added before the subdirectories are checked.
+        for (TreeEntry entry : entries) {
+            if (!entry.isTree() && !entry.isGitLink() && ".gitignore".equals(entry.name)) {
+                String content = new String(readObject(entry.id, OBJ_BLOB).data, UTF_8);
+                gitIgnoreFileSet.add(new GitIgnore(directory, content));
+            }
+        }
+        for (TreeEntry entry : entries) {
+            if (entry.isTree()) {
+                String subDirectory = directory + entry.name + '/';
+                if (gitIgnoreFileSet.keepFile(subDirectory, true)) {
+                    loadGitIgnoreFiles(entry.id, subDirectory, gitIgnoreFileSet);
+                }
+            }
+        }
+    }
+
+    // ------------------------------------------
+
+    private byte[] resolveCommit(String revision) throws IOException {
+        byte[] id = resolveRef(revision, 0);
+        if (id == null) {
+            throw new IOException("Unknown revision \"" + revision + "\".");
+        }
+        // Annotated tags point to the commit
+        while (true) {
+            GitObject object = readObject(id);
+            if (object.type == OBJ_COMMIT) {
+                return id;
+            }
+            if (object.type != OBJ_TAG) {
+                throw new IOException("The revision \"" + revision + "\" is a " + TYPE_NAMES[object.type] + " instead of a commit.");
+            }
+            id = headerValue(object.data, "object");
+        }
+    }
+
+    private byte[] readTree(String revision) throws IOException {
+        return headerValue(readObject(resolveCommit(revision), OBJ_COMMIT).data, "tree");
+    }
+
+    private byte[] resolveRef(String revision, int depth) throws IOException {
+        if (revision.length() == hashLength * 2 && revision.matches("[0-9a-fA-F]+")) {
+            return fromHex(revision);
+        }
+        if (depth > 5) {
+            throw new IOException("Too many levels of symbolic refs for \"" + revision + "\".");
+        }
+        for (String prefix : REF_PREFIXES) {
+            byte[] id = readRef(prefix + revision, depth);
+            if (id != null) {
+                return id;
+            }
+        }
+        return readRef("refs/remotes/" + revision + "/HEAD", depth);
+    }
+
+    private byte[] readRef(String refName, int depth) throws IOException {
+        if (refName.contains("..")) {
+            return null;
+        }
+        // HEAD (and other pseudo refs) belong to the work tree, all others are shared.
+        Path refFile = (refName.startsWith("refs/") ? commonDir : gitDir).resolve(refName);
+        if (Files.isRegularFile(refFile)) {
+            String content = new String(Files.readAllBytes(refFile), UTF_8).trim();
+            if (content.startsWith("ref:")) {
+                return resolveRef(content.substring("ref:".length()).trim(), depth + 1);
+            }
+            return fromHex(content);
+        }
+        Path packedRefs = commonDir.resolve("packed-refs");
+        if (Files.isRegularFile(packedRefs)) {
+            for (String line : Files.readAllLines(packedRefs, UTF_8)) {
+                // Lines are "<object name> <ref name>"; comments start with '#' and peeled tags with '^'.
+                int space = line.indexOf(' ');
+                if (space > 0 && line.charAt(0) != '#' && line.charAt(0) != '^' && line.substring(space + 1).equals(refName)) {
+                    return fromHex(line.substring(0, space));
+                }
+            }
+        }
+        return null;
+    }
+
+    private byte[] headerValue(byte[] commitOrTag, String name) throws IOException {
+        String prefix = name + ' ';
+        int start = 0;
+        while (start < commitOrTag.length && commitOrTag[start] != '\n') { // The headers end with an empty line
+            int end = start;
+            while (end < commitOrTag.length && commitOrTag[end] != '\n') {
+                end++;
+            }
+            String line = new String(commitOrTag, start, end - start, UTF_8);
+            if (line.startsWith(prefix)) {
+                return fromHex(line.substring(prefix.length()));
+            }
+            start = end + 1;
+        }
+        throw new IOException("No " + name + " found.");
+    }
+
+    // ------------------------------------------
+
+    private static final class TreeEntry {
+        private final int mode;
+        private final String name;
+        private final byte[] id;
+
+        private TreeEntry(int mode, String name, byte[] id) {
+            this.mode = mode;
+            this.name = name;
+            this.id = id;
+        }
+
+        private boolean isTree() {
+            return (mode & 0170000) == 0040000;
+        }
+
+        private boolean isGitLink() {
+            return (mode & 0170000) == 0160000;
+        }
+    }
+
+    private List<TreeEntry> readTreeEntries(byte[] treeId) throws IOException {
+        byte[] tree = readObject(treeId, OBJ_TREE).data;
+        List<TreeEntry> entries = new ArrayList<>();
+        int position = 0;
+        // Each entry is "<mode in octal> <name>\0<object name>"
+        try {
+            while (position < tree.length) {
+                int mode = 0;
+                while (tree[position] != ' ') {
+                    mode = (mode << 3) | (tree[position++] - '0');
+                }
+                int nameStart = ++position;
+                while (tree[position] != 0) {
+                    position++;
+                }
+                String name = new String(tree, nameStart, position - nameStart, UTF_8);
+                position++;
+                if (position + hashLength > tree.length) {
+                    throw new IOException("The tree " + toHex(treeId) + " is damaged.");
+                }
+                entries.add(new TreeEntry(mode, name, Arrays.copyOfRange(tree, position, position + hashLength)));
+                position += hashLength;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("The tree " + toHex(treeId) + " is damaged.", e);
+        }
+        return entries;
+    }
+
+    // ------------------------------------------
+
+    private static final class GitObject {
+        private final int type;
+        private final byte[] data;
+
+        private GitObject(int type, byte[] data) {
+            this.type = type;
+            this.data = data;
+        }
+    }
+
+    private GitObject readObject(byte[] id, int expectedType) throws IOException {
+        GitObject object = readObject(id);
+        if (object.type != expectedType) {
+            throw new IOException("The object " + toHex(id) + " is a " + TYPE_NAMES[object.type] + " instead of a " + TYPE_NAMES[expectedType] + ".");
+        }
+        return object;
+    }
+
+    private GitObject readObject(byte[] id) throws IOException {
+        for (Pack pack : packs) {
+            long offset = pack.find(id);
+            if (offset >= 0) {
+                return pack.read(offset);
+            }
+        }
+        GitObject object = readLooseObject(id);
+        if (object == null) {
+            throw new IOException("The object " + toHex(id) + " does not exist.");
+        }
+        return object;
+    }
+
+    private GitObject readLooseObject(byte[] id) throws IOException {
+        String hex = toHex(id);
+        Path file = null;
+        for (Path objectDirectory : objectDirectories) {
+            Path candidate = objectDirectory.resolve(hex.substring(0, 2)).resolve(hex.substring(2));
+            if (Files.isRegularFile(candidate)) {
+                file = candidate;
+                break;
+            }
+        }
+        if (file == null) {
+            return null;
+        }
+        byte[] content;
+        try (InputStream input = new InflaterInputStream(Files.newInputStream(file))) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            content = output.toByteArray();
+        }
+        // "<type> <size>\0<data>"
+        int space = 0;
+        while (space < content.length && content[space] != ' ') {
+            space++;
+        }
+        int nul = space;
+        while (nul < content.length && content[nul] != 0) {
+            nul++;
+        }
+        if (nul >= content.length) {
+            throw new IOException("The object " + hex + " is damaged.");
+        }
+        int type = Arrays.asList(TYPE_NAMES).indexOf(new String(content, 0, space, UTF_8));
+        int size = Integer.parseInt(new String(content, space + 1, nul - space - 1, UTF_8));
+        if (type < 0 || size != content.length - nul - 1) {
+            throw new IOException("The object " + hex + " is damaged.");
+        }
+        return new GitObject(type, Arrays.copyOfRange(content, nul + 1, content.length));
+    }
+
+    // ------------------------------------------
+
+    private final class Pack {
+        private final int packNumber;
+        private final Path packFile;
+        private final MappedFile index;
+        private final MappedFile pack;
+        private final int numberOfObjects;
+        private final long namesStart;
+        private final long offsetsStart;
+        private final long largeOffsetsStart;
+
+        private Pack(int packNumber, Path indexFile, Path packFile) throws IOException {
+            this.packNumber = packNumber;
+            this.packFile = packFile;
+            index = new MappedFile(indexFile);
+            pack = new MappedFile(packFile);
+            if (index.size() < 8 + 256 * 4 || index.getInt(0) != PACK_INDEX_SIGNATURE || index.getInt(4) != 2) {
+                throw new IOException("The pack index " + indexFile + " is not a version 2 pack index.");
+            }
+            numberOfObjects = index.getInt(8 + 255 * 4);
+            namesStart = 8 + 256 * 4;
+            // The names are followed by the CRC32 of all objects.
+            offsetsStart = namesStart + (long) numberOfObjects * (hashLength + 4);
+            // Offsets that do not fit in 31 bits (packs over 2GB) are in a separate table of 64 bit values.
+            largeOffsetsStart = offsetsStart + (long) numberOfObjects * 4;
+        }
+
+        /**
+         * @return The offset of the object in the pack or -1 if it is not in this pack.
+         */
+        private long find(byte[] id) {
+            int first = id[0] == 0 ? 0 : index.getInt(8 + ((id[0] & 0xFF) - 1) * 4);
+            int last = index.getInt(8 + (id[0] & 0xFF) * 4) - 1;
+            while (first <= last) {
+                int middle = (first + last) >>> 1;
+                int compare = compareName(middle, id);
+                if (compare < 0) {
+                    first = middle + 1;
+                } else if (compare > 0) {
+                    last = middle - 1;
+                } else {
+                    int offset = index.getInt(offsetsStart + middle * 4L);
+                    if (offset >= 0) {
+                        return offset;
+                    }
+                    return index.getLong(largeOffsetsStart + (offset & 0x7FFFFFFF) * 8L);
+                }
+            }
+            return -1;
+        }
+
+        private int compareName(int entry, byte[] id) {
+            long start = namesStart + (long) entry * hashLength;
+            for (int i = 0; i < hashLength; i++) {
+                int compare = Integer.compare(index.get(start + i) & 0xFF, id[i] & 0xFF);
+                if (compare != 0) {
+                    return compare;
+                }
+            }
+            return 0;
+        }
+
+        private GitObject read(long offset) throws IOException {
+            // Follow the chain of deltas down to a full object.
+            List<long[]> deltas = new ArrayList<>(); // The offset, position and size of the delta data
+            GitObject object = null;
+            long current = offset;
+            while (object == null) {
+                object = packedObjectCache.get(cacheKey(current));
+                if (object != null) {
+                    break;
+                }
+                long position = current;
+                int b = pack.get(position++) & 0xFF;
+                int type = (b >> 4) & 0x07;
+                long size = b & 0x0F;
+                int shift = 4;
+                while ((b & 0x80) != 0) {
+                    b = pack.get(position++) & 0xFF;
+                    size |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                }
+                // The content must fit in a single byte array.
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("The object at " + current + " in " + packFile + " is too large.");
+                }
+                switch (type) {
+                    case OBJ_COMMIT:
+                    case OBJ_TREE:
+                    case OBJ_BLOB:
+                    case OBJ_TAG:
+                        object = cache(current, new GitObject(type, inflate(position, (int) size)));
+                        break;
+                    case OBJ_OFS_DELTA:
+                        b = pack.get(position++) & 0xFF;
+                        long distance = b & 0x7F;
+                        while ((b & 0x80) != 0) {
+                            b = pack.get(position++) & 0xFF;
+                            distance = ((distance + 1) << 7) | (b & 0x7F);
+                        }
+                        deltas.add(new long[]{current, position, size});
+                        current = current - distance;
+                        break;
+                    case OBJ_REF_DELTA:
+                        byte[] baseId = new byte[hashLength];
+                        for (int i = 0; i < hashLength; i++) {
+                            baseId[i] = pack.get(position++);
+                        }
+                        deltas.add(new long[]{current, position, size});
+                        object = readObject(baseId);
+                        break;
+                    default:
+                        throw new IOException("The object at " + current + " in " + packFile + " has the invalid type " + type + ".");
+                }
+            }
+            for (int i = deltas.size() - 1; i >= 0; i--) {
+                long[] delta = deltas.get(i);
+                object = cache(delta[0], new GitObject(object.type, applyDelta(object.data, inflate(delta[1], (int) delta[2]))));
+            }
+            return object;
+        }
+
+        private Long cacheKey(long offset) {
+            return ((long) packNumber << 48) | offset;
+        }
+
+        private GitObject cache(long offset, GitObject object) {
+            if (object.data.length <= MAX_CACHED_OBJECT_SIZE) {
+                packedObjectCache.put(cacheKey(offset), object);
+            }
+            return object;
+        }
+
+        private byte[] inflate(long position, int size) throws IOException {
+            long input = position;
+            byte[] result = new byte[size];
+            byte[] chunk = new byte[Math.min(8192, size + 64)];
+            Inflater inflater = new Inflater();
+            try {
+                int done = 0;
+                while (!inflater.finished()) {
+                    if (inflater.needsInput()) {
+                        int length = pack.read(input, chunk);
+                        if (length == 0) {
+                            throw new EOFException("Unexpected end of " + packFile);
+                        }
+                        input += length;
+                        inflater.setInput(chunk, 0, length);
+                    }
+                    if (done < size) {
+                        done += inflater.inflate(result, done, size - done);
+                    } else if (inflater.inflate(chunk, 0, 1) > 0) { // Only to reach the end of the stream
+                        throw new IOException("The object at " + position + " in " + packFile + " is larger than expected.");
+                    }
+                    if (inflater.needsDictionary()) {
+                        throw new IOException("The object at " + position + " in " + packFile + " is damaged.");
+                    }
+                }
+                if (done != size) {
+                    throw new IOException("The object at " + position + " in " + packFile + " is smaller than expected.");
+                }
+                return result;
+            } catch (DataFormatException e) {
+                throw new IOException("The object at " + position + " in " + packFile + " is damaged.", e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * A read only memory mapping of a file of any size.
+     * A single mapping is limited to 2GB so the file is mapped as a series of windows.
+     * The windows overlap a little so every value that is read at once (an int, a long or an
+     * object name) is always completely inside the window its first byte belongs to.
+     */
+    static final class MappedFile {
+        private static final int WINDOW_SHIFT   = 30;
+        private static final int WINDOW_OVERLAP = 64;
+
+        private final long size;
+        private final int windowShift;
+        private final long windowMask;
+        private final ByteBuffer[] windows;
+
+        MappedFile(Path file) throws IOException {
+            this(file, WINDOW_SHIFT);
+        }
+
+        // Only a test uses other window sizes.
+        MappedFile(Path file, int windowShift) throws IOException {
+            this.windowShift = windowShift;
+            this.windowMask = (1L << windowShift) - 1;
+            try (FileChannel channel = FileChannel.open(file, READ)) {
+                size = channel.size();
+                windows = new ByteBuffer[(int) Math.max(1, (size + windowMask) >>> windowShift)];
+                for (int window = 0; window < windows.length; window++) {
+                    long start = (long) window << windowShift;
+                    // The mapping remains valid after the channel is closed.
+                    windows[window] = channel.map(READ_ONLY, start, Math.min(size - start, windowMask + 1 + WINDOW_OVERLAP));
+                }
+            }
+        }
+
+        long size() {
+            return size;
+        }
+
+        byte get(long position) {
+            return windows[(int) (position >>> windowShift)].get((int) (position & windowMask));
+        }
+
+        int getInt(long position) {
+            return windows[(int) (position >>> windowShift)].getInt((int) (position & windowMask));
+        }
+
+        long getLong(long position) {
+            return windows[(int) (position >>> windowShift)].getLong((int) (position & windowMask));
+        }
+
+        /**
+         * @return The number of bytes copied into the target (0 at the end of the file).
+         */
+        int read(long position, byte[] target) {
+            if (position >= size) {
+                return 0;
+            }
+            ByteBuffer window = windows[(int) (position >>> windowShift)].duplicate();
+            window.position((int) (position & windowMask));
+            int length = Math.min(target.length, window.remaining());
+            window.get(target, 0, length);
+            return length;
+        }
+    }
+
+    /**
+     * A delta is the size of the base, the size of the result and then a list of instructions
+     * that either copy a part of the base or insert new data.
+     */
+    private static byte[] applyDelta(byte[] base, byte[] delta) throws IOException {
+        int[] position = {0};
+        if (readDeltaSize(delta, position) != base.length) {
+            throw new IOException("The delta does not belong to its base.");
+        }
+        byte[] result = new byte[readDeltaSize(delta, position)];
+        int done = 0;
+        int p = position[0];
+        try {
+            while (p < delta.length) {
+                int instruction = delta[p++] & 0xFF;
+                if ((instruction & 0x80) != 0) {
+                    int copyOffset = 0;
+                    int copySize = 0;
+                    for (int i = 0; i < 4; i++) {
+                        if ((instruction & (1 << i)) != 0) {
+                            copyOffset |= (delta[p++] & 0xFF) << (8 * i);
+                        }
+                    }
+                    for (int i = 0; i < 3; i++) {
+                        if ((instruction & (0x10 << i)) != 0) {
+                            copySize |= (delta[p++] & 0xFF) << (8 * i);
+                        }
+                    }
+                    if (copySize == 0) {
+                        copySize = 0x10000;
+                    }
+                    System.arraycopy(base, copyOffset, result, done, copySize);
+                    done += copySize;
+                } else if (instruction != 0) {
+                    System.arraycopy(delta, p, result, done, instruction);
+                    p += instruction;
+                    done += instruction;
+                } else {
+                    throw new IOException("The delta contains an invalid instruction.");
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("The delta is damaged.", e);
+        }
+        if (done != result.length) {
+            throw new IOException("The delta is damaged.");
+        }
+        return result;
+    }
+
+    private static int readDeltaSize(byte[] delta, int[] position) throws IOException {
+        long size = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (position[0] >= delta.length) {
+                throw new IOException("The delta is damaged.");
+            }
+            b = delta[position[0]++] & 0xFF;
+            size |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("The delta is too large.");
+        }
+        return (int) size;
+    }
+
+    // ------------------------------------------
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static String toHex(byte[] id) {
+        char[] hex = new char[id.length * 2];
+        for (int i = 0; i < id.length; i++) {
+            hex[i * 2] = HEX[(id[i] >> 4) & 0x0F];
+            hex[i * 2 + 1] = HEX[id[i] & 0x0F];
+        }
+        return new String(hex);
+    }
+
+    private byte[] fromHex(String hex) throws IOException {
+        String value = hex.trim();
+        if (value.length() != hashLength * 2) {
+            throw new IOException("Invalid object name \"" + value + "\".");
+        }
+        byte[] id = new byte[hashLength];
+        for (int i = 0; i < hashLength; i++) {
+            int high = Character.digit(value.charAt(i * 2), 16);
+            int low = Character.digit(value.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IOException("Invalid object name \"" + value + "\".");
+            }
+            id[i] = (byte) ((high << 4) | low);
+        }
+        return id;
+    }
+}
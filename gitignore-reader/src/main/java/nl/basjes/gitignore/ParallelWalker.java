@@ -0,0 +1,100 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.gitignore;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Walks a directory tree with a ForkJoinPool: the subdirectories of a directory are visited concurrently.
+ * Listing a directory mostly waits on the (possibly network backed) filesystem so the parallelism can
+ * be much higher than the number of CPUs.
+ */
+final class ParallelWalker {
+
+    interface DirectoryVisitor {
+        /**
+         * Called (possibly concurrently) once for every directory that is walked.
+         * A directory is only visited after its parent directory has been visited.
+         * @param directory The directory to visit.
+         * @param found The paths found in this directory are to be added to this list.
+         * @return The subdirectories that must be walked (an empty list if none or if this directory is ignored).
+         */
+        List<Path> visit(Path directory, List<Path> found);
+    }
+
+    private ParallelWalker() {
+    }
+
+    /**
+     * @param baseDir The directory to start in.
+     * @param parallelism The maximum number of directories that are visited concurrently.
+     * @param maxRecursionDepth A limiter to avoid going infinitely deep.
+     * @param visitor Visits a single directory.
+     * @return All paths found by the visitor, sorted.
+     */
+    static List<Path> walk(Path baseDir, int parallelism, int maxRecursionDepth, DirectoryVisitor visitor) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be at least 1 (was " + parallelism + ")");
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Path> found = pool.invoke(new WalkTask(baseDir, maxRecursionDepth, visitor));
+            Collections.sort(found);
+            return found;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static final class WalkTask extends RecursiveTask<List<Path>> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path directory;
+        private final int maxRecursionDepth;
+        private final transient DirectoryVisitor visitor;
+
+        private WalkTask(Path directory, int maxRecursionDepth, DirectoryVisitor visitor) {
+            this.directory = directory;
+            this.maxRecursionDepth = maxRecursionDepth;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected List<Path> compute() {
+            List<Path> found = new ArrayList<>();
+            List<Path> subDirs = visitor.visit(directory, found);
+
+            int nextMaxRecursionDepth = maxRecursionDepth - 1;
+            if (nextMaxRecursionDepth > 0 && !subDirs.isEmpty()) {
+                List<WalkTask> subTasks = new ArrayList<>(subDirs.size());
+                for (Path subDir : subDirs) {
+                    subTasks.add(new WalkTask(subDir, nextMaxRecursionDepth, visitor));
+                }
+                for (WalkTask subTask : invokeAll(subTasks)) {
+                    found.addAll(subTask.join());
+                }
+            }
+            return found;
+        }
+    }
+}
@@ -24,11 +24,20 @@ import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
-
-import static java.util.Collections.emptyList;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public final class Utils {
     private Utils() {
@@ -36,6 +45,8 @@ public final class Utils {
 
     private static final Logger LOG = LoggerFactory.getLogger(Utils.class);
 
+    private static final int MAX_RECURSION_DEPTH = 128;
+
     /**
      * Automatically find all non-ignored directories and files starting in the projects root.
      *
@@ -45,25 +56,255 @@ public final class Utils {
         return findAllNonIgnored(gitIgnoreFileSet, gitIgnoreFileSet.getProjectBaseDir().toPath());
     }
 
+    /**
+     * Find all non-ignored directories and files starting in the baseDir.
+     *
+     * @return Sorted list of all non-ignored directories and files.
+     */
     public static List<Path> findAllNonIgnored(GitIgnoreFileSet gitIgnoreFileSet, Path baseDir) {
-        return findAllNonIgnored(gitIgnoreFileSet, baseDir, 128);
+        try (Stream<Path> nonIgnored = streamAllNonIgnored(gitIgnoreFileSet, baseDir)) {
+            return nonIgnored.sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Find all non-ignored directories and files starting in the projects root.
+     * The subdirectories of a directory are listed concurrently.
+     *
+     * @param parallelism The maximum number of directories that are listed concurrently.
+     * @return Sorted list of all non-ignored directories and files (the same as the sequential variant).
+     */
+    public static List<Path> findAllNonIgnored(GitIgnoreFileSet gitIgnoreFileSet, int parallelism) {
+        return findAllNonIgnored(gitIgnoreFileSet, gitIgnoreFileSet.getProjectBaseDir().toPath(), parallelism);
+    }
+
+    /**
+     * Find all non-ignored directories and files starting in the baseDir.
+     * The subdirectories of a directory are listed concurrently.
+     *
+     * @param parallelism The maximum number of directories that are listed concurrently.
+     * @return Sorted list of all non-ignored directories and files (the same as the sequential variant).
+     */
+    public static List<Path> findAllNonIgnored(GitIgnoreFileSet gitIgnoreFileSet, Path baseDir, int parallelism) {
+        if (!Files.isDirectory(baseDir)) {
+            LOG.debug("Locate GI: Not DIR  {}", baseDir);
+            return new ArrayList<>(); // It must be a directory
+        }
+        return ParallelWalker.walk(baseDir, parallelism, MAX_RECURSION_DEPTH, (directory, found) -> {
+            List<FileTreeEntry> entries = listNonIgnored(gitIgnoreFileSet, directory, null);
+            if (entries == null) {
+                return Collections.emptyList();
+            }
+            found.add(directory);
+            List<Path> subDirs = new ArrayList<>();
+            for (FileTreeEntry entry : entries) {
+                if (entry.isDirectory()) {
+                    subDirs.add(entry.getPath());
+                } else {
+                    found.add(entry.getPath());
+                }
+            }
+            return subDirs;
+        });
+    }
+
+    /**
+     * Lazily find all non-ignored directories and files starting in the projects root.
+     *
+     * @return Stream of all non-ignored directories and files.
+     * @see #streamAllNonIgnored(GitIgnoreFileSet, Path)
+     */
+    public static Stream<Path> streamAllNonIgnored(GitIgnoreFileSet gitIgnoreFileSet) {
+        return streamAllNonIgnored(gitIgnoreFileSet, gitIgnoreFileSet.getProjectBaseDir().toPath());
+    }
+
+    /**
+     * Lazily find all non-ignored directories and files starting in the baseDir.
+     * The tree is walked depth first: a directory comes directly before its content and the entries
+     * of a directory are sorted by their name. Ignored directories are never entered.
+     * Only the (non-ignored) entries of the directories that are currently being walked are kept in memory.
+     *
+     * @return Stream of all non-ignored directories and files.
+     */
+    public static Stream<Path> streamAllNonIgnored(GitIgnoreFileSet gitIgnoreFileSet, Path baseDir) {
+        return streamAllNonIgnoredEntries(gitIgnoreFileSet, baseDir).map(FileTreeEntry::getPath);
+    }
+
+    /**
+     * Lazily find all non-ignored directories and files (with their file attributes) starting in the projects root.
+     *
+     * @return Stream of all non-ignored directories and files.
+     * @see #streamAllNonIgnoredEntries(GitIgnoreFileSet, Path)
+     */
+    public static Stream<FileTreeEntry> streamAllNonIgnoredEntries(GitIgnoreFileSet gitIgnoreFileSet) {
+        return streamAllNonIgnoredEntries(gitIgnoreFileSet, gitIgnoreFileSet.getProjectBaseDir().toPath());
+    }
+
+    /**
+     * Lazily find all non-ignored directories and files starting in the baseDir in the same order as
+     * {@link #streamAllNonIgnored(GitIgnoreFileSet, Path)}.
+     * The attributes of each non-ignored entry are read exactly once during the walk and are retained in the
+     * returned entry so checking if it is a file or a directory does not need the filesystem again.
+     * The attributes of ignored entries are never read.
+     *
+     * @return Stream of all non-ignored directories and files.
+     */
+    public static Stream<FileTreeEntry> streamAllNonIgnoredEntries(GitIgnoreFileSet gitIgnoreFileSet, Path baseDir) {
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(
+                new NonIgnoredIterator(gitIgnoreFileSet, baseDir, null),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+            false);
+    }
+
+    /**
+     * Find all .gitignore files and all non-ignored directories and files starting in the projects root in a single walk.
+     * This gives the same end result as first calling {@link GitIgnoreFileSet#addAllGitIgnoreFiles(boolean)}
+     * and then {@link #findAllNonIgnored(GitIgnoreFileSet)}.
+     *
+     * @param gitIgnoreFileSet       The set to which all found .gitignore files are added.
+     * @param includeGlobalGitignore Whether to also include the global gitignore
+     * @param loadedGitIgnoreFiles   Is called for every gitIgnore file right after it was added to the set.
+     * @return Sorted list of all non-ignored directories and files.
+     * @see #streamAllNonIgnoredLoadingGitIgnores(GitIgnoreFileSet, boolean, Consumer)
+     */
+    public static List<Path> findAllNonIgnoredLoadingGitIgnores(GitIgnoreFileSet gitIgnoreFileSet,
+                                                                boolean includeGlobalGitignore,
+                                                                Consumer<Path> loadedGitIgnoreFiles) {
+        try (Stream<Path> nonIgnored = streamAllNonIgnoredLoadingGitIgnores(gitIgnoreFileSet, includeGlobalGitignore, loadedGitIgnoreFiles)) {
+            return nonIgnored.sorted().collect(Collectors.toList());
+        }
     }
 
     /**
-     * Recursively find all directories and files that are not ignored.
-     * @param current The current directory
-     * @param maxRecursionDepth A limiter to avoid going infinitely deep.
-     * @return List of the found Paths.
+     * Lazily find all non-ignored directories and files starting in the projects root and
+     * add the .gitignore files to the set while walking.
+     * The .gitignore file of a directory is added when that directory is entered so its rules are used
+     * right away for its own entries and for deciding which subdirectories are entered.
+     * A directory that is ignored by its own .gitignore file is skipped just like
+     * {@link #streamAllNonIgnored(GitIgnoreFileSet)} would skip it after loading all .gitignore files.
+     * The only difference with the two separate walks is that the .gitignore files below such a directory
+     * are not added; they can never change the outcome.
+     * <p>
+     * The set is only complete after the stream has been fully consumed.
+     *
+     * @param gitIgnoreFileSet       The set to which all found .gitignore files are added.
+     * @param includeGlobalGitignore Whether to also include the global gitignore (added immediately).
+     * @param loadedGitIgnoreFiles   Is called for every gitIgnore file right after it was added to the set.
+     * @return Stream of all non-ignored directories and files in the same order as {@link #streamAllNonIgnored(GitIgnoreFileSet, Path)}.
      */
-    private static List<Path> findAllNonIgnored(GitIgnoreFileSet gitIgnoreFileSet, Path current, int maxRecursionDepth) {
-        List<Path> found = new ArrayList<>();
-        List<Path> subDirs = new ArrayList<>();
+    public static Stream<Path> streamAllNonIgnoredLoadingGitIgnores(GitIgnoreFileSet gitIgnoreFileSet,
+                                                                    boolean includeGlobalGitignore,
+                                                                    Consumer<Path> loadedGitIgnoreFiles) {
+        return streamAllNonIgnoredEntriesLoadingGitIgnores(gitIgnoreFileSet, includeGlobalGitignore, loadedGitIgnoreFiles)
+            .map(FileTreeEntry::getPath);
+    }
+
+    /**
+     * The same walk as {@link #streamAllNonIgnoredLoadingGitIgnores(GitIgnoreFileSet, boolean, Consumer)}
+     * which returns the entries with their file attributes (see {@link #streamAllNonIgnoredEntries(GitIgnoreFileSet, Path)}).
+     *
+     * @param gitIgnoreFileSet       The set to which all found .gitignore files are added.
+     * @param includeGlobalGitignore Whether to also include the global gitignore (added immediately).
+     * @param loadedGitIgnoreFiles   Is called for every gitIgnore file right after it was added to the set.
+     * @return Stream of all non-ignored directories and files.
+     */
+    public static Stream<FileTreeEntry> streamAllNonIgnoredEntriesLoadingGitIgnores(GitIgnoreFileSet gitIgnoreFileSet,
+                                                                                    boolean includeGlobalGitignore,
+                                                                                    Consumer<Path> loadedGitIgnoreFiles) {
+        Path baseDir = gitIgnoreFileSet.getProjectBaseDir().toPath();
+        if (includeGlobalGitignore && Files.isDirectory(baseDir)) {
+            Path globalGitIgnore = gitIgnoreFileSet.addGlobalGitIgnore();
+            if (globalGitIgnore != null) {
+                loadedGitIgnoreFiles.accept(globalGitIgnore);
+            }
+        }
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(
+                new NonIgnoredIterator(gitIgnoreFileSet, baseDir, loadedGitIgnoreFiles),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+            false);
+    }
+
+    private static final Comparator<FileTreeEntry> BY_NAME = Comparator.comparing(entry -> entry.getPath().getFileName().toString());
+
+    private static final class NonIgnoredIterator implements Iterator<FileTreeEntry> {
+        private final GitIgnoreFileSet gitIgnoreFileSet;
+        // If not null the .gitignore files are added while walking.
+        private final Consumer<Path> loadedGitIgnoreFiles;
+        // The remaining entries of all directories from the baseDir down to the current directory.
+        private final Deque<Iterator<FileTreeEntry>> directories = new ArrayDeque<>();
+        private FileTreeEntry next;
+
+        private NonIgnoredIterator(GitIgnoreFileSet gitIgnoreFileSet, Path baseDir, Consumer<Path> loadedGitIgnoreFiles) {
+            this.gitIgnoreFileSet = gitIgnoreFileSet;
+            this.loadedGitIgnoreFiles = loadedGitIgnoreFiles;
+            FileTreeEntry base = FileTreeEntry.of(baseDir);
+            if (base == null || !base.isDirectory()) {
+                LOG.debug("Locate GI: Not DIR  {}", baseDir);
+                next = null; // It must be a directory
+            } else {
+                next = enter(base) ? base : null;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public FileTreeEntry next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            FileTreeEntry result = next;
+            next = findNext();
+            return result;
+        }
 
-        if (!Files.isDirectory(current)) {
-            LOG.debug("Locate GI: Not DIR  {}", current);
-            return emptyList(); // It must be a directory
+        private FileTreeEntry findNext() {
+            while (!directories.isEmpty()) {
+                Iterator<FileTreeEntry> entries = directories.peek();
+                if (!entries.hasNext()) {
+                    directories.pop();
+                    continue;
+                }
+                FileTreeEntry entry = entries.next();
+                if (!entry.isDirectory()) {
+                    return entry;
+                }
+                if (directories.size() < MAX_RECURSION_DEPTH && enter(entry)) {
+                    return entry;
+                }
+            }
+            return null;
         }
 
+        /**
+         * @param current The directory
+         * @return True if the directory is not ignored and its non-ignored entries are now the next to be walked.
+         */
+        private boolean enter(FileTreeEntry current) {
+            List<FileTreeEntry> entries = listNonIgnored(gitIgnoreFileSet, current.getPath(), loadedGitIgnoreFiles);
+            if (entries == null) {
+                return false;
+            }
+            entries.sort(BY_NAME);
+            directories.push(entries.iterator());
+            return true;
+        }
+    }
+
+    /**
+     * @param gitIgnoreFileSet The gitignore rules
+     * @param current The directory (the caller has already verified that it is a directory).
+     * @param loadedGitIgnoreFiles If not null the .gitignore file of the directory is first added to the set
+     *                             (and passed to this) before the entries are filtered.
+     * @return The non-ignored entries of the directory (in no specific order) or null if the directory is
+     * ignored or cannot be read.
+     */
+    private static List<FileTreeEntry> listNonIgnored(GitIgnoreFileSet gitIgnoreFileSet, Path current, Consumer<Path> loadedGitIgnoreFiles) {
         String dirPath = current.toFile().getPath();
         if (!dirPath.endsWith(File.separator)) {
             dirPath = dirPath + File.separatorChar;
@@ -71,38 +312,62 @@ public final class Utils {
 
         if (gitIgnoreFileSet.ignoreFile(dirPath)) {
             LOG.debug("Locate GI: Ignored  {}", current);
-            return emptyList(); // Is ignored
+            return null; // Is ignored
         }
 
         LOG.debug("Locate GI: Scan     {}", current);
 
-        found.add(current);
-
+        List<Path> paths = new ArrayList<>();
+        FileTreeEntry gitIgnoreFile = null;
         try (DirectoryStream<Path> stream = Files.newDirectoryStream(current)) {
             for (Path path : stream) {
-                if (gitIgnoreFileSet.keepFile(path.toString())) {
-                    if (Files.isDirectory(path)) {
-                        subDirs.add(path);
-                    } else {
-                        found.add(path);
+                if (loadedGitIgnoreFiles == null) {
+                    if (gitIgnoreFileSet.keepFile(path.toString())) {
+                        paths.add(path);
                     }
+                    continue;
                 }
+                // The filtering must wait until the .gitignore of this directory has been added.
+                if (".gitignore".equals(path.getFileName().toString())) {
+                    FileTreeEntry entry = FileTreeEntry.of(path);
+                    if (entry != null && entry.isRegularFile()) {
+                        gitIgnoreFile = entry;
+                    }
+                }
+                paths.add(path);
             }
         }
         catch (IOException e) {
             LOG.error("Unable to list the content of {} due to {}", current, e.toString());
-            return emptyList();
+            return null;
         }
 
-        int nextMaxRecursionDepth = maxRecursionDepth-1;
-        if (nextMaxRecursionDepth > 0) {
-            for (Path subDir : subDirs) {
-                found.addAll(findAllNonIgnored(gitIgnoreFileSet, subDir, nextMaxRecursionDepth));
+        if (gitIgnoreFile != null) {
+            LOG.debug("Locate GI: ADDING   {}", gitIgnoreFile.getPath());
+            gitIgnoreFileSet.addGitIgnoreFile(gitIgnoreFile.getPath().toFile());
+            loadedGitIgnoreFiles.accept(gitIgnoreFile.getPath());
+            if (gitIgnoreFileSet.ignoreFile(dirPath)) {
+                LOG.debug("Locate GI: Ignored  {}", current);
+                return null; // Is ignored by its own .gitignore
             }
         }
-        Collections.sort(found);
-        return found;
-    }
 
+        // Only the attributes of the non-ignored entries are read (once).
+        List<FileTreeEntry> entries = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            if (loadedGitIgnoreFiles != null && !gitIgnoreFileSet.keepFile(path.toString())) {
+                continue;
+            }
+            if (gitIgnoreFile != null && path.equals(gitIgnoreFile.getPath())) {
+                entries.add(gitIgnoreFile);
+                continue;
+            }
+            FileTreeEntry entry = FileTreeEntry.of(path);
+            if (entry != null) { // Else it was removed while walking
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
 
 }
@@ -0,0 +1,119 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.gitignore;
+
+import nl.basjes.gitignore.GitIgnore.IgnoreRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares checking a filename against all rules from first to last with the indexed evaluation
+ * from the last rule down that stops at the first decisive match.
+ * If only a handful of rules are touched per query then the time of the latter does not grow with the number of rules.
+ * Run the main method (i.e. from the IDE) to get the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkGitIgnore {
+
+    @Param({"100", "1000", "10000"})
+    private int numberOfRules;
+
+    private GitIgnore gitIgnore;
+    private final List<String> filenames = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        // Something that looks like the .gitignore of a big monorepo
+        StringBuilder content = new StringBuilder("target/\n*.log\n.idea/\n");
+        int services = numberOfRules / 5;
+        for (int service = 0; service < services; service++) {
+            content
+                .append("/services/service").append(service).append("/generated/\n")
+                .append("services/service").append(service).append("/**/*.tmp\n")
+                .append("*.ext").append(service).append('\n')
+                .append("cache").append(service).append('\n')
+                .append("!/services/service").append(service).append("/keep.log\n");
+        }
+        gitIgnore = new GitIgnore(content.toString());
+
+        for (int service = 0; service < services; service += Math.max(1, services / 20)) {
+            filenames.add("services/service" + service + "/src/main/java/nl/basjes/Something" + service + ".java");
+            filenames.add("services/service" + service + "/target/classes/Something.class");
+            filenames.add("services/service" + service + "/generated/Something.java");
+            filenames.add("services/service" + service + "/keep.log");
+            filenames.add("services/service" + service + "/data/file.tmp");
+            filenames.add("services/service" + service + "/README.md");
+        }
+    }
+
+    @Benchmark
+    public void allRules(Blackhole blackhole) {
+        for (String filename : filenames) {
+            String matchFileName = GitIgnore.standardizeFilename(filename);
+            Boolean mustBeIgnored = null;
+            for (IgnoreRule ignoreRule : gitIgnore.getIgnoreRules()) {
+                Boolean ruleVerdict = ignoreRule.isIgnoredFile(matchFileName);
+                if (ruleVerdict == null) {
+                    continue;
+                }
+                mustBeIgnored = ruleVerdict;
+                if (ruleVerdict && ignoreRule.isDirectoryMatch()) {
+                    break;
+                }
+            }
+            blackhole.consume(mustBeIgnored);
+        }
+    }
+
+    @Benchmark
+    public void fromTheEnd(Blackhole blackhole) {
+        for (String filename : filenames) {
+            blackhole.consume(gitIgnore.isIgnoredFile(filename));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(
+            new OptionsBuilder()
+                .include(BenchmarkGitIgnore.class.getSimpleName())
+                .build())
+            .run();
+    }
+}
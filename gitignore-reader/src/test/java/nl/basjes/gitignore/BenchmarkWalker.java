@@ -0,0 +1,135 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.gitignore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compares the sequential and the parallel walkers on a generated tree (by default 1M files).
+ * Creating the tree takes a while; use i.e. "-p numberOfFiles=10000" for a quick run.
+ * Run the main method (i.e. from the IDE) to get the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BenchmarkWalker {
+
+    private static final int FILES_PER_DIRECTORY = 100;
+
+    @Param({"1000000"})
+    private int numberOfFiles;
+
+    @Param({"8", "32"})
+    private int parallelism;
+
+    private Path tree;
+    private GitIgnoreFileSet gitIgnoreFileSet;
+
+    @Setup(Level.Trial)
+    public void createTree() throws IOException {
+        tree = Files.createTempDirectory("BenchmarkWalker");
+        Files.write(tree.resolve(".gitignore"), "*.log\ntarget/\n".getBytes(UTF_8));
+
+        // Three levels of directories with the files in the lowest level.
+        int leafDirectories = Math.max(1, numberOfFiles / FILES_PER_DIRECTORY);
+        int fanOut = Math.max(1, (int) Math.ceil(Math.cbrt(leafDirectories)));
+        int created = 0;
+        for (int level1 = 0; level1 < fanOut && created < numberOfFiles; level1++) {
+            Path dir1 = tree.resolve("module" + level1);
+            Files.createDirectories(dir1);
+            Files.write(dir1.resolve(".gitignore"), ("generated" + level1 + "/\n").getBytes(UTF_8));
+            for (int level2 = 0; level2 < fanOut && created < numberOfFiles; level2++) {
+                for (int level3 = 0; level3 < fanOut && created < numberOfFiles; level3++) {
+                    Path leaf = Files.createDirectories(dir1.resolve("package" + level2).resolve("sub" + level3));
+                    for (int file = 0; file < FILES_PER_DIRECTORY && created < numberOfFiles; file++, created++) {
+                        // One in ten files is ignored
+                        Files.createFile(leaf.resolve("File" + file + (file % 10 == 0 ? ".log" : ".java")));
+                    }
+                }
+            }
+            // An ignored directory that must never be walked into
+            Path target = Files.createDirectories(dir1.resolve("target"));
+            Files.createFile(target.resolve("output.jar"));
+        }
+        gitIgnoreFileSet = new GitIgnoreFileSet(tree.toFile(), false);
+        gitIgnoreFileSet.addAllGitIgnoreFiles(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTree() throws IOException {
+        try (Stream<Path> paths = Files.walk(tree)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public List<Path> findAllNonIgnoredSequential() {
+        return Utils.findAllNonIgnored(gitIgnoreFileSet);
+    }
+
+    @Benchmark
+    public List<Path> findAllNonIgnoredParallel() {
+        return Utils.findAllNonIgnored(gitIgnoreFileSet, parallelism);
+    }
+
+    @Benchmark
+    public List<Path> addAllGitIgnoreFilesSequential() {
+        return new GitIgnoreFileSet(tree.toFile(), false).addAllGitIgnoreFiles(false);
+    }
+
+    @Benchmark
+    public List<Path> addAllGitIgnoreFilesParallel() {
+        return new GitIgnoreFileSet(tree.toFile(), false).addAllGitIgnoreFiles(false, parallelism);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(
+            new OptionsBuilder()
+                .include(BenchmarkWalker.class.getSimpleName())
+                .build())
+            .run();
+    }
+}
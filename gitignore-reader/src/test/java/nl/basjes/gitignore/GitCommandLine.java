@@ -0,0 +1,84 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.gitignore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the local git binary to build fixture repositories.
+ */
+final class GitCommandLine {
+
+    private GitCommandLine() {
+    }
+
+    static String git(Path directory, String input, String... arguments) throws IOException, InterruptedException {
+        return new String(gitBytes(directory, input, arguments), UTF_8);
+    }
+
+    static byte[] gitBytes(Path directory, String input, String... arguments) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(Arrays.asList(arguments));
+        ProcessBuilder processBuilder = new ProcessBuilder(command)
+            .directory(directory.toFile())
+            .redirectError(ProcessBuilder.Redirect.INHERIT);
+        // Commits must not depend on the configuration of the machine running the tests.
+        Map<String, String> environment = processBuilder.environment();
+        environment.put("GIT_CONFIG_NOSYSTEM", "1");
+        environment.put("GIT_CONFIG_GLOBAL", "/dev/null");
+        environment.put("GIT_AUTHOR_NAME", "Tester");
+        environment.put("GIT_AUTHOR_EMAIL", "tester@example.nl");
+        environment.put("GIT_COMMITTER_NAME", "Tester");
+        environment.put("GIT_COMMITTER_EMAIL", "tester@example.nl");
+        Process process = processBuilder.start();
+        try (OutputStream stdin = process.getOutputStream()) {
+            stdin.write(input.getBytes(UTF_8));
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream stdout = process.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stdout.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        }
+        assertEquals(0, process.waitFor(), "Failed: " + command);
+        return output.toByteArray();
+    }
+
+    static boolean gitIsAvailable(Path directory) {
+        try {
+            git(directory, "", "--version");
+            return true;
+        } catch (IOException | InterruptedException | AssertionError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.gitignore;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestCanonicalPath {
+
+    // The way filenames were standardized with regexes
+    private static String standardizeViaRegex(String filename) {
+        String unixifiedName = filename.replace("\\", "/");
+        if (!unixifiedName.matches("^[a-zA-Z]:/.*")) {
+            unixifiedName = "/" + unixifiedName;
+        }
+        return unixifiedName.replaceAll("/+", "/");
+    }
+
+    private static void assertCanonical(String filename) {
+        CanonicalPath canonicalPath = CanonicalPath.of(filename);
+        String expected = standardizeViaRegex(filename);
+        assertEquals(expected, canonicalPath.getPath(), "Filename |" + filename + "|");
+
+        int separator = 0;
+        for (int i = 0; i < expected.length(); i++) {
+            if (expected.charAt(i) == '/') {
+                assertEquals(i, canonicalPath.getSeparator(separator++), "Filename |" + filename + "|");
+            }
+        }
+        assertEquals(separator, canonicalPath.getNumberOfSeparators(), "Filename |" + filename + "|");
+    }
+
+    private static final List<String> PARTS = Arrays.asList(
+        "/", "//", "\\", "\\\\", "a", "C:", "c:", "1:", "dir", ".", "..", " ", "\n", "\r\n", "\u2028", "file.txt", ":");
+
+    @Test
+    void verifySameAsRegex() {
+        for (String filename : Arrays.asList("", "/", "a", "/a", "a/b", "//a//b//", "C:/a", "C:\\a\\b", "c:", "C:a",
+            "1:/a", "\\\\server\\share", "C:/a\nb", "dir/", "/dir\\")) {
+            assertCanonical(filename);
+        }
+
+        Random random = new Random(42);
+        for (int run = 0; run < 10000; run++) {
+            StringBuilder filename = new StringBuilder();
+            int parts = random.nextInt(8);
+            for (int part = 0; part < parts; part++) {
+                filename.append(PARTS.get(random.nextInt(PARTS.size())));
+            }
+            assertCanonical(filename.toString());
+        }
+    }
+
+    @Test
+    void verifyAlreadyCanonical() {
+        String filename = "/dir/sub/file.txt";
+        CanonicalPath canonicalPath = CanonicalPath.of(filename);
+        assertSame(filename, canonicalPath.getPath());
+        assertFalse(canonicalPath.isDirectory());
+        assertTrue(CanonicalPath.of("dir/sub/").isDirectory());
+        assertEquals(CanonicalPath.of("dir\\sub"), CanonicalPath.of("/dir/sub"));
+        assertEquals(CanonicalPath.of("dir\\sub").hashCode(), CanonicalPath.of("/dir/sub").hashCode());
+    }
+
+    @Test
+    void verifyRelativeTo() {
+        CanonicalPath canonicalPath = CanonicalPath.of("/home/user/project/dir/file.txt");
+        assertEquals("/dir/file.txt", canonicalPath.relativeTo("/home/user/project").getPath());
+        assertEquals("/home/user/project/dir/file.txt", canonicalPath.relativeTo("/").getPath());
+        assertEquals("/",             CanonicalPath.of("/home/user/project").relativeTo("/home/user/project").getPath());
+        assertNull(canonicalPath.relativeTo("/home/other"));
+
+        CanonicalPath relative = canonicalPath.relativeTo("/home/user/project");
+        assertEquals(2, relative.getNumberOfSeparators());
+        assertEquals(0, relative.getSeparator(0));
+        assertEquals(4, relative.getSeparator(1));
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.gitignore;
+
+import nl.basjes.gitignore.GitIgnore.IgnoreRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestCompiledRuleCache {
+
+    @Test
+    void verifySharedRules() {
+        List<IgnoreRule> first  = new GitIgnore("dir1", "target/\n*.class\n!keep.class\n").getIgnoreRules();
+        long hits = CompiledRuleCache.getHits();
+        List<IgnoreRule> second = new GitIgnore("dir1", "target/\n*.class\n!keep.class\n").getIgnoreRules();
+        List<IgnoreRule> other  = new GitIgnore("dir2", "target/\n*.class\n!keep.class\n").getIgnoreRules();
+
+        assertTrue(CompiledRuleCache.getHits() >= hits + 3);
+        for (int i = 0; i < first.size(); i++) {
+            // Same expression and same base directory
+            assertSame(first.get(i).getIgnorePattern(), second.get(i).getIgnorePattern());
+            // The base directory is part of the Pattern
+            assertNotSame(first.get(i).getIgnorePattern(), other.get(i).getIgnorePattern());
+        }
+
+        // The shared rules must still behave as separate rules
+        GitIgnore gitIgnore = new GitIgnore("dir1", "target/\n*.class\n!keep.class\n");
+        assertEquals(Boolean.TRUE, gitIgnore.isIgnoredFile("dir1/foo.class"));
+        assertEquals(Boolean.FALSE, gitIgnore.isIgnoredFile("dir1/keep.class"));
+        assertNull(gitIgnore.isIgnoredFile("dir2/foo.class"));
+    }
+
+    @Test
+    void verifyBounded() {
+        for (int i = 0; i < CompiledRuleCache.MAXIMUM_SIZE + 100; i++) {
+            new GitIgnore("bounded", "file" + i + ".txt\n");
+        }
+        assertTrue(CompiledRuleCache.size() <= CompiledRuleCache.MAXIMUM_SIZE);
+    }
+
+}
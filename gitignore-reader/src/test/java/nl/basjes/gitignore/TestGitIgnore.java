@@ -25,14 +25,21 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
+import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
 import static nl.basjes.gitignore.TestUtils.assertIgnore;
 import static nl.basjes.gitignore.TestUtils.assertNotIgnore;
 import static nl.basjes.gitignore.TestUtils.assertNullMatch;
+import static nl.basjes.gitignore.TestUtils.assertSameAsAllRules;
 import static nl.basjes.gitignore.TestUtils.verifyGeneratedRegex;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 class TestGitIgnore {
@@ -586,4 +593,116 @@ class TestGitIgnore {
         assertNotIgnore(gitIgnore, "foo/bar");
     }
 
+    private static final List<String> RULES = Arrays.asList(
+        "target", "target/", "!target", "node_modules/", ".DS_Store", "*.log", "!keep.log", "!*.log", "*.log/",
+        "*.tar.gz", "*~", "*.", ".", "file$1", "a(b)", "build", "/build", "build/out", "**/build", "*.[oa]",
+        "foo*", ".*", "a?b", "*", "!important", "important/", "x y", "*.c++", "#notacomment", "\\#hash",
+        "/out/", "**/logs/", "!logs/important", "!/out/important", "!**/build",
+        "docs/**/*.pdf", "a+b/c", "src/main/*.java", "/src/main/", "x y/z", "!docs/build/", "src/*/java/", "doc?/x");
+
+    private static final List<String> NAMES = Arrays.asList(
+        "target", "node_modules", ".DS_Store", "app.log", "keep.log", ".log", "x.log", "log", "a.tar.gz", "tar.gz",
+        "file~", "file.", ".", "file$1", "a(b)", "build", "out", "foo.o", "foobar", ".hidden", "axb", "important",
+        "x y", "a.c++", "#notacomment", "#hash", "ab", "", "logs", "line\nbreak",
+        "docs", "a+b", "aab", "c", "src", "main", "a.java", "java", "z", "x.pdf", "doc");
+
+    @Test
+    void verifyIndexedRulesAreTheSameAsAllRules() {
+        Random random = new Random(42);
+        for (int run = 0; run < 500; run++) {
+            StringBuilder content = new StringBuilder();
+            int numberOfRules = 1 + random.nextInt(8);
+            for (int i = 0; i < numberOfRules; i++) {
+                content.append(RULES.get(random.nextInt(RULES.size()))).append('\n');
+            }
+            String baseDir = random.nextBoolean() ? "" : "base";
+            GitIgnore gitIgnore = new GitIgnore(baseDir, content.toString());
+
+            for (int file = 0; file < 50; file++) {
+                StringBuilder filename = new StringBuilder(baseDir.isEmpty() ? "" : baseDir + "/");
+                int depth = 1 + random.nextInt(4);
+                for (int i = 0; i < depth; i++) {
+                    if (i > 0) {
+                        filename.append('/');
+                    }
+                    filename.append(NAMES.get(random.nextInt(NAMES.size())));
+                }
+                if (random.nextInt(5) == 0) {
+                    filename.append('/');
+                }
+                assertSameAsAllRules(gitIgnore, filename.toString());
+            }
+        }
+    }
+
+    @Test
+    void verifyLiteralRules() {
+        List<IgnoreRule> rules = new GitIgnore("target\n.idea/\n*.log\n!keep.log\n/build\nfoo*\n*.[oa]\n").getIgnoreRules();
+        assertEquals("target",   rules.get(0).getLiteralName());
+        assertEquals(".idea",    rules.get(1).getLiteralName());
+        assertTrue(rules.get(1).isLiteralOnlyDirectories());
+        assertEquals(".log",     rules.get(2).getLiteralName());
+        assertTrue(rules.get(2).isLiteralSuffix());
+        assertEquals("keep.log", rules.get(3).getLiteralName());
+        assertNull(rules.get(4).getLiteralName());
+        assertNull(rules.get(5).getLiteralName());
+        assertNull(rules.get(6).getLiteralName());
+    }
+
+    @Test
+    void verifyLineTerminatorsInFilenames() {
+        GitIgnore gitIgnore = new GitIgnore("target\n*.log\n");
+        assertSameAsAllRules(gitIgnore, "dir/target\n");
+        assertSameAsAllRules(gitIgnore, "dir\n/target");
+        assertSameAsAllRules(gitIgnore, "dir/x.log\r\n");
+        assertSameAsAllRules(gitIgnore, "dir\u2028/x.log");
+    }
+
+    @Test
+    void verifyAnchoredDirectories() {
+        assertEquals("build/",     IgnoreRule.toAnchoredDirectory("build/out(/|$)", true));
+        assertEquals("src/main/",  IgnoreRule.toAnchoredDirectory("src/main/[^/]*\\.java(/|$)", false));
+        assertEquals("docs/",      IgnoreRule.toAnchoredDirectory("docs/(.*/)?[^/]*\\.pdf(/|$)", true));
+        assertEquals("docs/",      IgnoreRule.toAnchoredDirectory("docs(/.*)?/[^/]*\\.pdf(/|$)", true));
+        assertNull(IgnoreRule.toAnchoredDirectory("docs(/.*)?", true));
+        assertEquals("a.b/",       IgnoreRule.toAnchoredDirectory("a\\.b/c(/|$)", true));
+        assertEquals("out/x/",     IgnoreRule.toAnchoredDirectory("^/out/x/", true));
+        assertNull(IgnoreRule.toAnchoredDirectory("^/out/x/", false)); // Never matches
+        assertEquals("out/",       IgnoreRule.toAnchoredDirectory("out/", true));
+        assertNull(IgnoreRule.toAnchoredDirectory("out(/|$)", true)); // Not below a directory
+        assertNull(IgnoreRule.toAnchoredDirectory("(.*/)?build(/|$)", true));
+        assertNull(IgnoreRule.toAnchoredDirectory("a+/b(/|$)", true));
+        assertEquals("a/",         IgnoreRule.toAnchoredDirectory("a/b+/c(/|$)", true));
+        assertNull(IgnoreRule.toAnchoredDirectory("a/b|c/d(/|$)", true));
+        assertNull(IgnoreRule.toAnchoredDirectory("doc[^/]/x(/|$)", true));
+
+        GitIgnore gitIgnore = new GitIgnore("/build/out\n!/docs/build/\n/src/main/\nsrc/*/java/\n");
+        List<IgnoreRule> rules = gitIgnore.getIgnoreRules();
+        assertEquals("build/",      rules.get(0).getAnchoredDirectory());
+        assertEquals("docs/build/", rules.get(1).getAnchoredDirectory());
+        assertEquals("src/main/",   rules.get(2).getAnchoredDirectory());
+        assertEquals("src/",        rules.get(3).getAnchoredDirectory());
+        assertEquals(TRUE, gitIgnore.isIgnoredFile("build/out/file.txt"));
+        assertEquals(TRUE, gitIgnore.isIgnoredFile("src/main/file.txt"));
+        assertEquals(TRUE, gitIgnore.isIgnoredFile("src/test/java/file.txt"));
+        assertNull(gitIgnore.isIgnoredFile("dir/build/out/file.txt"));
+        assertNull(gitIgnore.isIgnoredFile("dir/src/main/file.txt"));
+    }
+
+    @Test
+    void verifyDirectoryMatchWinsFromTheEnd() {
+        // The last matching rule unignores, but an earlier (literal or regex) directory match still wins.
+        for (String directoryRule : Arrays.asList("logs/", "/logs/", "**/logs/")) {
+            GitIgnore gitIgnore = new GitIgnore(directoryRule + "\n*.txt\n!important.log\n!*.txt\n");
+            assertEquals(TRUE,  gitIgnore.isIgnoredFile("logs/important.log"),    directoryRule);
+            assertEquals(TRUE,  gitIgnore.isIgnoredFile("logs/notes.txt"),        directoryRule);
+            assertEquals(FALSE, gitIgnore.isIgnoredFile("other/important.log"),   directoryRule);
+            assertEquals(FALSE, gitIgnore.isIgnoredFile("other/notes.txt"),       directoryRule);
+            assertNull(gitIgnore.isIgnoredFile("other/debug.log"),                directoryRule);
+            assertSameAsAllRules(gitIgnore, "logs/important.log");
+            assertSameAsAllRules(gitIgnore, "logs\n/important.log");
+            assertSameAsAllRules(gitIgnore, "other/notes.txt");
+        }
+    }
+
 }
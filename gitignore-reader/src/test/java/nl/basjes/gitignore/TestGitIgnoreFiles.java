@@ -18,27 +18,40 @@
 package nl.basjes.gitignore;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static nl.basjes.gitignore.GitIgnore.standardizeFilename;
 import static nl.basjes.gitignore.Utils.findAllNonIgnored;
+import static nl.basjes.gitignore.Utils.findAllNonIgnoredLoadingGitIgnores;
+import static nl.basjes.gitignore.Utils.streamAllNonIgnored;
+import static nl.basjes.gitignore.Utils.streamAllNonIgnoredEntries;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TestGitIgnoreFiles {
@@ -407,5 +420,176 @@ class TestGitIgnoreFiles {
         assertEquals(expectedKeepFiles, stripTestTreeBaseDir(allNonIgnored));
     }
 
+    @Test
+    void streamNonIgnoredFilesAndDirectories() {
+        GitIgnoreFileSet gitIgnoreFileSet = new GitIgnoreFileSet(testTree).assumeQueriesIncludeProjectBaseDir();
+        List<Path> allNonIgnored;
+        try (Stream<Path> nonIgnored = streamAllNonIgnored(gitIgnoreFileSet)) {
+            allNonIgnored = nonIgnored.collect(Collectors.toList());
+        }
+        assertEquals(expectedKeepFiles, stripTestTreeBaseDir(allNonIgnored));
+
+        // Depth first: the content of a directory comes directly after it, sorted by name.
+        Deque<Path> openDirectories = new ArrayDeque<>();
+        Map<Path, String> lastNameInDirectory = new HashMap<>();
+        assertEquals(testTree.toPath(), allNonIgnored.get(0));
+        openDirectories.push(allNonIgnored.get(0));
+        for (Path path : allNonIgnored.subList(1, allNonIgnored.size())) {
+            while (!openDirectories.isEmpty() && !openDirectories.peek().equals(path.getParent())) {
+                openDirectories.pop();
+            }
+            assertFalse(openDirectories.isEmpty(), "The content of " + path.getParent() + " is not directly after it.");
+            String name = path.getFileName().toString();
+            String previousName = lastNameInDirectory.put(path.getParent(), name);
+            assertTrue(previousName == null || previousName.compareTo(name) < 0, "Not sorted: " + previousName + " -> " + name);
+            if (Files.isDirectory(path)) {
+                openDirectories.push(path);
+            }
+        }
+
+        // Walking the same tree again gives the same order.
+        try (Stream<Path> nonIgnored = streamAllNonIgnored(gitIgnoreFileSet)) {
+            assertEquals(allNonIgnored, nonIgnored.collect(Collectors.toList()));
+        }
+
+        // Nothing in an ignored (or not existing) directory
+        try (Stream<Path> nonIgnored = streamAllNonIgnored(gitIgnoreFileSet, testTree.toPath().resolve("no-such-directory"))) {
+            assertEquals(0, nonIgnored.count());
+        }
+
+        // The same walk with the file type of every entry.
+        List<FileTreeEntry> allEntries;
+        try (Stream<FileTreeEntry> nonIgnored = streamAllNonIgnoredEntries(gitIgnoreFileSet)) {
+            allEntries = nonIgnored.collect(Collectors.toList());
+        }
+        assertEquals(allNonIgnored, allEntries.stream().map(FileTreeEntry::getPath).collect(Collectors.toList()));
+        for (FileTreeEntry entry : allEntries) {
+            assertEquals(Files.isDirectory(entry.getPath()), entry.isDirectory(), entry.toString());
+            assertEquals(Files.isRegularFile(entry.getPath()), entry.isRegularFile(), entry.toString());
+            FileTreeEntry relative = entry.relativize(testTree.toPath());
+            assertEquals(testTree.toPath().relativize(entry.getPath()), relative.getPath());
+            assertEquals(entry.isDirectory(), relative.isDirectory());
+        }
+    }
+
+    @Test
+    void parallelWalkIsTheSameAsSequential(@TempDir Path directory) throws IOException {
+        // A tree where the .gitignore files in the subdirectories matter
+        Files.write(directory.resolve(".gitignore"), "*.log\ntarget/\n".getBytes(UTF_8));
+        for (int sub = 0; sub < 5; sub++) {
+            Path subDir = Files.createDirectories(directory.resolve("sub" + sub));
+            Files.write(subDir.resolve(".gitignore"), ("!keep" + sub + ".log\nskip" + sub + "/\n").getBytes(UTF_8));
+            for (int deeper = 0; deeper < 5; deeper++) {
+                Path deeperDir = Files.createDirectories(subDir.resolve(deeper == sub ? "skip" + sub : "deeper" + deeper));
+                Files.createDirectories(deeperDir.resolve("target"));
+                Files.write(deeperDir.resolve("target").resolve("output.txt"), new byte[0]);
+                Files.write(deeperDir.resolve(".gitignore"), "*.tmp\n".getBytes(UTF_8));
+                for (String name : Arrays.asList("file.txt", "file.tmp", "file.log", "keep" + sub + ".log")) {
+                    Files.write(deeperDir.resolve(name), new byte[0]);
+                }
+            }
+        }
+
+        for (File baseDir : Arrays.asList(testTree, directory.toFile())) {
+            GitIgnoreFileSet sequential = new GitIgnoreFileSet(baseDir, false);
+            List<Path> sequentialGitIgnoreFiles = sequential.addAllGitIgnoreFiles(false);
+            Collections.sort(sequentialGitIgnoreFiles);
+            List<Path> sequentialFiles = findAllNonIgnored(sequential);
+
+            for (int parallelism : Arrays.asList(1, 4, 32)) {
+                GitIgnoreFileSet parallel = new GitIgnoreFileSet(baseDir, false);
+                assertEquals(sequentialGitIgnoreFiles, parallel.addAllGitIgnoreFiles(false, parallelism));
+                assertEquals(sequential.toString(), parallel.toString());
+                assertEquals(sequentialFiles, findAllNonIgnored(parallel, parallelism));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> findAllNonIgnored(new GitIgnoreFileSet(testTree), 0));
+    }
+
+    @Test
+    void singleWalkIsTheSameAsTwoWalks(@TempDir Path directory) throws IOException {
+        Files.write(directory.resolve(".gitignore"), "*.log\ntarget/\n".getBytes(UTF_8));
+        for (String name : Arrays.asList("file.txt", "file.log")) {
+            Files.write(directory.resolve(name), new byte[0]);
+        }
+        // A directory that ignores itself (and everything in it, including a deeper .gitignore)
+        Path selfIgnored = Files.createDirectories(directory.resolve("self-ignored").resolve("deeper"));
+        Files.write(directory.resolve("self-ignored").resolve(".gitignore"), "*\n".getBytes(UTF_8));
+        Files.write(selfIgnored.resolve(".gitignore"), "!*.log\n".getBytes(UTF_8));
+        Files.write(selfIgnored.resolve("file.log"), new byte[0]);
+        // A directory that changes what is ignored in it
+        Path subDir = Files.createDirectories(directory.resolve("sub").resolve("target"));
+        Files.write(directory.resolve("sub").resolve(".gitignore"), "!important.log\n*.txt\n".getBytes(UTF_8));
+        for (String name : Arrays.asList("file.txt", "file.log", "important.log", "other.md")) {
+            Files.write(directory.resolve("sub").resolve(name), new byte[0]);
+        }
+        Files.write(subDir.resolve("output.md"), new byte[0]);
+
+        for (File baseDir : Arrays.asList(testTree, directory.toFile())) {
+            GitIgnoreFileSet twoWalks = new GitIgnoreFileSet(baseDir, false);
+            List<Path> twoWalksGitIgnoreFiles = twoWalks.addAllGitIgnoreFiles(false);
+            List<Path> twoWalksFiles = findAllNonIgnored(twoWalks);
+
+            GitIgnoreFileSet singleWalk = new GitIgnoreFileSet(baseDir, false);
+            List<Path> singleWalkGitIgnoreFiles = new ArrayList<>();
+            assertEquals(twoWalksFiles, findAllNonIgnoredLoadingGitIgnores(singleWalk, false, singleWalkGitIgnoreFiles::add));
+
+            // The .gitignore below the directory that ignores itself is not needed.
+            twoWalksGitIgnoreFiles.remove(selfIgnored.resolve(".gitignore"));
+            Collections.sort(twoWalksGitIgnoreFiles);
+            Collections.sort(singleWalkGitIgnoreFiles);
+            assertEquals(twoWalksGitIgnoreFiles, singleWalkGitIgnoreFiles);
+        }
+
+        List<Path> nonIgnored = findAllNonIgnoredLoadingGitIgnores(new GitIgnoreFileSet(directory.toFile(), false), false, path -> {});
+        assertTrue(nonIgnored.contains(directory.resolve("sub").resolve("important.log")));
+        assertTrue(nonIgnored.contains(directory.resolve("sub").resolve("other.md")));
+        assertFalse(nonIgnored.contains(directory.resolve("sub").resolve("file.txt")));
+        assertFalse(nonIgnored.contains(directory.resolve("sub").resolve("file.log")));
+        assertFalse(nonIgnored.contains(subDir));
+        assertFalse(nonIgnored.contains(directory.resolve("self-ignored")));
+        assertFalse(nonIgnored.contains(selfIgnored.resolve("file.log")));
+    }
+
+    @Test
+    void loadFromAllSources() throws IOException {
+        Path gitIgnoreFile = testTree.toPath().resolve(".gitignore");
+        String content = new String(Files.readAllBytes(gitIgnoreFile), UTF_8);
+        String expected = new GitIgnore("dir", content).toString();
+
+        assertEquals(expected, new GitIgnore("dir", gitIgnoreFile).toString());
+        assertEquals(expected, new GitIgnore("dir", gitIgnoreFile, true).toString());
+        assertEquals(expected, new GitIgnore("dir", gitIgnoreFile.toFile()).toString());
+        assertEquals(expected, new GitIgnore("dir", new StringReader(content)).toString());
+        assertEquals(expected, new GitIgnore("dir", new ByteArrayInputStream(content.getBytes(UTF_8))).toString());
+        assertEquals(new GitIgnore(content).toString(), new GitIgnore(gitIgnoreFile).toString());
+    }
+
+    @Test
+    void onlyParentDirectoriesAreChecked() {
+        GitIgnoreFileSet gitIgnoreFileSet = new GitIgnoreFileSet(new File("/project"), false);
+        List<GitIgnore> allGitIgnores = new ArrayList<>();
+        for (String baseDir : Arrays.asList("/", "dir1", "dir10", "dir1/sub", "dir1/sub/deeper", "dir2", "dir1", "/dir1/sub/")) {
+            GitIgnore gitIgnore = new GitIgnore(baseDir, "*.log\n!keep*.log\nbuild/\n/" + baseDir.replace("/", "") + ".txt\n");
+            gitIgnoreFileSet.add(gitIgnore);
+            allGitIgnores.add(gitIgnore);
+        }
+        // The way all files were checked before: all GitIgnore files sorted by their base directory.
+        allGitIgnores.sort(Comparator.comparing(GitIgnore::getProjectRelativeBaseDir));
+
+        for (String filename : Arrays.asList(
+            "/file.log", "/keep.log", "/dir1/file.log", "/dir1/keep1.log", "/dir10/keep.log", "/dir100/keep.log",
+            "/dir1/sub/build/x", "/dir1/sub/deeper/keep.log", "/dir1/sub/deeper/dir1subdeeper.txt",
+            "/dir1/dir1.txt", "/dir10/dir10.txt", "/dir2/dir1.txt", "dir2/build/", "/build/keep.log", "/dir1\\sub\\file.log")) {
+            Boolean expected = null;
+            for (GitIgnore gitIgnore : allGitIgnores) {
+                Boolean isIgnoredFile = gitIgnore.isIgnoredFile(filename);
+                if (isIgnoredFile != null) {
+                    expected = isIgnoredFile;
+                }
+            }
+            assertEquals(expected, gitIgnoreFileSet.isIgnoredFile(filename, true), filename);
+        }
+    }
 
 }
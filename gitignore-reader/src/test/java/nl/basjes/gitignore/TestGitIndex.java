@@ -0,0 +1,142 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.gitignore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static nl.basjes.gitignore.GitCommandLine.git;
+import static nl.basjes.gitignore.GitCommandLine.gitIsAvailable;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class TestGitIndex {
+
+    private static final String EMPTY_BLOB = "e69de29bb2d1d6434b8b29ae775ad8c2e48c5391";
+
+    private static List<String> trackedFiles(Path workTree) throws IOException {
+        GitIndex gitIndex = GitIndex.forWorkTree(workTree);
+        assertNotNull(gitIndex);
+        return gitIndex.streamTrackedFiles().collect(Collectors.toList());
+    }
+
+    private static void assertSameAsGit(Path workTree, int version, int expectedVersion) throws IOException, InterruptedException {
+        git(workTree, "", "update-index", "--index-version", Integer.toString(version));
+        assertEquals(expectedVersion, GitIndex.forWorkTree(workTree).getVersion());
+
+        List<String> expected = new ArrayList<>();
+        for (String line : git(workTree, "", "ls-files", "-z", "-s").split("\0")) {
+            String file = line.substring(line.indexOf('\t') + 1);
+            if (line.startsWith("160000 ") || (!expected.isEmpty() && expected.get(expected.size() - 1).equals(file))) {
+                continue; // Submodules and merge conflicts
+            }
+            expected.add(file);
+        }
+        assertEquals(expected, trackedFiles(workTree), "Index version " + expectedVersion);
+    }
+
+    @Test
+    void verifyAllVersions(@TempDir Path workTree) throws IOException, InterruptedException {
+        assumeTrue(gitIsAvailable(workTree), "Needs a git binary");
+        git(workTree, "", "init", "-q");
+
+        List<String> files = Arrays.asList(
+            "README.md", ".gitignore", "with space.txt",
+            "src/main/java/nl/basjes/Something.java", "src/main/java/nl/basjes/SomethingElse.java",
+            "src/main/java/nl/Other.java", "src/test/java/nl/basjes/TestSomething.java", "a", "ab", "abc");
+        for (String file : files) {
+            Path path = workTree.resolve(file);
+            Files.createDirectories(path.getParent());
+            Files.write(path, new byte[0]);
+        }
+        // A very deep path that is too long to have its length in the flags of the entry.
+        StringBuilder longPath = new StringBuilder();
+        while (longPath.length() < 5000) {
+            longPath.append("directory_with_a_long_name_").append(longPath.length()).append('/');
+        }
+        longPath.append("file.txt");
+        git(workTree, "", "add", ".");
+        // Names that do not need to exist on disk (not all filesystems can store these).
+        git(workTree,
+            "100644 " + EMPTY_BLOB + "\t" + longPath + "\n" +
+            "100644 " + EMPTY_BLOB + "\t\u00fcn\u00efc\u00f6d\u00e9.txt\n",
+            "update-index", "--add", "--index-info");
+
+        // A submodule and a file in a merge conflict
+        git(workTree, "", "update-index", "--add", "--cacheinfo", "160000," + EMPTY_BLOB + ",submodule");
+        git(workTree,
+            "100644 " + EMPTY_BLOB + " 1\tconflict.txt\n" +
+            "100644 " + EMPTY_BLOB + " 2\tconflict.txt\n" +
+            "100644 " + EMPTY_BLOB + " 3\tconflict.txt\n",
+            "update-index", "--index-info");
+
+        // Git only writes version 3 if an entry needs the extended flags.
+        assertSameAsGit(workTree, 3, 2);
+        assertSameAsGit(workTree, 4, 4);
+        assertSameAsGit(workTree, 2, 2);
+        List<String> tracked = trackedFiles(workTree);
+        assertEquals(files.size() + 3, tracked.size());
+        assertEquals(1, tracked.stream().filter("\u00fcn\u00efc\u00f6d\u00e9.txt"::equals).count());
+        assertEquals(1, tracked.stream().filter("conflict.txt"::equals).count());
+        assertEquals(0, tracked.stream().filter("submodule"::equals).count());
+        assertEquals(1, tracked.stream().filter(longPath.toString()::equals).count());
+
+        // An "intent to add" file needs the extended flags (version 3 and later).
+        Files.write(workTree.resolve("intent-to-add.txt"), new byte[0]);
+        git(workTree, "", "add", "-N", "intent-to-add.txt");
+        assertSameAsGit(workTree, 3, 3);
+        assertSameAsGit(workTree, 4, 4);
+
+        // A work tree where ".git" is a file that points to the real git directory.
+        Path linked = Files.createDirectories(workTree.resolve("linked"));
+        Files.write(linked.resolve(".git"), ("gitdir: " + workTree.resolve(".git") + "\n").getBytes(UTF_8));
+        assertEquals(trackedFiles(workTree), trackedFiles(linked));
+    }
+
+    @Test
+    void verifyNotAnIndex(@TempDir Path directory) throws IOException {
+        assertNull(GitIndex.forWorkTree(directory));
+
+        Path notAnIndex = directory.resolve("index");
+        Files.write(notAnIndex, "Something else".getBytes(UTF_8));
+        assertThrows(IOException.class, () -> GitIndex.read(notAnIndex));
+
+        // Version 5 does not exist (yet)
+        Files.write(notAnIndex, new byte[]{'D', 'I', 'R', 'C', 0, 0, 0, 5, 0, 0, 0, 0});
+        assertThrows(IOException.class, () -> GitIndex.read(notAnIndex));
+
+        // Claims to have an entry that is not there
+        Files.write(notAnIndex, new byte[]{'D', 'I', 'R', 'C', 0, 0, 0, 2, 0, 0, 0, 1, 0, 0, 0, 0});
+        GitIndex truncated = GitIndex.read(notAnIndex);
+        assertThrows(UncheckedIOException.class, () -> truncated.streamTrackedFiles().count());
+    }
+
+}
@@ -0,0 +1,223 @@
+/*
+ * CodeOwners Tools
+ * Copyright (C) 2023-2025 Niels Basjes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.basjes.gitignore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static nl.basjes.gitignore.GitCommandLine.git;
+import static nl.basjes.gitignore.GitCommandLine.gitBytes;
+import static nl.basjes.gitignore.GitCommandLine.gitIsAvailable;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class TestGitRepository {
+
+    private static void write(Path workTree, String file, String content) throws IOException {
+        Path path = workTree.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(UTF_8));
+    }
+
+    private static String bigText(int version) {
+        StringBuilder text = new StringBuilder();
+        for (int line = 0; line < 2000; line++) {
+            text.append("Line ").append(line).append(line % 500 == 0 ? " changed in version " + version : "").append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void assertSameAsGit(Path repository, String revision) throws IOException, InterruptedException {
+        GitRepository gitRepository = GitRepository.open(repository);
+        assertEquals(git(repository, "", "rev-parse", revision + "^{commit}").trim(), gitRepository.resolve(revision));
+
+        List<String> expected = new ArrayList<>();
+        for (String line : git(repository, "", "ls-tree", "-r", "-z", "--full-tree", revision).split("\0")) {
+            if (!line.startsWith("160000 ")) { // Submodules
+                expected.add(line.substring(line.indexOf('\t') + 1));
+            }
+        }
+        List<String> files = gitRepository.listFiles(revision);
+        assertEquals(expected, files, "Revision " + revision);
+
+        for (String file : files) {
+            assertArrayEquals(gitBytes(repository, "", "cat-file", "blob", revision + ":" + file),
+                gitRepository.readFile(revision, file), revision + ":" + file);
+        }
+        assertNull(gitRepository.readFile(revision, "no/such/file"));
+        assertNull(gitRepository.readFile(revision, "src"));           // A directory
+        assertNull(gitRepository.readFile(revision, "README.md/foo")); // Not a directory
+        assertNull(gitRepository.readFile(revision, "submodule"));
+    }
+
+    @Test
+    void mappedFileWindows(@TempDir Path directory) throws IOException {
+        byte[] content = new byte[1000];
+        new Random(42).nextBytes(content);
+        Path file = directory.resolve("content");
+        Files.write(file, content);
+
+        // Windows of only 64 bytes so many values cross the boundaries of the windows.
+        GitRepository.MappedFile mappedFile = new GitRepository.MappedFile(file, 6);
+        ByteBuffer expected = ByteBuffer.wrap(content);
+        assertEquals(content.length, mappedFile.size());
+        for (int position = 0; position < content.length; position++) {
+            assertEquals(expected.get(position), mappedFile.get(position));
+            if (position + 4 <= content.length) {
+                assertEquals(expected.getInt(position), mappedFile.getInt(position));
+            }
+            if (position + 8 <= content.length) {
+                assertEquals(expected.getLong(position), mappedFile.getLong(position));
+            }
+        }
+
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        byte[] chunk = new byte[100];
+        long position = 0;
+        int length;
+        while ((length = mappedFile.read(position, chunk)) > 0) {
+            copy.write(chunk, 0, length);
+            position += length;
+        }
+        assertArrayEquals(content, copy.toByteArray());
+    }
+
+    @Test
+    void readWithoutCheckout(@TempDir Path directory) throws IOException, InterruptedException {
+        assumeTrue(gitIsAvailable(directory), "Needs a git binary");
+        Path workTree = Files.createDirectories(directory.resolve("work"));
+        git(workTree, "", "init", "-q", "-b", "main");
+
+        write(workTree, ".gitignore", "*.log\nbuild/\n");
+        write(workTree, "README.md", bigText(1));
+        write(workTree, "src/.gitignore", "!keep.log\n");
+        write(workTree, "src/keep.log", "Keep this");
+        write(workTree, "src/main/java/Something.java", "class Something {}\n");
+        write(workTree, "docs/manual.md", "# Manual\n");
+        write(workTree, "docs/old/.gitignore", "*.md\n");
+        write(workTree, "with space/file.txt", "Spaces\n");
+        git(workTree, "", "add", "-A");
+        git(workTree, "", "commit", "-q", "-m", "First");
+        String first = git(workTree, "", "rev-parse", "HEAD").trim();
+        git(workTree, "", "tag", "-a", "v1", "-m", "Version 1");
+
+        for (int version = 2; version < 6; version++) {
+            write(workTree, "README.md", bigText(version));
+            write(workTree, "src/main/java/Version" + version + ".java", "class Version" + version + " {}\n");
+            git(workTree, "", "add", "-A");
+            git(workTree, "", "commit", "-q", "-m", "Version " + version);
+        }
+        git(workTree, "", "branch", "feature", first);
+        git(workTree, "", "update-index", "--add", "--cacheinfo", "160000," + first + ",submodule");
+        git(workTree, "", "commit", "-q", "-m", "With a submodule");
+
+        List<String> revisions = Arrays.asList("HEAD", "main", "refs/heads/main", "v1", "feature", first);
+
+        // Only loose objects
+        for (String revision : revisions) {
+            assertSameAsGit(workTree, revision);
+        }
+
+        // Only packed objects (with deltas) and packed refs
+        git(workTree, "", "gc", "-q", "--aggressive");
+        assertTrue(git(workTree, "", "count-objects", "-v").contains("count: 0"));
+        for (String revision : revisions) {
+            assertSameAsGit(workTree, revision);
+        }
+
+        // Changing the returned content does not change the (cached) object
+        GitRepository packedRepository = GitRepository.open(workTree);
+        byte[] readme = packedRepository.readFile("main", "README.md");
+        Arrays.fill(readme, (byte) 'X');
+        assertArrayEquals(gitBytes(workTree, "", "cat-file", "blob", "main:README.md"), packedRepository.readFile("main", "README.md"));
+        assertArrayEquals(gitBytes(workTree, "", "cat-file", "blob", "v1:README.md"), packedRepository.readFile("v1", "README.md"));
+
+        // A bare mirror
+        git(directory, "", "clone", "-q", "--mirror", workTree.toString(), "mirror.git");
+        Path mirror = directory.resolve("mirror.git");
+        for (String revision : revisions) {
+            assertSameAsGit(mirror, revision);
+        }
+
+        // All offsets after the first object (at 12, after the header of the pack) in the table of
+        // 64 bit offsets which is normally only used for packs over 2GB (git rejects more than that).
+        Path packDir = mirror.resolve("objects").resolve("pack");
+        try (Stream<Path> packFiles = Files.list(packDir)) {
+            for (Path packFile : packFiles.filter(file -> file.toString().endsWith(".pack")).collect(Collectors.toList())) {
+                String name = packFile.getFileName().toString();
+                Path indexFile = packDir.resolve(name.substring(0, name.length() - ".pack".length()) + ".idx");
+                Path largeIndexFile = directory.resolve("large.idx");
+                git(directory, "", "index-pack", "--index-version=2,12", "-o", largeIndexFile.toString(), packFile.toString());
+                assertTrue(Files.size(largeIndexFile) > Files.size(indexFile));
+                Files.delete(indexFile);
+                Files.move(largeIndexFile, indexFile);
+            }
+        }
+        for (String revision : revisions) {
+            assertSameAsGit(mirror, revision);
+        }
+
+        // All objects are in an alternate object database
+        git(directory, "", "clone", "-q", "--shared", "--no-checkout", workTree.toString(), "shared");
+        Path shared = directory.resolve("shared");
+        assertTrue(Files.isRegularFile(shared.resolve(".git/objects/info/alternates")));
+        assertTrue(git(shared, "", "count-objects", "-v").contains("count: 0"));
+        for (String revision : Arrays.asList("HEAD", "main", "v1", "origin/feature", first)) {
+            assertSameAsGit(shared, revision);
+        }
+
+        // The gitignore rules are the same as those of the checkout
+        GitIgnoreFileSet fromCheckout = new GitIgnoreFileSet(workTree.toFile(), false).assumeQueriesAreProjectRelative();
+        fromCheckout.addAllGitIgnoreFiles(false);
+        GitIgnoreFileSet fromMirror = GitRepository.open(mirror).loadGitIgnoreFileSet("main");
+        List<String> candidates = Stream.concat(
+                GitRepository.open(mirror).listFiles("main").stream(),
+                Stream.of("x.log", "src/y.log", "src/keep.log", "src/main/keep.log", "build/x.txt",
+                    "docs/old/a.md", "docs/old/b.txt", "docs/new/a.md"))
+            .collect(Collectors.toList());
+        for (String candidate : candidates) {
+            assertEquals(fromCheckout.isIgnoredFile(candidate), fromMirror.isIgnoredFile(candidate), candidate);
+        }
+        assertTrue(fromMirror.keepFile("src/keep.log"));
+        assertTrue(fromMirror.ignoreFile("docs/old/a.md"));
+
+        // Errors
+        GitRepository gitRepository = GitRepository.open(mirror);
+        assertThrows(IOException.class, () -> gitRepository.resolve("no-such-branch"));
+        assertThrows(IOException.class, () -> gitRepository.listFiles("0000000000000000000000000000000000000000"));
+        assertThrows(IOException.class, () -> GitRepository.open(Files.createDirectories(directory.resolve("empty"))));
+    }
+
+}
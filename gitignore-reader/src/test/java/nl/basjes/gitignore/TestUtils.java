@@ -38,6 +38,7 @@ public class TestUtils {
     }
 
     private static void __assertIgnore(GitIgnore gitIgnore, String filename) {
+        assertSameAsAllRules(gitIgnore, filename);
         assertSame(Boolean.TRUE,
             gitIgnore.isIgnoredFile(filename),
             "Filename \"" + filename + "\" should match but did not.\n" + gitIgnore);
@@ -68,6 +69,7 @@ public class TestUtils {
     }
 
     private static void __assertNotIgnore(GitIgnore gitIgnore, String filename) {
+        assertSameAsAllRules(gitIgnore, filename);
         Boolean isIgnoredFile = gitIgnore.isIgnoredFile(filename);
         assertTrue(
             isIgnoredFile == null || isIgnoredFile == Boolean.FALSE,
@@ -91,6 +93,7 @@ public class TestUtils {
 
 
     public static void assertNullMatch(GitIgnore gitIgnore, String filename) {
+        assertSameAsAllRules(gitIgnore, filename);
         assertNull(
             gitIgnore.isIgnoredFile(filename),
             "Filename \""+filename+"\" should NOT match but did.");
@@ -106,6 +109,33 @@ public class TestUtils {
         assertNullMatch(new GitIgnore(baseDir, gitIgnore), filename);
     }
 
+    /**
+     * The verdict when simply checking all rules (via their regex) in the order of the file.
+     */
+    public static Boolean isIgnoredFileViaAllRules(GitIgnore gitIgnore, String filename) {
+        String matchFileName = GitIgnore.standardizeFilename(filename);
+        if (!matchFileName.startsWith(gitIgnore.getProjectRelativeBaseDir())) {
+            return null;
+        }
+        Boolean result = null;
+        for (GitIgnore.IgnoreRule ignoreRule : gitIgnore.getIgnoreRules()) {
+            Boolean ruleVerdict = ignoreRule.isIgnoredFile(matchFileName);
+            if (ruleVerdict == null) {
+                continue;
+            }
+            result = ruleVerdict;
+            if (ruleVerdict && ignoreRule.isDirectoryMatch()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    public static void assertSameAsAllRules(GitIgnore gitIgnore, String filename) {
+        assertEquals(isIgnoredFileViaAllRules(gitIgnore, filename), gitIgnore.isIgnoredFile(filename),
+            "Filename \"" + filename + "\" gives a different result than checking all rules.\n" + gitIgnore);
+    }
+
     public static String windowsFileName(String filename) {
         return filename.replace("/", "\\");
     }